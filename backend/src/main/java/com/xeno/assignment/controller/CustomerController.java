@@ -3,8 +3,9 @@ package com.xeno.assignment.controller;
 import com.xeno.assignment.entity.Customer;
 import com.xeno.assignment.service.CustomerService;
 import com.xeno.assignment.util.JwtUtil;
+import com.xeno.assignment.util.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +24,12 @@ public class CustomerController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Value("${pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+
     private String getTenantId(HttpServletRequest request) {
         String token = jwtUtil.getTokenFromRequest(request);
         if (token != null) {
@@ -31,27 +38,42 @@ public class CustomerController {
         return "demo-tenant"; // Default for now
     }
 
+    private int pageSize(Integer size) {
+        return size != null ? Math.max(1, Math.min(size, maxPageSize)) : defaultPageSize;
+    }
+
+    private <T> ResponseEntity<List<T>> pageResponse(KeysetPage<T> page) {
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        return ResponseEntity.ok().header(KeysetPage.NEXT_CURSOR_HEADER, page.getNextCursor()).body(page.getItems());
+    }
+
     @GetMapping
     public ResponseEntity<List<Customer>> getAllCustomers(
             HttpServletRequest request,
             @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String search) {
         
         String tenantId = getTenantId(request);
         
-        if (search != null && !search.isEmpty()) {
-            List<Customer> customers = customerService.searchCustomers(tenantId, search);
-            return ResponseEntity.ok(customers);
+        // Offset pages are gone; a page number would silently mean the first page
+        if (page != null) {
+            return ResponseEntity.badRequest().build();
         }
         
-        if (page != null && size != null) {
-            Page<Customer> customersPage = customerService.getAllCustomers(tenantId, page, size);
-            return ResponseEntity.ok(customersPage.getContent());
+        int pageSize = pageSize(size);
+        try {
+            if (search != null && !search.isEmpty()) {
+                return pageResponse(customerService.searchCustomers(tenantId, search, cursor, pageSize));
+            }
+            
+            return pageResponse(customerService.getAllCustomers(tenantId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        List<Customer> customers = customerService.getAllCustomers(tenantId);
-        return ResponseEntity.ok(customers);
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,82 @@
+package com.xeno.assignment.controller;
+
+import com.xeno.assignment.service.ExportService;
+import com.xeno.assignment.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ExportController {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private String getTenantId(HttpServletRequest request) {
+        String token = jwtUtil.getTokenFromRequest(request);
+        if (token != null) {
+            return jwtUtil.getTenantIdFromToken(token);
+        }
+        return "demo-tenant"; // Default for now
+    }
+
+    /**
+     * Stream every order, customer or product of the tenant as NDJSON or CSV, gzipped
+     * when the client accepts it
+     */
+    @GetMapping("/{dataset}")
+    public void export(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "ndjson") String format) throws IOException {
+
+        ExportService.Dataset exportDataset;
+        ExportService.Format exportFormat;
+        try {
+            exportDataset = ExportService.Dataset.valueOf(dataset.toUpperCase());
+            exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown export: " + dataset + " as " + format);
+            return;
+        }
+
+        String tenantId = getTenantId(request);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + dataset.toLowerCase() + "-"
+            + LocalDate.now() + "." + exportFormat.getExtension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setBufferSize(BUFFER_SIZE);
+
+        // Rows go out as they are read; an error past the first buffer truncates the body
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        exportService.export(tenantId, exportDataset, exportFormat, out);
+        if (gzip) {
+            ((GZIPOutputStream) out).finish();
+        }
+    }
+}
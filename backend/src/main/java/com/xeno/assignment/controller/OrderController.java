@@ -3,8 +3,10 @@ package com.xeno.assignment.controller;
 import com.xeno.assignment.entity.Order;
 import com.xeno.assignment.service.OrderService;
 import com.xeno.assignment.util.JwtUtil;
+import com.xeno.assignment.util.KeysetPage;
+import com.xeno.shopify.service.QueryFanOut;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -14,6 +16,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -26,6 +29,15 @@ public class OrderController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private QueryFanOut queryFanOut;
+
+    @Value("${pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+
     private String getTenantId(HttpServletRequest request) {
         String token = jwtUtil.getTokenFromRequest(request);
         if (token != null) {
@@ -34,10 +46,22 @@ public class OrderController {
         return "demo-tenant"; // Default for now
     }
 
+    private int pageSize(Integer size) {
+        return size != null ? Math.max(1, Math.min(size, maxPageSize)) : defaultPageSize;
+    }
+
+    private <T> ResponseEntity<List<T>> pageResponse(KeysetPage<T> page) {
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        return ResponseEntity.ok().header(KeysetPage.NEXT_CURSOR_HEADER, page.getNextCursor()).body(page.getItems());
+    }
+
     @GetMapping
     public ResponseEntity<List<Order>> getAllOrders(
             HttpServletRequest request,
             @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) Long customerId,
@@ -46,28 +70,29 @@ public class OrderController {
         
         String tenantId = getTenantId(request);
         
-        if (customerId != null) {
-            List<Order> orders = orderService.getOrdersByCustomer(tenantId, customerId);
-            return ResponseEntity.ok(orders);
+        // Offset pages are gone; a page number would silently mean the first page
+        if (page != null) {
+            return ResponseEntity.badRequest().build();
         }
         
-        if (status != null && !status.isEmpty()) {
-            List<Order> orders = orderService.getOrdersByStatus(tenantId, status);
-            return ResponseEntity.ok(orders);
+        int pageSize = pageSize(size);
+        try {
+            if (customerId != null) {
+                return pageResponse(orderService.getOrdersByCustomer(tenantId, customerId, cursor, pageSize));
+            }
+            
+            if (status != null && !status.isEmpty()) {
+                return pageResponse(orderService.getOrdersByStatus(tenantId, status, cursor, pageSize));
+            }
+            
+            if (startDate != null && endDate != null) {
+                return pageResponse(orderService.getOrdersByDateRange(tenantId, startDate, endDate, cursor, pageSize));
+            }
+            
+            return pageResponse(orderService.getAllOrders(tenantId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        if (startDate != null && endDate != null) {
-            List<Order> orders = orderService.getOrdersByDateRange(tenantId, startDate, endDate);
-            return ResponseEntity.ok(orders);
-        }
-        
-        if (page != null && size != null) {
-            Page<Order> ordersPage = orderService.getAllOrders(tenantId, page, size);
-            return ResponseEntity.ok(ordersPage.getContent());
-        }
-        
-        List<Order> orders = orderService.getAllOrders(tenantId);
-        return ResponseEntity.ok(orders);
     }
 
     @GetMapping("/{id}")
@@ -149,17 +174,33 @@ public class OrderController {
         
         String tenantId = getTenantId(request);
         
+        // The aggregates run in parallel; recent orders are entities with lazy items,
+        // so they are loaded here on the request thread in the meantime
+        boolean period = startDate != null && endDate != null;
+        CompletableFuture<Long> totalOrders = queryFanOut.submit(() -> orderService.getOrderCount(tenantId));
+        CompletableFuture<Double> totalRevenue = queryFanOut.submit(() -> orderService.getTotalRevenue(tenantId));
+        CompletableFuture<Map<String, Long>> statusCounts =
+            queryFanOut.submit(() -> orderService.getOrderStatusCounts(tenantId));
+        CompletableFuture<Long> periodOrders = period ?
+            queryFanOut.submit(() -> orderService.getOrderCountByDateRange(tenantId, startDate, endDate)) :
+            CompletableFuture.completedFuture(null);
+        CompletableFuture<Double> periodRevenue = period ?
+            queryFanOut.submit(() -> orderService.getTotalRevenueByDateRange(tenantId, startDate, endDate)) :
+            CompletableFuture.completedFuture(null);
+        CompletableFuture<List<Object[]>> dailyAnalytics = period ?
+            queryFanOut.submit(() -> orderService.getDailyOrdersAnalytics(tenantId, startDate, endDate)) :
+            CompletableFuture.completedFuture(null);
+
         OrderStats stats = new OrderStats();
-        stats.totalOrders = orderService.getOrderCount(tenantId);
-        stats.totalRevenue = orderService.getTotalRevenue(tenantId);
-        stats.statusCounts = orderService.getOrderStatusCounts(tenantId);
         stats.recentOrders = orderService.getRecentOrders(tenantId, 5);
-        
-        if (startDate != null && endDate != null) {
-            stats.periodOrders = orderService.getOrderCountByDateRange(tenantId, startDate, endDate);
-            stats.periodRevenue = orderService.getTotalRevenueByDateRange(tenantId, startDate, endDate);
-            stats.dailyAnalytics = orderService.getDailyOrdersAnalytics(tenantId, startDate, endDate);
-        }
+
+        queryFanOut.awaitAll(totalOrders, totalRevenue, statusCounts, periodOrders, periodRevenue, dailyAnalytics);
+        stats.totalOrders = totalOrders.join();
+        stats.totalRevenue = totalRevenue.join();
+        stats.statusCounts = statusCounts.join();
+        stats.periodOrders = periodOrders.join();
+        stats.periodRevenue = periodRevenue.join();
+        stats.dailyAnalytics = dailyAnalytics.join();
         
         return ResponseEntity.ok(stats);
     }
@@ -3,8 +3,9 @@ package com.xeno.assignment.controller;
 import com.xeno.assignment.entity.Product;
 import com.xeno.assignment.service.ProductService;
 import com.xeno.assignment.util.JwtUtil;
+import com.xeno.assignment.util.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +24,12 @@ public class ProductController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Value("${pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+
     private String getTenantId(HttpServletRequest request) {
         String token = jwtUtil.getTokenFromRequest(request);
         if (token != null) {
@@ -31,33 +38,47 @@ public class ProductController {
         return "demo-tenant"; // Default for now
     }
 
+    private int pageSize(Integer size) {
+        return size != null ? Math.max(1, Math.min(size, maxPageSize)) : defaultPageSize;
+    }
+
+    private <T> ResponseEntity<List<T>> pageResponse(KeysetPage<T> page) {
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        return ResponseEntity.ok().header(KeysetPage.NEXT_CURSOR_HEADER, page.getNextCursor()).body(page.getItems());
+    }
+
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts(
             HttpServletRequest request,
             @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String category) {
         
         String tenantId = getTenantId(request);
         
-        if (search != null && !search.isEmpty()) {
-            List<Product> products = productService.searchProducts(tenantId, search);
-            return ResponseEntity.ok(products);
-        }
-        
-        if (category != null && !category.isEmpty()) {
-            List<Product> products = productService.getProductsByCategory(tenantId, category);
-            return ResponseEntity.ok(products);
+        // Offset pages are gone; a page number would silently mean the first page
+        if (page != null) {
+            return ResponseEntity.badRequest().build();
         }
         
-        if (page != null && size != null) {
-            Page<Product> productsPage = productService.getAllProducts(tenantId, page, size);
-            return ResponseEntity.ok(productsPage.getContent());
+        int pageSize = pageSize(size);
+        try {
+            if (search != null && !search.isEmpty()) {
+                return pageResponse(productService.searchProducts(tenantId, search, cursor, pageSize));
+            }
+            
+            if (category != null && !category.isEmpty()) {
+                return pageResponse(productService.getProductsByCategory(tenantId, category, cursor, pageSize));
+            }
+            
+            return pageResponse(productService.getAllProducts(tenantId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        List<Product> products = productService.getAllProducts(tenantId);
-        return ResponseEntity.ok(products);
     }
 
     @GetMapping("/{id}")
@@ -6,7 +6,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity(name = "AssignmentCustomer")
-@Table(name = "assignment_customers")
+@Table(name = "assignment_customers", indexes = {
+    @Index(name = "idx_tenant_created_at", columnList = "tenant_id, created_at"),
+    // Point lookups by Shopify id, so counter updates lock only the customer's row
+    @Index(name = "idx_tenant_customer_id", columnList = "tenant_id, customer_id")
+})
 public class Customer {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
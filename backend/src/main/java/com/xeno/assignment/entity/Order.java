@@ -7,7 +7,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity(name = "AssignmentOrder")
-@Table(name = "assignment_orders")
+@Table(name = "assignment_orders", indexes = {
+    // Keyset pages of the order lists; InnoDB appends the id, which breaks order_date ties
+    @Index(name = "idx_tenant_order_date", columnList = "tenant_id, order_date"),
+    @Index(name = "idx_tenant_status_order_date", columnList = "tenant_id, status, order_date"),
+    @Index(name = "idx_customer_order_date", columnList = "customer_id, order_date")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,7 +6,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity(name = "AssignmentProduct")
-@Table(name = "assignment_products")
+@Table(name = "assignment_products", indexes = {
+    @Index(name = "idx_tenant_active", columnList = "tenant_id, is_active"),
+    // Keyset pages of the product lists, with the id appended by InnoDB
+    @Index(name = "idx_tenant_active_created_at", columnList = "tenant_id, is_active, created_at"),
+    @Index(name = "idx_tenant_category_created_at", columnList = "tenant_id, category, created_at"),
+    // Point lookups by Shopify id, so counter updates lock only the product's row
+    @Index(name = "idx_tenant_product_id", columnList = "tenant_id, product_id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,22 +1,29 @@
 package com.xeno.assignment.repository;
 
 import com.xeno.assignment.entity.Customer;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
-    List<Customer> findByTenantIdOrderByCreatedAtDesc(String tenantId);
-    
-    Page<Customer> findByTenantIdOrderByCreatedAtDesc(String tenantId, Pageable pageable);
+    // Keyset pages, newest first: the rows after (createdAt, id), limited by the pageable
+    @Query("SELECT c FROM Customer c WHERE c.tenantId = :tenantId AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Customer> findPageByTenantId(
+        @Param("tenantId") String tenantId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
     Optional<Customer> findByTenantIdAndCustomerId(String tenantId, String customerId);
     
@@ -25,10 +32,15 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT c FROM Customer c WHERE c.tenantId = :tenantId AND " +
            "(LOWER(c.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(c.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(c.email) LIKE LOWER(CONCAT('%', :search, '%')))")
-    List<Customer> findByTenantIdAndNameOrEmailContainingIgnoreCase(
+           "LOWER(c.email) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Customer> findPageByTenantIdAndNameOrEmailContainingIgnoreCase(
         @Param("tenantId") String tenantId, 
-        @Param("search") String search
+        @Param("search") String search,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
     );
     
     @Query("SELECT c FROM Customer c WHERE c.tenantId = :tenantId ORDER BY c.totalSpent DESC")
@@ -1,7 +1,7 @@
 package com.xeno.assignment.repository;
 
 import com.xeno.assignment.entity.Order;
-import org.springframework.data.domain.Page;
+import com.xeno.assignment.entity.OrderStatus;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -15,25 +15,54 @@ import java.util.Optional;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
-    List<Order> findByTenantIdOrderByOrderDateDesc(String tenantId);
-    
-    Page<Order> findByTenantIdOrderByOrderDateDesc(String tenantId, Pageable pageable);
-    
-    Optional<Order> findByTenantIdAndOrderId(String tenantId, String orderId);
+    // Keyset pages, newest first: the rows after (orderDate, id), limited by the pageable
+    @Query("SELECT o FROM AssignmentOrder o WHERE o.tenantId = :tenantId AND " +
+           "(o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByTenantId(
+        @Param("tenantId") String tenantId,
+        @Param("orderDate") LocalDateTime orderDate,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
-    List<Order> findByTenantIdAndCustomerIdOrderByOrderDateDesc(String tenantId, Long customerId);
+    @Query("SELECT o FROM AssignmentOrder o WHERE o.tenantId = :tenantId AND o.customer.id = :customerId AND " +
+           "(o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByTenantIdAndCustomerId(
+        @Param("tenantId") String tenantId,
+        @Param("customerId") Long customerId,
+        @Param("orderDate") LocalDateTime orderDate,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
-    @Query("SELECT o FROM AssignmentOrder o WHERE o.tenantId = :tenantId AND o.status = :status ORDER BY o.orderDate DESC")
-    List<Order> findByTenantIdAndStatus(@Param("tenantId") String tenantId, @Param("status") String status);
+    @Query("SELECT o FROM AssignmentOrder o WHERE o.tenantId = :tenantId AND o.status = :status AND " +
+           "(o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByTenantIdAndStatus(
+        @Param("tenantId") String tenantId,
+        @Param("status") OrderStatus status,
+        @Param("orderDate") LocalDateTime orderDate,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
     @Query("SELECT o FROM AssignmentOrder o WHERE o.tenantId = :tenantId AND " +
-           "o.orderDate >= :startDate AND o.orderDate <= :endDate ORDER BY o.orderDate DESC")
-    List<Order> findByTenantIdAndOrderDateBetween(
-        @Param("tenantId") String tenantId, 
-        @Param("startDate") LocalDateTime startDate, 
-        @Param("endDate") LocalDateTime endDate
+           "o.orderDate >= :startDate AND o.orderDate <= :endDate AND " +
+           "(o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByTenantIdAndOrderDateBetween(
+        @Param("tenantId") String tenantId,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate,
+        @Param("orderDate") LocalDateTime orderDate,
+        @Param("id") Long id,
+        Pageable pageable
     );
     
+    Optional<Order> findByTenantIdAndOrderId(String tenantId, String orderId);
+    
     @Query("SELECT COUNT(o) FROM AssignmentOrder o WHERE o.tenantId = :tenantId")
     Long countByTenantId(@Param("tenantId") String tenantId);
     
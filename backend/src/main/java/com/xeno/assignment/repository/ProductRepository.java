@@ -1,22 +1,30 @@
 package com.xeno.assignment.repository;
 
 import com.xeno.assignment.entity.Product;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
-    List<Product> findByTenantIdAndIsActiveOrderByCreatedAtDesc(String tenantId, Boolean isActive);
-    
-    Page<Product> findByTenantIdAndIsActiveOrderByCreatedAtDesc(String tenantId, Boolean isActive, Pageable pageable);
+    // Keyset pages, newest first: the rows after (createdAt, id), limited by the pageable
+    @Query("SELECT p FROM AssignmentProduct p WHERE p.tenantId = :tenantId AND p.isActive = :isActive AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findPageByTenantIdAndIsActive(
+        @Param("tenantId") String tenantId,
+        @Param("isActive") Boolean isActive,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
     Optional<Product> findByTenantIdAndProductId(String tenantId, String productId);
     
@@ -25,13 +33,27 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM AssignmentProduct p WHERE p.tenantId = :tenantId AND p.isActive = true AND " +
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(p.category) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%')))")
-    List<Product> findByTenantIdAndNameOrCategoryOrSkuContainingIgnoreCase(
+           "LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findPageByTenantIdAndNameOrCategoryOrSkuContainingIgnoreCase(
         @Param("tenantId") String tenantId, 
-        @Param("search") String search
+        @Param("search") String search,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
     );
     
-    List<Product> findByTenantIdAndCategory(String tenantId, String category);
+    @Query("SELECT p FROM AssignmentProduct p WHERE p.tenantId = :tenantId AND p.category = :category AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findPageByTenantIdAndCategory(
+        @Param("tenantId") String tenantId,
+        @Param("category") String category,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
     
     @Query("SELECT p FROM AssignmentProduct p WHERE p.tenantId = :tenantId AND p.isActive = true AND " +
            "p.inventoryQuantity <= p.lowStockThreshold ORDER BY p.inventoryQuantity ASC")
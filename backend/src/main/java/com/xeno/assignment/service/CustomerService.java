@@ -1,14 +1,23 @@
 package com.xeno.assignment.service;
 
 import com.xeno.assignment.entity.Customer;
+import com.xeno.assignment.entity.Order;
 import com.xeno.assignment.repository.CustomerRepository;
+import com.xeno.assignment.util.KeysetPage;
+import com.xeno.shopify.event.CustomerSpendChangedEvent;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.TenantDataChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,13 +29,21 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
-    public List<Customer> getAllCustomers(String tenantId) {
-        return customerRepository.findByTenantIdOrderByCreatedAtDesc(tenantId);
-    }
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    public Page<Customer> getAllCustomers(String tenantId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return customerRepository.findByTenantIdOrderByCreatedAtDesc(tenantId, pageable);
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * A page of the tenant's customers, newest first, starting after the given cursor
+     *
+     * @throws IllegalArgumentException if the cursor is not one this service returned
+     */
+    public KeysetPage<Customer> getAllCustomers(String tenantId, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(customerRepository.findPageByTenantId(
+            tenantId, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
     public Optional<Customer> getCustomerById(String tenantId, Long id) {
@@ -49,7 +66,10 @@ public class CustomerService {
         }
         
         customer.setTenantId(tenantId);
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        publishChange(tenantId);
+        publishSpend(tenantId, saved.getId(), saved.getTotalSpent());
+        return saved;
     }
 
     public Customer updateCustomer(String tenantId, Long id, Customer customerDetails) {
@@ -65,7 +85,9 @@ public class CustomerService {
                     customer.setState(customerDetails.getState());
                     customer.setCountry(customerDetails.getCountry());
                     customer.setPostalCode(customerDetails.getPostalCode());
-                    return customerRepository.save(customer);
+                    Customer saved = customerRepository.save(customer);
+                    publishChange(tenantId);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -74,14 +96,37 @@ public class CustomerService {
         return customerRepository.findById(id)
                 .filter(customer -> customer.getTenantId().equals(tenantId))
                 .map(customer -> {
+                    // The customer's orders go with it through the cascade
+                    if (customer.getOrders() != null) {
+                        for (Order order : customer.getOrders()) {
+                            eventPublisher.publishEvent(new OrderChangedEvent(tenantId, OrderSnapshot.of(order), null));
+                        }
+                    }
                     customerRepository.delete(customer);
+                    publishChange(tenantId);
+                    publishSpend(tenantId, customer.getId(), null);
                     return true;
                 })
                 .orElse(false);
     }
 
-    public List<Customer> searchCustomers(String tenantId, String searchTerm) {
-        return customerRepository.findByTenantIdAndNameOrEmailContainingIgnoreCase(tenantId, searchTerm);
+    public KeysetPage<Customer> searchCustomers(String tenantId, String searchTerm, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(customerRepository.findPageByTenantIdAndNameOrEmailContainingIgnoreCase(
+            tenantId, searchTerm, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
+    }
+
+    private KeysetPage<Customer> page(List<Customer> rows, int size) {
+        return KeysetPage.of(rows, size, Customer::getCreatedAt, Customer::getId);
+    }
+
+    /**
+     * The tenant's customers with the given ids, in no particular order
+     */
+    public List<Customer> getCustomersByIds(String tenantId, List<Long> ids) {
+        return customerRepository.findAllById(ids).stream()
+                .filter(customer -> customer.getTenantId().equals(tenantId))
+                .toList();
     }
 
     public List<Customer> getTopCustomersBySpending(String tenantId, int limit) {
@@ -107,16 +152,38 @@ public class CustomerService {
         return customerRepository.findNewCustomers(tenantId, pageable);
     }
 
-    // Update customer statistics when orders change
-    public void updateCustomerStatistics(String tenantId, String customerId, Double orderAmount, boolean isNewOrder) {
-        customerRepository.findByTenantIdAndCustomerId(tenantId, customerId)
-                .ifPresent(customer -> {
-                    if (isNewOrder) {
-                        customer.setOrdersCount(customer.getOrdersCount() + 1);
-                        customer.setTotalSpent(customer.getTotalSpent() + orderAmount);
-                        customer.setLastOrderDate(java.time.LocalDateTime.now());
-                    }
-                    customerRepository.save(customer);
-                });
+    /**
+     * Count a new order against the customer's statistics.
+     *
+     * The counters are incremented in place by one UPDATE, so concurrent orders of the same
+     * customer serialise on its row lock instead of overwriting each other's read-modify-write.
+     * The new total is read back in the same transaction for the spend event.
+     */
+    public void recordOrder(String tenantId, String customerId, Double orderAmount) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jdbcTemplate.update("""
+            UPDATE assignment_customers
+            SET orders_count = COALESCE(orders_count, 0) + 1,
+                total_spent = COALESCE(total_spent, 0) + ?,
+                last_order_date = ?, updated_at = ?
+            WHERE tenant_id = ? AND customer_id = ?
+        """, orderAmount != null ? orderAmount : 0.0, Timestamp.valueOf(now), Timestamp.valueOf(now), tenantId, customerId);
+        if (updated == 0) {
+            return;
+        }
+
+        publishChange(tenantId);
+        jdbcTemplate.query("SELECT id, total_spent FROM assignment_customers WHERE tenant_id = ? AND customer_id = ?",
+            rs -> {
+                publishSpend(tenantId, rs.getLong("id"), rs.getDouble("total_spent"));
+            }, tenantId, customerId);
+    }
+
+    private void publishChange(String tenantId) {
+        eventPublisher.publishEvent(new TenantDataChangedEvent(tenantId, TenantDataChangedEvent.DataType.CUSTOMERS));
+    }
+
+    private void publishSpend(String tenantId, Long id, Double totalSpent) {
+        eventPublisher.publishEvent(new CustomerSpendChangedEvent(tenantId, id, totalSpent));
     }
 }
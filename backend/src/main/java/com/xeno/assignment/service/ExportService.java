@@ -0,0 +1,288 @@
+package com.xeno.assignment.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Full exports of a tenant's orders, customers and products as NDJSON or CSV.
+ *
+ * Rows are read through a forward-only streaming result set and written to the output
+ * as they arrive, so no entity, list or document is built and memory stays the same
+ * whatever the tenant's size. Each export is ordered along one of the table's tenant
+ * indexes, so MySQL never sorts. A streaming result holds its connection until the last
+ * row is written, and MySQL drops it if the client stops reading for longer than
+ * net_write_timeout.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public enum Dataset {
+        ORDERS("""
+            SELECT o.order_id, c.customer_id, c.email as customer_email, o.status, o.subtotal,
+                o.tax_amount, o.shipping_cost, o.discount_amount, o.total_amount, o.currency,
+                o.payment_method, o.payment_status, o.tracking_number, o.order_date,
+                o.shipped_date, o.delivered_date, o.created_at, o.updated_at
+            FROM assignment_orders o
+            JOIN assignment_customers c ON c.id = o.customer_id
+            WHERE o.tenant_id = ?
+            ORDER BY o.order_date, o.id
+        """),
+        CUSTOMERS("""
+            SELECT customer_id, first_name, last_name, email, phone, address, city, state, country,
+                postal_code, total_spent, orders_count, last_order_date, created_at, updated_at
+            FROM assignment_customers
+            WHERE tenant_id = ?
+            ORDER BY created_at, id
+        """),
+        // Inactive products first, following idx_tenant_active_created_at
+        PRODUCTS("""
+            SELECT product_id, name, description, category, price, cost_price, sku, barcode,
+                inventory_quantity, low_stock_threshold, weight, dimensions, image_url, is_active,
+                total_sales, total_revenue, created_at, updated_at
+            FROM assignment_products
+            WHERE tenant_id = ?
+            ORDER BY is_active, created_at, id
+        """);
+
+        private final String sql;
+
+        Dataset(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Write every row of the tenant's dataset to out, which is flushed but not closed
+     *
+     * @return the number of rows written
+     */
+    public long export(String tenantId, Dataset dataset, Format format, OutputStream out) {
+        long started = System.currentTimeMillis();
+        // Integer.MIN_VALUE makes MySQL stream rows instead of buffering the result
+        Long rows = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(dataset.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setString(1, tenantId);
+            return ps;
+        }, (ResultSet rs) -> {
+            try {
+                RowWriter writer = format == Format.CSV ? new CsvRowWriter(out, rs.getMetaData())
+                    : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(out), rs.getMetaData());
+                long written = 0;
+                while (rs.next()) {
+                    writer.write(rs);
+                    written++;
+                }
+                writer.finish();
+                out.flush();
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        logger.info("Exported {} {} rows as {} for tenant {} in {} ms", rows, dataset.name().toLowerCase(),
+            format.getExtension(), tenantId, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private enum Kind {
+        TEXT, INTEGER, DECIMAL, DOUBLE, BOOLEAN, DATE, TIMESTAMP
+    }
+
+    private abstract static class RowWriter {
+        final String[] names;
+        final Kind[] kinds;
+
+        RowWriter(ResultSetMetaData meta) throws SQLException {
+            int columns = meta.getColumnCount();
+            names = new String[columns];
+            kinds = new Kind[columns];
+            for (int c = 0; c < columns; c++) {
+                names[c] = meta.getColumnLabel(c + 1);
+                kinds[c] = switch (meta.getColumnType(c + 1)) {
+                    case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> Kind.INTEGER;
+                    case Types.DECIMAL, Types.NUMERIC -> Kind.DECIMAL;
+                    case Types.REAL, Types.FLOAT, Types.DOUBLE -> Kind.DOUBLE;
+                    case Types.BIT, Types.BOOLEAN -> Kind.BOOLEAN;
+                    case Types.DATE -> Kind.DATE;
+                    case Types.TIMESTAMP -> Kind.TIMESTAMP;
+                    default -> Kind.TEXT;
+                };
+            }
+        }
+
+        // A Long, BigDecimal (exact, so money keeps its cents), Double, Boolean or String
+        // (dates and timestamps as ISO-8601 local date and local time), or null
+        Object value(ResultSet rs, int c) throws SQLException {
+            Object value = switch (kinds[c]) {
+                case INTEGER -> rs.getLong(c + 1);
+                case DECIMAL -> rs.getBigDecimal(c + 1);
+                case DOUBLE -> rs.getDouble(c + 1);
+                case BOOLEAN -> rs.getBoolean(c + 1);
+                case DATE -> {
+                    Date date = rs.getDate(c + 1);
+                    yield date != null ? DateTimeFormatter.ISO_LOCAL_DATE.format(date.toLocalDate()) : null;
+                }
+                case TIMESTAMP -> {
+                    Timestamp timestamp = rs.getTimestamp(c + 1);
+                    yield timestamp != null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp.toLocalDateTime()) : null;
+                }
+                default -> rs.getString(c + 1);
+            };
+            return rs.wasNull() ? null : value;
+        }
+
+        abstract void write(ResultSet rs) throws SQLException, IOException;
+
+        abstract void finish() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter extends RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(JsonGenerator generator, ResultSetMetaData meta) throws SQLException {
+            super(meta);
+            this.generator = generator;
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.configure(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN, true);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int c = 0; c < names.length; c++) {
+                Object value = value(rs, c);
+                generator.writeFieldName(names[c]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof BigDecimal number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Double number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Boolean flag) {
+                    generator.writeBoolean(flag);
+                } else {
+                    generator.writeString((String) value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out, ResultSetMetaData meta) throws SQLException, IOException {
+            super(meta);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            for (int c = 0; c < names.length; c++) {
+                if (c > 0) {
+                    writer.write(',');
+                }
+                writeField(names[c]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        void write(ResultSet rs) throws SQLException, IOException {
+            for (int c = 0; c < names.length; c++) {
+                if (c > 0) {
+                    writer.write(',');
+                }
+                // Null is an empty field; numbers and booleans never need quoting
+                Object value = value(rs, c);
+                if (value instanceof String text) {
+                    writeField(text);
+                } else if (value instanceof BigDecimal number) {
+                    writer.write(number.toPlainString());
+                } else if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180: quote fields holding a separator, quote or line break, doubling quotes
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
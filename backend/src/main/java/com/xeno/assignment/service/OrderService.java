@@ -6,8 +6,13 @@ import com.xeno.assignment.entity.Customer;
 import com.xeno.assignment.entity.OrderStatus;
 import com.xeno.assignment.repository.OrderRepository;
 import com.xeno.assignment.repository.CustomerRepository;
+import com.xeno.assignment.util.KeysetPage;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderFulfilmentEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.ProductSoldEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -15,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.Map;
@@ -34,15 +40,20 @@ public class OrderService {
     private CustomerService customerService;
 
     @Autowired
-    private ProductService productService;
+    private ProductStatsService productStatsService;
 
-    public List<Order> getAllOrders(String tenantId) {
-        return orderRepository.findByTenantIdOrderByOrderDateDesc(tenantId);
-    }
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    public Page<Order> getAllOrders(String tenantId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return orderRepository.findByTenantIdOrderByOrderDateDesc(tenantId, pageable);
+    /**
+     * A page of the tenant's orders, newest first, starting after the given cursor
+     *
+     * @throws IllegalArgumentException if the cursor is not one this service returned
+     */
+    public KeysetPage<Order> getAllOrders(String tenantId, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(orderRepository.findPageByTenantId(
+            tenantId, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
     public Optional<Order> getOrderById(String tenantId, Long id) {
@@ -54,16 +65,30 @@ public class OrderService {
         return orderRepository.findByTenantIdAndOrderId(tenantId, orderId);
     }
 
-    public List<Order> getOrdersByCustomer(String tenantId, Long customerId) {
-        return orderRepository.findByTenantIdAndCustomerIdOrderByOrderDateDesc(tenantId, customerId);
+    public KeysetPage<Order> getOrdersByCustomer(String tenantId, Long customerId, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(orderRepository.findPageByTenantIdAndCustomerId(
+            tenantId, customerId, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
-    public List<Order> getOrdersByStatus(String tenantId, String status) {
-        return orderRepository.findByTenantIdAndStatus(tenantId, status);
+    /**
+     * @throws IllegalArgumentException if the status or the cursor is invalid
+     */
+    public KeysetPage<Order> getOrdersByStatus(String tenantId, String status, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(orderRepository.findPageByTenantIdAndStatus(
+            tenantId, OrderStatus.valueOf(status.toUpperCase()), after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
-    public List<Order> getOrdersByDateRange(String tenantId, LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByTenantIdAndOrderDateBetween(tenantId, startDate, endDate);
+    public KeysetPage<Order> getOrdersByDateRange(String tenantId, LocalDateTime startDate, LocalDateTime endDate,
+                                                  String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(orderRepository.findPageByTenantIdAndOrderDateBetween(
+            tenantId, startDate, endDate, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
+    }
+
+    private KeysetPage<Order> page(List<Order> rows, int size) {
+        return KeysetPage.of(rows, size, Order::getOrderDate, Order::getId);
     }
 
     public Order createOrder(String tenantId, Order order) {
@@ -74,28 +99,22 @@ public class OrderService {
         
         order.setTenantId(tenantId);
         Order savedOrder = orderRepository.save(order);
+        publishChange(tenantId, null, savedOrder);
+        publishFulfilment(tenantId, null, FulfilmentDates.of(savedOrder));
         
         // Update customer statistics
         if (order.getCustomer() != null) {
-            customerService.updateCustomerStatistics(
-                tenantId, 
-                order.getCustomer().getCustomerId(), 
-                order.getTotalAmount(), 
-                true
-            );
+            customerService.recordOrder(tenantId, order.getCustomer().getCustomerId(), order.getTotalAmount());
         }
         
         // Update product statistics if order items exist
         if (order.getOrderItems() != null) {
+            productStatsService.recordSales(tenantId, order.getOrderItems());
             for (OrderItem item : order.getOrderItems()) {
                 if (item.getProduct() != null) {
-                    productService.updateProductStatistics(
-                        tenantId,
-                        item.getProduct().getProductId(),
-                        item.getQuantity(),
-                        item.getTotalPrice(),
-                        true
-                    );
+                    eventPublisher.publishEvent(new ProductSoldEvent(tenantId, savedOrder.getId(),
+                        item.getProduct().getProductId(), item.getQuantity(), item.getTotalPrice(),
+                        savedOrder.getOrderDate()));
                 }
             }
         }
@@ -107,6 +126,8 @@ public class OrderService {
         return orderRepository.findById(id)
                 .filter(order -> order.getTenantId().equals(tenantId))
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
+                    FulfilmentDates datesBefore = FulfilmentDates.of(order);
                     order.setStatus(orderDetails.getStatus());
                     order.setSubtotal(orderDetails.getSubtotal());
                     order.setTaxAmount(orderDetails.getTaxAmount());
@@ -128,7 +149,10 @@ public class OrderService {
                         order.setDeliveredDate(orderDetails.getDeliveredDate());
                     }
                     
-                    return orderRepository.save(order);
+                    Order saved = orderRepository.save(order);
+                    publishChange(tenantId, before, saved);
+                    publishFulfilment(tenantId, datesBefore, FulfilmentDates.of(saved));
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -137,7 +161,11 @@ public class OrderService {
         return orderRepository.findById(id)
                 .filter(order -> order.getTenantId().equals(tenantId))
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
+                    FulfilmentDates datesBefore = FulfilmentDates.of(order);
                     orderRepository.delete(order);
+                    eventPublisher.publishEvent(new OrderChangedEvent(tenantId, before, null));
+                    publishFulfilment(tenantId, datesBefore, null);
                     return true;
                 })
                 .orElse(false);
@@ -192,8 +220,11 @@ public class OrderService {
     public Order confirmOrder(String tenantId, String orderId) {
         return orderRepository.findByTenantIdAndOrderId(tenantId, orderId)
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
                     order.setStatus(OrderStatus.CONFIRMED);
-                    return orderRepository.save(order);
+                    Order saved = orderRepository.save(order);
+                    publishChange(tenantId, before, saved);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -201,10 +232,15 @@ public class OrderService {
     public Order shipOrder(String tenantId, String orderId, String trackingNumber) {
         return orderRepository.findByTenantIdAndOrderId(tenantId, orderId)
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
+                    FulfilmentDates datesBefore = FulfilmentDates.of(order);
                     order.setStatus(OrderStatus.SHIPPED);
                     order.setTrackingNumber(trackingNumber);
                     order.setShippedDate(LocalDateTime.now());
-                    return orderRepository.save(order);
+                    Order saved = orderRepository.save(order);
+                    publishChange(tenantId, before, saved);
+                    publishFulfilment(tenantId, datesBefore, FulfilmentDates.of(saved));
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -212,9 +248,14 @@ public class OrderService {
     public Order deliverOrder(String tenantId, String orderId) {
         return orderRepository.findByTenantIdAndOrderId(tenantId, orderId)
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
+                    FulfilmentDates datesBefore = FulfilmentDates.of(order);
                     order.setStatus(OrderStatus.DELIVERED);
                     order.setDeliveredDate(LocalDateTime.now());
-                    return orderRepository.save(order);
+                    Order saved = orderRepository.save(order);
+                    publishChange(tenantId, before, saved);
+                    publishFulfilment(tenantId, datesBefore, FulfilmentDates.of(saved));
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -222,12 +263,67 @@ public class OrderService {
     public Order cancelOrder(String tenantId, String orderId, String reason) {
         return orderRepository.findByTenantIdAndOrderId(tenantId, orderId)
                 .map(order -> {
+                    OrderSnapshot before = OrderSnapshot.of(order);
                     order.setStatus(OrderStatus.CANCELLED);
                     order.setNotes(order.getNotes() != null ? 
                         order.getNotes() + "\n\nCancelled: " + reason : 
                         "Cancelled: " + reason);
-                    return orderRepository.save(order);
+                    Order saved = orderRepository.save(order);
+                    publishChange(tenantId, before, saved);
+                    return saved;
                 })
                 .orElse(null);
     }
+
+    // Listeners keep the daily rollups in step inside this transaction
+    private void publishChange(String tenantId, OrderSnapshot before, Order saved) {
+        OrderSnapshot after = OrderSnapshot.of(saved);
+        if (!after.equals(before)) {
+            eventPublisher.publishEvent(new OrderChangedEvent(tenantId, before, after));
+        }
+    }
+
+    // Moves each fulfilment stage whose times changed out of its old histogram bucket and
+    // into its new one; a null side is an order that does not exist
+    private void publishFulfilment(String tenantId, FulfilmentDates before, FulfilmentDates after) {
+        publishStage(tenantId, OrderFulfilmentEvent.Stage.SHIP,
+            before != null ? before.orderDate : null, before != null ? before.shippedDate : null,
+            after != null ? after.orderDate : null, after != null ? after.shippedDate : null);
+        // An order delivered without being shipped has no ship-to-deliver time
+        publishStage(tenantId, OrderFulfilmentEvent.Stage.DELIVER,
+            before != null ? before.shippedDate : null, before != null ? before.deliveredDate : null,
+            after != null ? after.shippedDate : null, after != null ? after.deliveredDate : null);
+    }
+
+    private void publishStage(String tenantId, OrderFulfilmentEvent.Stage stage,
+                              LocalDateTime startedBefore, LocalDateTime completedBefore,
+                              LocalDateTime startedAfter, LocalDateTime completedAfter) {
+        if (Objects.equals(startedBefore, startedAfter) && Objects.equals(completedBefore, completedAfter)) {
+            return;
+        }
+        if (startedBefore != null && completedBefore != null) {
+            eventPublisher.publishEvent(new OrderFulfilmentEvent(tenantId, stage, startedBefore, completedBefore, -1));
+        }
+        if (startedAfter != null && completedAfter != null) {
+            eventPublisher.publishEvent(new OrderFulfilmentEvent(tenantId, stage, startedAfter, completedAfter, 1));
+        }
+    }
+
+    // The times an order's fulfilment durations are measured between, taken before the
+    // entity is changed in place
+    private static final class FulfilmentDates {
+        final LocalDateTime orderDate;
+        final LocalDateTime shippedDate;
+        final LocalDateTime deliveredDate;
+
+        private FulfilmentDates(Order order) {
+            this.orderDate = order.getOrderDate();
+            this.shippedDate = order.getShippedDate();
+            this.deliveredDate = order.getDeliveredDate();
+        }
+
+        static FulfilmentDates of(Order order) {
+            return new FulfilmentDates(order);
+        }
+    }
 }
@@ -2,8 +2,10 @@ package com.xeno.assignment.service;
 
 import com.xeno.assignment.entity.Product;
 import com.xeno.assignment.repository.ProductRepository;
+import com.xeno.assignment.util.KeysetPage;
+import com.xeno.shopify.event.TenantDataChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -20,13 +22,18 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
-    public List<Product> getAllProducts(String tenantId) {
-        return productRepository.findByTenantIdAndIsActiveOrderByCreatedAtDesc(tenantId, true);
-    }
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    public Page<Product> getAllProducts(String tenantId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return productRepository.findByTenantIdAndIsActiveOrderByCreatedAtDesc(tenantId, true, pageable);
+    /**
+     * A page of the tenant's active products, newest first, starting after the given cursor
+     *
+     * @throws IllegalArgumentException if the cursor is not one this service returned
+     */
+    public KeysetPage<Product> getAllProducts(String tenantId, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(productRepository.findPageByTenantIdAndIsActive(
+            tenantId, true, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
     public Optional<Product> getProductById(String tenantId, Long id) {
@@ -54,7 +61,9 @@ public class ProductService {
         }
         
         product.setTenantId(tenantId);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        publishChange(tenantId);
+        return saved;
     }
 
     public Product updateProduct(String tenantId, Long id, Product productDetails) {
@@ -74,7 +83,9 @@ public class ProductService {
                     product.setDimensions(productDetails.getDimensions());
                     product.setImageUrl(productDetails.getImageUrl());
                     product.setIsActive(productDetails.getIsActive());
-                    return productRepository.save(product);
+                    Product saved = productRepository.save(product);
+                    publishChange(tenantId);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -85,17 +96,26 @@ public class ProductService {
                 .map(product -> {
                     product.setIsActive(false); // Soft delete
                     productRepository.save(product);
+                    publishChange(tenantId);
                     return true;
                 })
                 .orElse(false);
     }
 
-    public List<Product> searchProducts(String tenantId, String searchTerm) {
-        return productRepository.findByTenantIdAndNameOrCategoryOrSkuContainingIgnoreCase(tenantId, searchTerm);
+    public KeysetPage<Product> searchProducts(String tenantId, String searchTerm, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(productRepository.findPageByTenantIdAndNameOrCategoryOrSkuContainingIgnoreCase(
+            tenantId, searchTerm, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
     }
 
-    public List<Product> getProductsByCategory(String tenantId, String category) {
-        return productRepository.findByTenantIdAndCategory(tenantId, category);
+    public KeysetPage<Product> getProductsByCategory(String tenantId, String category, String cursor, int size) {
+        KeysetPage.Cursor after = KeysetPage.Cursor.decode(cursor);
+        return page(productRepository.findPageByTenantIdAndCategory(
+            tenantId, category, after.getSortKey(), after.getId(), PageRequest.of(0, size + 1)), size);
+    }
+
+    private KeysetPage<Product> page(List<Product> rows, int size) {
+        return KeysetPage.of(rows, size, Product::getCreatedAt, Product::getId);
     }
 
     public List<Product> getLowStockProducts(String tenantId) {
@@ -124,16 +144,7 @@ public class ProductService {
         return productRepository.findDistinctCategoriesByTenantId(tenantId);
     }
 
-    // Update product statistics when orders change
-    public void updateProductStatistics(String tenantId, String productId, Integer quantity, Double revenue, boolean isNewSale) {
-        productRepository.findByTenantIdAndProductId(tenantId, productId)
-                .ifPresent(product -> {
-                    if (isNewSale) {
-                        product.setTotalSales(product.getTotalSales() + quantity);
-                        product.setTotalRevenue(product.getTotalRevenue() + revenue);
-                        product.setInventoryQuantity(product.getInventoryQuantity() - quantity);
-                    }
-                    productRepository.save(product);
-                });
+    private void publishChange(String tenantId) {
+        eventPublisher.publishEvent(new TenantDataChangedEvent(tenantId, TenantDataChangedEvent.DataType.PRODUCTS));
     }
 }
@@ -0,0 +1,302 @@
+package com.xeno.assignment.service;
+
+import com.xeno.assignment.entity.OrderItem;
+import com.xeno.shopify.event.ProductSoldEvent;
+import com.xeno.shopify.event.TenantDataChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind for the sales counters of assignment products: total_sales and
+ * total_revenue. inventory_quantity is still decremented in the order's transaction,
+ * since stock that lagged orders could be sold twice.
+ *
+ * Bumping the counters in place made every order of a popular product queue on that
+ * product's row lock. Instead an order appends its per-product deltas to
+ * product_stat_deltas in its own transaction; the insert waits on no other order, and
+ * the deltas commit or roll back with the order. A scheduled flush folds the logged
+ * deltas into assignment_products in batches and deletes exactly the rows it applied in
+ * the same transaction, so each delta is applied once, including the rows a crash leaves
+ * behind, which are flushed at startup. Product counters lag orders by up to one flush.
+ *
+ * Committed deltas not yet flushed are also summed in memory per product, in striped
+ * LongAdders fed after each order commits, so the backlog is visible as the
+ * products.stats.pending.units metric. They only cover this instance's orders, so a
+ * tick with nothing pending locally still checks the log for deltas written by other
+ * instances or whose commit hook never ran.
+ */
+@Service
+public class ProductStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductStatsService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${products.stats.batch-size:5000}")
+    private int batchSize;
+
+    private final ConcurrentHashMap<ProductKey, Pending> pending = new ConcurrentHashMap<>();
+
+    private TransactionTemplate flushTransaction;
+
+    @PostConstruct
+    public void init() {
+        // Read committed takes no gap locks, so a flush never blocks orders appending deltas
+        flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        Gauge.builder("products.stats.pending.units", this, ProductStatsService::pendingUnits)
+            .description("Units sold whose product counters have not been flushed yet")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Log an order's items as one delta per product and take the units out of inventory,
+     * in the order's transaction
+     */
+    public void recordSales(String tenantId, List<OrderItem> items) {
+        Map<String, Delta> sales = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getProduct() != null) {
+                sales.computeIfAbsent(item.getProduct().getProductId(), productId -> new Delta())
+                    .add(item.getQuantity() != null ? item.getQuantity() : 0,
+                        cents(item.getTotalPrice() != null ? item.getTotalPrice() : 0.0));
+            }
+        }
+        if (sales.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(sales.size());
+        sales.forEach((productId, sale) -> rows.add(new Object[] {
+            tenantId, productId, sale.quantity, BigDecimal.valueOf(sale.cents, 2)
+        }));
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO product_stat_deltas (tenant_id, product_id, quantity, revenue) VALUES (?, ?, ?, ?)", rows);
+
+        // In product id order, so two orders sharing products cannot deadlock on their rows
+        List<Object[]> stock = new ArrayList<>(sales.size());
+        sales.forEach((productId, sale) -> stock.add(new Object[] { sale.quantity, tenantId, productId }));
+        jdbcTemplate.batchUpdate("""
+            UPDATE assignment_products
+            SET inventory_quantity = COALESCE(inventory_quantity, 0) - ?
+            WHERE tenant_id = ? AND product_id = ?
+        """, stock);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSold(ProductSoldEvent event) {
+        Pending counters = pending.computeIfAbsent(new ProductKey(event.getTenantId(), event.getProductId()),
+            key -> new Pending());
+        counters.units.add(event.getQuantity());
+        counters.cents.add(cents(event.getRevenue()));
+    }
+
+    @Scheduled(fixedDelayString = "${products.stats.flush-ms:5000}")
+    public void flush() {
+        boolean idle = true;
+        for (Pending counters : pending.values()) {
+            if (counters.units.sum() != 0 || counters.cents.sum() != 0) {
+                idle = false;
+                break;
+            }
+        }
+        if (idle) {
+            // One index probe; finds deltas the local counters never saw
+            idle = jdbcTemplate.queryForList("SELECT 1 FROM product_stat_deltas LIMIT 1", Integer.class).isEmpty();
+        }
+        if (!idle) {
+            flushLog();
+        }
+    }
+
+    /**
+     * Apply the deltas a previous run logged but did not flush before it stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void flushOnStartup() {
+        flushLog();
+    }
+
+    private void flushLog() {
+        long started = System.currentTimeMillis();
+        int rows = 0;
+        int products = 0;
+        try {
+            while (true) {
+                FlushedBatch batch = flushTransaction.execute(status -> flushBatch());
+                if (batch == null) {
+                    break;
+                }
+                // Committed; what was applied is no longer pending
+                batch.deltas.forEach((key, delta) -> {
+                    Pending counters = pending.computeIfAbsent(key, k -> new Pending());
+                    counters.units.add(-delta.quantity);
+                    counters.cents.add(-delta.cents);
+                });
+                rows += batch.rows;
+                products += batch.deltas.size();
+                if (batch.rows < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error flushing product stat deltas: {}", e.getMessage(), e);
+        }
+
+        if (rows > 0) {
+            logger.debug("Flushed {} product stat deltas into {} product updates in {} ms",
+                rows, products, System.currentTimeMillis() - started);
+        }
+    }
+
+    private FlushedBatch flushBatch() {
+        Map<ProductKey, Delta> deltas = new TreeMap<>();
+        List<Object> ids = new ArrayList<>();
+        // SKIP LOCKED leaves rows another instance is flushing to that instance
+        jdbcTemplate.query("""
+            SELECT id, tenant_id, product_id, quantity, revenue
+            FROM product_stat_deltas
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        """, rs -> {
+            ids.add(rs.getLong("id"));
+            deltas.computeIfAbsent(new ProductKey(rs.getString("tenant_id"), rs.getString("product_id")),
+                key -> new Delta()).add(rs.getInt("quantity"), rs.getBigDecimal("revenue").movePointRight(2).longValue());
+        }, batchSize);
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        // Sorted by product, so concurrent flushes lock shared rows in the same order
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        Set<String> tenants = new TreeSet<>();
+        deltas.forEach((key, delta) -> {
+            updates.add(new Object[] {
+                delta.quantity, BigDecimal.valueOf(delta.cents, 2), now, key.tenantId, key.productId
+            });
+            tenants.add(key.tenantId);
+        });
+        jdbcTemplate.batchUpdate("""
+            UPDATE assignment_products
+            SET total_sales = COALESCE(total_sales, 0) + ?,
+                total_revenue = COALESCE(total_revenue, 0) + ?,
+                updated_at = ?
+            WHERE tenant_id = ? AND product_id = ?
+        """, updates);
+        jdbcTemplate.update(
+            "DELETE FROM product_stat_deltas WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+            ids.toArray());
+
+        for (String tenantId : tenants) {
+            eventPublisher.publishEvent(new TenantDataChangedEvent(tenantId, TenantDataChangedEvent.DataType.PRODUCTS));
+        }
+        return new FlushedBatch(ids.size(), deltas);
+    }
+
+    // Line revenue rounded the same way when logged and when counted as pending, so the
+    // pending cents of a product return to exactly zero once its deltas are flushed
+    private static long cents(double revenue) {
+        return Math.round(revenue * 100);
+    }
+
+    private long pendingUnits() {
+        long units = 0;
+        for (Pending counters : pending.values()) {
+            units += counters.units.sum();
+        }
+        return units;
+    }
+
+    private static final class ProductKey implements Comparable<ProductKey> {
+        final String tenantId;
+        final String productId;
+
+        ProductKey(String tenantId, String productId) {
+            this.tenantId = tenantId;
+            this.productId = productId;
+        }
+
+        @Override
+        public int compareTo(ProductKey other) {
+            int byTenant = tenantId.compareTo(other.tenantId);
+            return byTenant != 0 ? byTenant : productId.compareTo(other.productId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ProductKey other && tenantId.equals(other.tenantId) && productId.equals(other.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tenantId.hashCode() + productId.hashCode();
+        }
+    }
+
+    private static final class Delta {
+        int quantity;
+        long cents;
+
+        void add(int quantity, long cents) {
+            this.quantity += quantity;
+            this.cents += cents;
+        }
+    }
+
+    // Committed but unflushed; briefly negative when a flush wins the race with the commit hook
+    private static final class Pending {
+        final LongAdder units = new LongAdder();
+        final LongAdder cents = new LongAdder();
+    }
+
+    private static final class FlushedBatch {
+        final int rows;
+        final Map<ProductKey, Delta> deltas;
+
+        FlushedBatch(int rows, Map<ProductKey, Delta> deltas) {
+            this.rows = rows;
+            this.deltas = deltas;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.xeno.assignment.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a list sorted newest first on (timestamp, id), with an opaque cursor for
+ * the next page.
+ *
+ * Lists seek past the last row of the previous page instead of skipping an offset, so
+ * every page costs one index range read of the page size however deep it is. Queries
+ * fetch one row more than the page size; that row only tells whether a next page
+ * exists and is dropped. The cursor is the last row's sort key and id, Base64 encoded so
+ * clients treat it as a token rather than something to build.
+ */
+public class KeysetPage<T> {
+
+    /**
+     * Response header carrying the next page's cursor, so list bodies stay plain arrays
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // Sorts after every real row, so the first page uses the same query as the rest
+    private static final Cursor FIRST = new Cursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Trim rows fetched with a limit of size + 1 to a page of size
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, LocalDateTime> sortKey, Function<T, Long> id) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        T last = items.get(size - 1);
+        return new KeysetPage<>(items, new Cursor(sortKey.apply(last), id.apply(last)).encode());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Cursor of the next page, or null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Position after which a page starts
+     */
+    public static final class Cursor {
+        private final LocalDateTime sortKey;
+        private final long id;
+
+        private Cursor(LocalDateTime sortKey, long id) {
+            this.sortKey = sortKey;
+            this.id = id;
+        }
+
+        /**
+         * The cursor of a token from {@link KeysetPage#getNextCursor()}, or the start of
+         * the list for null
+         *
+         * @throws IllegalArgumentException if the token is not a cursor
+         */
+        public static Cursor decode(String token) {
+            if (token == null || token.isEmpty()) {
+                return FIRST;
+            }
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = value.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+        }
+
+        public LocalDateTime getSortKey() {
+            return sortKey;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        private String encode() {
+            String value = sortKey + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
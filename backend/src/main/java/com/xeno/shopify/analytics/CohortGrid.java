@@ -0,0 +1,114 @@
+package com.xeno.shopify.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Acquisition-cohort retention counts for one tenant.
+ *
+ * A customer's cohort is the month of their first order. Cell (cohort, k) counts the
+ * customers of that cohort who ordered in the k-th month after it, so k = 0 is the
+ * cohort's size. For every customer the grid keeps their order count per month; an
+ * order added or removed only touches the cells of that one customer, and only when the
+ * set of months they ordered in changes, so the grid stays exact under edits and
+ * deletes without ever joining orders against themselves. Months are numbered
+ * year * 12 + month - 1. Not thread-safe.
+ */
+public final class CohortGrid {
+
+    private final TreeMap<Integer, long[]> cohorts = new TreeMap<>();
+    private final Map<String, CustomerMonths> customers = new HashMap<>();
+
+    /**
+     * Add delta orders (negative to remove) for a customer in a month
+     */
+    public void apply(String customerKey, int month, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        CustomerMonths months = customers.computeIfAbsent(customerKey, key -> new CustomerMonths());
+        if (months.wouldChangeActiveMonths(month, delta)) {
+            contribute(months, -1);
+            months.add(month, delta);
+            contribute(months, 1);
+        } else {
+            months.add(month, delta);
+        }
+        if (months.size == 0) {
+            customers.remove(customerKey);
+        }
+    }
+
+    /**
+     * Cohort month to active customers per month offset; arrays are copies
+     */
+    public SortedMap<Integer, long[]> cells() {
+        SortedMap<Integer, long[]> copy = new TreeMap<>();
+        cohorts.forEach((cohort, row) -> copy.put(cohort, row.clone()));
+        return copy;
+    }
+
+    public int customerCount() {
+        return customers.size();
+    }
+
+    private void contribute(CustomerMonths months, int sign) {
+        if (months.size == 0) {
+            return;
+        }
+        int cohort = months.months[0];
+        int lastOffset = months.months[months.size - 1] - cohort;
+        long[] row = cohorts.get(cohort);
+        if (row == null || row.length <= lastOffset) {
+            row = row == null ? new long[lastOffset + 1] : Arrays.copyOf(row, lastOffset + 1);
+            cohorts.put(cohort, row);
+        }
+        for (int i = 0; i < months.size; i++) {
+            row[months.months[i] - cohort] += sign;
+        }
+        if (row[0] == 0) {
+            cohorts.remove(cohort);
+        }
+    }
+
+    // Order counts per month for one customer, in parallel sorted arrays
+    private static final class CustomerMonths {
+        int[] months = new int[2];
+        int[] counts = new int[2];
+        int size;
+
+        boolean wouldChangeActiveMonths(int month, int delta) {
+            int i = Arrays.binarySearch(months, 0, size, month);
+            return i < 0 ? delta > 0 : counts[i] + delta <= 0;
+        }
+
+        void add(int month, int delta) {
+            int i = Arrays.binarySearch(months, 0, size, month);
+            if (i >= 0) {
+                counts[i] += delta;
+                if (counts[i] <= 0) {
+                    System.arraycopy(months, i + 1, months, i, size - i - 1);
+                    System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+                    size--;
+                }
+                return;
+            }
+            if (delta <= 0) {
+                return;
+            }
+            int at = -(i + 1);
+            if (size == months.length) {
+                months = Arrays.copyOf(months, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(months, at, months, at + 1, size - at);
+            System.arraycopy(counts, at, counts, at + 1, size - at);
+            months[at] = month;
+            counts[at] = delta;
+            size++;
+        }
+    }
+}
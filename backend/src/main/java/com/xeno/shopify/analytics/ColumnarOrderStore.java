@@ -0,0 +1,498 @@
+package com.xeno.shopify.analytics;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One tenant's orders from one order table, held column by column off-heap.
+ *
+ * Each column is a direct buffer sized for the tenant and grown by half again when
+ * full, so order history adds nothing to the heap the garbage collector has to trace
+ * or copy. Rows are kept sorted by order id so an update or delete finds its row with
+ * a binary search and no per-row map is needed. Each order costs {@link #BYTES_PER_ORDER}
+ * bytes: id, version, epoch second and amount in cents (8 bytes each), a status code
+ * (1 byte) and a customer index (4 bytes), about 37 MB per million orders plus unused
+ * capacity. Status names and customer keys are dictionary-encoded on the heap once per
+ * distinct value.
+ *
+ * The version is the order_change_log id of the change a row reflects (0 when it came
+ * from a full load). A change older than the row is ignored, so live changes and a
+ * change-log replay can be applied in any interleaving and each order still ends up in
+ * its latest state.
+ *
+ * Deleted rows are tombstoned and dropped on the next reload or snapshot. Reads take a
+ * shared lock, so queries run concurrently and only block while a write is applied.
+ * {@link #release()} frees the native memory immediately; the store is unusable after.
+ */
+public class ColumnarOrderStore {
+
+    public static final int BYTES_PER_ORDER = 8 + 8 + 8 + 8 + 1 + 4;
+
+    private static final int MIN_CAPACITY = 1024;
+    // Largest row count whose 8-byte columns still fit in one buffer
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE >> 3;
+    private static final byte DELETED = -1;
+
+    private ByteBuffer orderIds;
+    private ByteBuffer versions;
+    private ByteBuffer epochSeconds;
+    private ByteBuffer amountCents;
+    private ByteBuffer statusCodes;
+    private ByteBuffer customerIndexes;
+    private int capacity;
+    private int size;
+    private int deleted;
+
+    private final List<String> statusNames = new ArrayList<>();
+    private final Map<String, Byte> statusCodesByName = new HashMap<>();
+    private final Map<String, Integer> customerIndexesByKey = new HashMap<>();
+    private final Set<Long> removedBeforeLoad = new HashSet<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded;
+    private boolean released;
+
+    public ColumnarOrderStore() {
+        this(MIN_CAPACITY);
+    }
+
+    public ColumnarOrderStore(int expectedOrders) {
+        allocate(Math.min(Math.max(expectedOrders, MIN_CAPACITY), MAX_CAPACITY));
+    }
+
+    /**
+     * Insert or replace an order unless the stored row is newer. A null customer key is
+     * stored as index -1.
+     */
+    public void upsert(long orderId, long version, long epochSecond, long cents, String status, String customerKey) {
+        lock.writeLock().lock();
+        try {
+            if (released) {
+                return;
+            }
+            int row = size == 0 || orderId > orderId(size - 1) ? -(size + 1) : search(orderId);
+            if (row < 0) {
+                row = -(row + 1);
+                ensureCapacity(size + 1);
+                if (row < size) {
+                    shift(row);
+                }
+                orderIds.putLong(row << 3, orderId);
+                size++;
+            } else if (version < versions.getLong(row << 3)) {
+                return;
+            } else if (statusCodes.get(row) == DELETED) {
+                deleted--;
+            }
+            versions.putLong(row << 3, version);
+            epochSeconds.putLong(row << 3, epochSecond);
+            amountCents.putLong(row << 3, cents);
+            statusCodes.put(row, statusCode(status));
+            customerIndexes.putInt(row << 2, customerKey != null ?
+                customerIndexesByKey.computeIfAbsent(customerKey, key -> customerIndexesByKey.size()) : -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a row read by the initial load. Rows already written by live changes, or
+     * deleted while the load was running, are newer than the load and are kept as is.
+     */
+    public void loadRow(long orderId, long epochSecond, long cents, String status, String customerKey) {
+        lock.writeLock().lock();
+        try {
+            if (released || removedBeforeLoad.contains(orderId) || search(orderId) >= 0) {
+                return;
+            }
+            upsert(orderId, 0L, epochSecond, cents, status, customerKey);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstone an order unless the stored row is newer
+     *
+     * @return false if the order was not present
+     */
+    public boolean remove(long orderId, long version) {
+        lock.writeLock().lock();
+        try {
+            if (released) {
+                return false;
+            }
+            int row = search(orderId);
+            if (row < 0 || statusCodes.get(row) == DELETED) {
+                if (!loaded) {
+                    removedBeforeLoad.add(orderId);
+                }
+                return false;
+            }
+            if (version < versions.getLong(row << 3)) {
+                return false;
+            }
+            versions.putLong(row << 3, version);
+            statusCodes.put(row, DELETED);
+            deleted++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long orderId) {
+        lock.readLock().lock();
+        try {
+            if (released) {
+                return false;
+            }
+            int row = search(orderId);
+            return row >= 0 && statusCodes.get(row) != DELETED;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add each order with the given status, or each live order if status is null, into
+     * the bucket [boundaries[b], boundaries[b + 1]) its timestamp falls in; boundaries
+     * must be ascending
+     */
+    public void sumByBucket(String status, long[] boundaries, long[] counts, long[] cents) {
+        lock.readLock().lock();
+        try {
+            checkNotReleased();
+            Byte statusCode = status != null ? statusCodesByName.get(status) : null;
+            if (status != null && statusCode == null) {
+                return;
+            }
+            long from = boundaries[0];
+            long to = boundaries[boundaries.length - 1];
+            for (int i = 0; i < size; i++) {
+                long second = epochSeconds.getLong(i << 3);
+                byte code = statusCodes.get(i);
+                if ((statusCode != null ? code == statusCode : code != DELETED) && second >= from && second < to) {
+                    int bucket = Arrays.binarySearch(boundaries, second);
+                    bucket = bucket >= 0 ? bucket : -(bucket + 1) - 1;
+                    counts[bucket]++;
+                    cents[bucket] += amountCents.getLong(i << 3);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live orders per status name
+     */
+    public Map<String, Long> countByStatus() {
+        lock.readLock().lock();
+        try {
+            checkNotReleased();
+            long[] counts = new long[statusNames.size()];
+            for (int i = 0; i < size; i++) {
+                byte code = statusCodes.get(i);
+                if (code != DELETED) {
+                    counts[code]++;
+                }
+            }
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.put(statusNames.get(code), counts[code]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return size - deleted;
+    }
+
+    /**
+     * Native bytes held by the columns, including unused capacity
+     */
+    public long memoryBytes() {
+        return (long) capacity * BYTES_PER_ORDER;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void markLoaded() {
+        lock.writeLock().lock();
+        try {
+            loaded = true;
+            removedBeforeLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the live rows and dictionaries to out, tombstones left behind. Columns are
+     * written as raw native-order bytes so {@link #readFrom(ByteBuffer)} can copy them
+     * straight back with bulk transfers. The rows are first copied aside under the read
+     * lock, so writers are held up for a memory copy rather than for the file write.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        ColumnarOrderStore copy = compactCopy();
+        try {
+            out.writeInt(copy.size);
+            out.writeInt(copy.statusNames.size());
+            for (String name : copy.statusNames) {
+                writeString(out, name);
+            }
+            String[] customerKeys = new String[copy.customerIndexesByKey.size()];
+            copy.customerIndexesByKey.forEach((key, index) -> customerKeys[index] = key);
+            out.writeInt(customerKeys.length);
+            for (String key : customerKeys) {
+                writeString(out, key);
+            }
+            writeColumn(out, copy.orderIds, copy.size, 8);
+            writeColumn(out, copy.versions, copy.size, 8);
+            writeColumn(out, copy.epochSeconds, copy.size, 8);
+            writeColumn(out, copy.amountCents, copy.size, 8);
+            writeColumn(out, copy.statusCodes, copy.size, 1);
+            writeColumn(out, copy.customerIndexes, copy.size, 4);
+        } finally {
+            copy.release();
+        }
+    }
+
+    /**
+     * Build a store from bytes written by {@link #writeTo(DataOutputStream)}, typically a
+     * memory-mapped snapshot file. The store is not marked loaded.
+     */
+    public static ColumnarOrderStore readFrom(ByteBuffer in) {
+        int rows = in.getInt();
+        List<String> statuses = new ArrayList<>();
+        int statusCount = in.getInt();
+        for (int i = 0; i < statusCount; i++) {
+            statuses.add(readString(in));
+        }
+        int customerCount = in.getInt();
+        String[] customerKeys = new String[customerCount];
+        for (int i = 0; i < customerCount; i++) {
+            customerKeys[i] = readString(in);
+        }
+
+        ColumnarOrderStore store = new ColumnarOrderStore(rows + rows / 8);
+        readColumn(in, store.orderIds, rows, 8);
+        readColumn(in, store.versions, rows, 8);
+        readColumn(in, store.epochSeconds, rows, 8);
+        readColumn(in, store.amountCents, rows, 8);
+        readColumn(in, store.statusCodes, rows, 1);
+        readColumn(in, store.customerIndexes, rows, 4);
+        store.size = rows;
+
+        for (String status : statuses) {
+            store.statusCode(status);
+        }
+        for (int i = 0; i < customerCount; i++) {
+            store.customerIndexesByKey.put(customerKeys[i], i);
+        }
+        return store;
+    }
+
+    /**
+     * Free the columns' native memory. Waits for running queries to finish first.
+     */
+    public void release() {
+        lock.writeLock().lock();
+        try {
+            if (released) {
+                return;
+            }
+            released = true;
+            freeColumns();
+            size = 0;
+            deleted = 0;
+            capacity = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Live rows only, with fresh dictionaries carrying the same codes
+    private ColumnarOrderStore compactCopy() {
+        lock.readLock().lock();
+        try {
+            checkNotReleased();
+            ColumnarOrderStore copy = new ColumnarOrderStore(size - deleted);
+            copy.statusNames.addAll(statusNames);
+            copy.statusCodesByName.putAll(statusCodesByName);
+            copy.customerIndexesByKey.putAll(customerIndexesByKey);
+            int row = 0;
+            for (int i = 0; i < size; i++) {
+                if (statusCodes.get(i) == DELETED) {
+                    continue;
+                }
+                copy.orderIds.putLong(row << 3, orderIds.getLong(i << 3));
+                copy.versions.putLong(row << 3, versions.getLong(i << 3));
+                copy.epochSeconds.putLong(row << 3, epochSeconds.getLong(i << 3));
+                copy.amountCents.putLong(row << 3, amountCents.getLong(i << 3));
+                copy.statusCodes.put(row, statusCodes.get(i));
+                copy.customerIndexes.putInt(row << 2, customerIndexes.getInt(i << 2));
+                row++;
+            }
+            copy.size = row;
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void writeColumn(DataOutputStream out, ByteBuffer column, int rows, int width) throws IOException {
+        byte[] staging = new byte[64 * 1024];
+        int length = rows * width;
+        for (int offset = 0; offset < length; offset += staging.length) {
+            int chunk = Math.min(staging.length, length - offset);
+            column.get(offset, staging, 0, chunk);
+            out.write(staging, 0, chunk);
+        }
+    }
+
+    private static void readColumn(ByteBuffer in, ByteBuffer column, int rows, int width) {
+        int length = rows * width;
+        column.put(0, in, in.position(), length);
+        in.position(in.position() + length);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Order store has been released");
+        }
+    }
+
+    private long orderId(int row) {
+        return orderIds.getLong(row << 3);
+    }
+
+    private int search(long orderId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = orderId(mid);
+            if (midId < orderId) {
+                low = mid + 1;
+            } else if (midId > orderId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private byte statusCode(String status) {
+        Byte code = statusCodesByName.get(status);
+        if (code == null) {
+            if (statusNames.size() == Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct order statuses");
+            }
+            code = (byte) statusNames.size();
+            statusNames.add(status);
+            statusCodesByName.put(status, code);
+        }
+        return code;
+    }
+
+    private void allocate(int newCapacity) {
+        orderIds = DirectBuffers.allocate((long) newCapacity << 3);
+        versions = DirectBuffers.allocate((long) newCapacity << 3);
+        epochSeconds = DirectBuffers.allocate((long) newCapacity << 3);
+        amountCents = DirectBuffers.allocate((long) newCapacity << 3);
+        statusCodes = DirectBuffers.allocate(newCapacity);
+        customerIndexes = DirectBuffers.allocate((long) newCapacity << 2);
+        capacity = newCapacity;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        ByteBuffer oldIds = orderIds;
+        ByteBuffer oldVersions = versions;
+        ByteBuffer oldSeconds = epochSeconds;
+        ByteBuffer oldCents = amountCents;
+        ByteBuffer oldStatuses = statusCodes;
+        ByteBuffer oldCustomers = customerIndexes;
+
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("Order store is full at " + MAX_CAPACITY + " orders");
+        }
+        allocate((int) Math.min((long) capacity + (capacity >> 1), MAX_CAPACITY));
+        orderIds.put(0, oldIds, 0, size << 3);
+        versions.put(0, oldVersions, 0, size << 3);
+        epochSeconds.put(0, oldSeconds, 0, size << 3);
+        amountCents.put(0, oldCents, 0, size << 3);
+        statusCodes.put(0, oldStatuses, 0, size);
+        customerIndexes.put(0, oldCustomers, 0, size << 2);
+
+        DirectBuffers.free(oldIds);
+        DirectBuffers.free(oldVersions);
+        DirectBuffers.free(oldSeconds);
+        DirectBuffers.free(oldCents);
+        DirectBuffers.free(oldStatuses);
+        DirectBuffers.free(oldCustomers);
+    }
+
+    // Open a slot at row; only needed when commits arrive out of id order
+    private void shift(int row) {
+        for (int i = size; i > row; i--) {
+            orderIds.putLong(i << 3, orderIds.getLong((i - 1) << 3));
+            versions.putLong(i << 3, versions.getLong((i - 1) << 3));
+            epochSeconds.putLong(i << 3, epochSeconds.getLong((i - 1) << 3));
+            amountCents.putLong(i << 3, amountCents.getLong((i - 1) << 3));
+            statusCodes.put(i, statusCodes.get(i - 1));
+            customerIndexes.putInt(i << 2, customerIndexes.getInt((i - 1) << 2));
+        }
+    }
+
+    private void freeColumns() {
+        DirectBuffers.free(orderIds);
+        DirectBuffers.free(versions);
+        DirectBuffers.free(epochSeconds);
+        DirectBuffers.free(amountCents);
+        DirectBuffers.free(statusCodes);
+        DirectBuffers.free(customerIndexes);
+        orderIds = null;
+        versions = null;
+        epochSeconds = null;
+        amountCents = null;
+        statusCodes = null;
+        customerIndexes = null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.xeno.shopify.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Allocation and explicit release of direct buffers.
+ *
+ * A direct buffer's native memory is normally returned only after the buffer object
+ * is garbage collected, which for a long-lived, rarely collected buffer can be much
+ * later than the caller is done with it. {@link #free(ByteBuffer)} releases it right
+ * away through the JDK's buffer cleaner; if that is not accessible the memory is left
+ * to the garbage collector as usual. A freed buffer must never be touched again.
+ */
+public final class DirectBuffers {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectBuffers.class);
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            logger.warn("Direct buffers will be released by the garbage collector: {}", e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectBuffers() {
+    }
+
+    public static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Direct buffer larger than 2 GB requested: " + bytes);
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    public static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            logger.debug("Could not release direct buffer: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.xeno.shopify.analytics;
+
+/**
+ * Log-linear latency buckets in the style of HdrHistogram, over whole seconds.
+ *
+ * Durations under {@link #SUB_BUCKETS} seconds get a bucket each; above that every
+ * power of two is split into {@link #SUB_BUCKETS} equal buckets, so a bucket is never
+ * wider than 1/32 (about 3%) of the values in it. The range runs past a century in
+ * {@link #BUCKETS} buckets. Because bucket boundaries are fixed, histograms merge by
+ * adding counts bucket by bucket, which is how daily histograms combine over a range.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 31;
+    public static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public static int bucketOf(long seconds) {
+        long value = Math.max(0, Math.min(seconds, (1L << (MAX_MAGNITUDE + 1)) - 1));
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * Largest duration that falls in the bucket
+     */
+    public static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long top = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public void record(long seconds) {
+        add(bucketOf(seconds), 1);
+    }
+
+    public void add(int bucket, long count) {
+        counts[bucket] += count;
+        total += count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Smallest recorded duration that at least the given share of values do not
+     * exceed, as the upper bound of its bucket; 0 when empty
+     *
+     * @param percentile between 0 and 100
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return upperBound(bucket);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,210 @@
+package com.xeno.shopify.analytics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Members ranked by score, highest first and by id on ties.
+ *
+ * Held in a treap whose nodes count the members beneath them, so updating a score,
+ * finding a member's rank and reaching the top of the board are all O(log n) expected,
+ * and listing the top n costs O(log n + n). Scores are whole numbers, e.g. cents.
+ * Methods are synchronized; reads are short and writes rare next to them.
+ */
+public final class Leaderboard {
+
+    private static final class Node {
+        final long id;
+        final long score;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(long id, long score) {
+            this.id = id;
+            this.score = score;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Map<Long, Long> scores = new HashMap<>();
+    private Node root;
+
+    /**
+     * Add a member or move it to a new score
+     */
+    public synchronized void put(long id, long score) {
+        Long current = scores.put(id, score);
+        if (current != null) {
+            if (current == score) {
+                return;
+            }
+            root = delete(root, current, id);
+        }
+        root = insert(root, new Node(id, score));
+    }
+
+    /**
+     * Add a member that is not on the board yet; an existing score is left alone
+     */
+    public synchronized boolean putIfAbsent(long id, long score) {
+        if (scores.containsKey(id)) {
+            return false;
+        }
+        put(id, score);
+        return true;
+    }
+
+    public synchronized void remove(long id) {
+        Long current = scores.remove(id);
+        if (current != null) {
+            root = delete(root, current, id);
+        }
+    }
+
+    public synchronized Long score(long id) {
+        return scores.get(id);
+    }
+
+    /**
+     * 1-based position of the member, or 0 if it is not on the board
+     */
+    public synchronized int rank(long id) {
+        Long score = scores.get(id);
+        if (score == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int order = compare(score, id, node);
+            if (order < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                if (order == 0) {
+                    return rank;
+                }
+                node = node.right;
+            }
+        }
+        throw new IllegalStateException("Leaderboard member missing from tree: " + id);
+    }
+
+    /**
+     * The first n members as {id, score}, best first
+     */
+    public synchronized List<long[]> top(int n) {
+        List<long[]> top = new ArrayList<>(Math.min(n, scores.size()));
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (top.size() < n && (node != null || !path.isEmpty())) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            top.add(new long[] { node.id, node.score });
+            node = node.right;
+        }
+        return top;
+    }
+
+    public synchronized int size() {
+        return scores.size();
+    }
+
+    // Negative when (score, id) ranks before the node
+    private static int compare(long score, long id, Node node) {
+        if (score != node.score) {
+            return score > node.score ? -1 : 1;
+        }
+        return Long.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.score, added.id);
+            added.left = parts[0];
+            added.right = parts[1];
+            update(added);
+            return added;
+        }
+        if (compare(added.score, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, long score, long id) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(score, id, node);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            node.left = delete(node.left, score, id);
+        } else {
+            node.right = delete(node.right, score, id);
+        }
+        update(node);
+        return node;
+    }
+
+    // Nodes ranking before (score, id), and the rest
+    private static Node[] split(Node node, long score, long id) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(score, id, node) > 0) {
+            Node[] parts = split(node.right, score, id);
+            node.right = parts[0];
+            update(node);
+            return new Node[] { node, parts[1] };
+        }
+        Node[] parts = split(node.left, score, id);
+        node.left = parts[1];
+        update(node);
+        return new Node[] { parts[0], node };
+    }
+
+    // Every node of left ranks before every node of right
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+}
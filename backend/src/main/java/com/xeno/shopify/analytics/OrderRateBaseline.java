@@ -0,0 +1,302 @@
+package com.xeno.shopify.analytics;
+
+import java.util.List;
+
+/**
+ * Seasonal baseline of one tenant's order and revenue rate, for spotting intervals that
+ * deviate sharply from the usual level at that time of week.
+ *
+ * Orders are counted into fixed intervals of a few minutes. When an interval closes it
+ * is scored against an exponentially weighted mean and variance kept for its hour of the
+ * week (in UTC), then folded into them, so each order costs O(1) and a tenant's whole
+ * state is a few kilobytes of floats. Counts are compared after the Anscombe transform,
+ * which makes Poisson counts roughly normal with unit variance, so a silent interval
+ * where ten orders were expected scores as strongly as it should; the score is widened
+ * when the slot is more variable than Poisson. Revenue uses a plain z-score with a floor
+ * derived from the mean order value. An anomalous interval is folded in clipped to the
+ * threshold, so an outage does not teach the baseline that silence is normal, while a
+ * lasting change of level is still learned over a few weeks.
+ *
+ * Instances are thread-safe.
+ */
+public final class OrderRateBaseline {
+
+    public static final int SLOTS = 7 * 24;
+
+    // 1970-01-01 was a Thursday; slot 0 is Monday 00:00 UTC
+    private static final long EPOCH_HOUR_OF_WEEK = 3 * 24;
+
+    private static final double ANSCOMBE = 3.0 / 8.0;
+
+    /**
+     * Tuning shared by every tenant's baseline
+     */
+    public static final class Settings {
+        private final long intervalSeconds;
+        private final float alpha;
+        private final double threshold;
+        private final int warmup;
+
+        /**
+         * @param intervalSeconds length of a scored interval; must divide an hour
+         * @param alpha weight of each new interval in its slot's mean and variance
+         * @param threshold absolute score at which an interval is anomalous
+         * @param warmup intervals a slot must have seen before it is scored
+         */
+        public Settings(long intervalSeconds, double alpha, double threshold, int warmup) {
+            if (intervalSeconds <= 0 || 3600 % intervalSeconds != 0) {
+                throw new IllegalArgumentException("Interval must divide an hour: " + intervalSeconds + " s");
+            }
+            this.intervalSeconds = intervalSeconds;
+            this.alpha = (float) alpha;
+            this.threshold = threshold;
+            this.warmup = Math.min(warmup, Byte.MAX_VALUE);
+        }
+
+        public long getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        // Intervals in a week, the most worth replaying after a gap
+        int intervalsPerWeek() {
+            return (int) (SLOTS * 3600 / intervalSeconds);
+        }
+    }
+
+    public enum Metric {
+        ORDERS, REVENUE
+    }
+
+    public enum Direction {
+        SPIKE, DROP
+    }
+
+    /**
+     * One metric of one interval that scored beyond the threshold
+     */
+    public static final class Anomaly {
+        private final Metric metric;
+        private final Direction direction;
+        private final long intervalStart;
+        private final double observed;
+        private final double expected;
+        private final double score;
+
+        Anomaly(Metric metric, long intervalStart, double observed, double expected, double score) {
+            this.metric = metric;
+            this.direction = score > 0 ? Direction.SPIKE : Direction.DROP;
+            this.intervalStart = intervalStart;
+            this.observed = observed;
+            this.expected = expected;
+            this.score = score;
+        }
+
+        public Metric getMetric() {
+            return metric;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * Epoch second the interval started
+         */
+        public long getIntervalStart() {
+            return intervalStart;
+        }
+
+        /**
+         * Orders, or revenue in cents
+         */
+        public double getObserved() {
+            return observed;
+        }
+
+        public double getExpected() {
+            return expected;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The interval being counted and what the baseline expects of it
+     */
+    public static final class Expectation {
+        private final long intervalStart;
+        private final long orders;
+        private final long cents;
+        private final double expectedOrders;
+        private final double expectedCents;
+        private final boolean warm;
+
+        Expectation(long intervalStart, long orders, long cents, double expectedOrders, double expectedCents, boolean warm) {
+            this.intervalStart = intervalStart;
+            this.orders = orders;
+            this.cents = cents;
+            this.expectedOrders = expectedOrders;
+            this.expectedCents = expectedCents;
+            this.warm = warm;
+        }
+
+        public long getIntervalStart() {
+            return intervalStart;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        public long getCents() {
+            return cents;
+        }
+
+        public double getExpectedOrders() {
+            return expectedOrders;
+        }
+
+        public double getExpectedCents() {
+            return expectedCents;
+        }
+
+        /**
+         * Whether the slot has seen enough intervals to be scored
+         */
+        public boolean isWarm() {
+            return warm;
+        }
+    }
+
+    private final Settings settings;
+    private final float[] orderMean = new float[SLOTS];
+    private final float[] orderVariance = new float[SLOTS];
+    private final float[] revenueMean = new float[SLOTS];
+    private final float[] revenueVariance = new float[SLOTS];
+    private final byte[] seen = new byte[SLOTS];
+
+    // Interval being counted, as epoch seconds / intervalSeconds; -1 before the first
+    private long interval = -1;
+    private int orders;
+    private long cents;
+
+    public OrderRateBaseline(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Count orders at the given time, first closing the intervals that ended before it.
+     * Anomalies found while closing are added to out; with a null out the baseline only
+     * learns, which is how history is replayed.
+     */
+    public synchronized void record(long epochSecond, int orderCount, long orderCents, List<Anomaly> out) {
+        advance(epochSecond, out);
+        orders += orderCount;
+        cents += orderCents;
+    }
+
+    /**
+     * Close every interval that ended at or before the given time, scoring each one
+     */
+    public synchronized void advance(long epochSecond, List<Anomaly> out) {
+        long now = epochSecond / settings.intervalSeconds;
+        if (interval < 0) {
+            interval = now;
+            return;
+        }
+        if (now <= interval) {
+            return;
+        }
+        close(out);
+        // Silent intervals after a long gap add nothing once every slot has seen one
+        long skipTo = Math.max(interval + 1, now - settings.intervalsPerWeek());
+        for (interval = skipTo; interval < now; interval++) {
+            close(out);
+        }
+        interval = now;
+    }
+
+    /**
+     * Carry the interval being counted over from another baseline of the same tenant,
+     * such as the one live events went to while this one was replaying history
+     */
+    public void carryOver(OrderRateBaseline live) {
+        synchronized (live) {
+            synchronized (this) {
+                if (live.interval >= interval) {
+                    interval = live.interval;
+                    orders = live.orders;
+                    cents = live.cents;
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders and revenue counted so far in the current interval, with what the baseline
+     * expects for the whole interval
+     */
+    public synchronized Expectation current() {
+        int slot = slot(Math.max(interval, 0));
+        return new Expectation(Math.max(interval, 0) * settings.intervalSeconds, orders, cents,
+            orderMean[slot], revenueMean[slot], seen[slot] >= settings.warmup);
+    }
+
+    private void close(List<Anomaly> out) {
+        int slot = slot(interval);
+        double x = orders;
+        double r = cents;
+        double threshold = settings.threshold;
+
+        if (seen[slot] > 0) {
+            double mean = orderMean[slot];
+            double dispersion = Math.sqrt(Math.max(1.0, orderVariance[slot] / Math.max(mean, 1e-3)));
+            double score = 2 * (Math.sqrt(x + ANSCOMBE) - Math.sqrt(mean + ANSCOMBE)) / dispersion;
+            if (Math.abs(score) >= threshold) {
+                if (out != null && seen[slot] >= settings.warmup) {
+                    out.add(new Anomaly(Metric.ORDERS, interval * settings.intervalSeconds, x, mean, score));
+                }
+                double bound = Math.sqrt(mean + ANSCOMBE) + Math.signum(score) * threshold * dispersion / 2;
+                x = Math.max(0, bound > 0 ? bound * bound - ANSCOMBE : 0);
+            }
+
+            double revenue = revenueMean[slot];
+            double sd = Math.sqrt(Math.max(revenueVariance[slot], revenue * revenue / Math.max(mean, 1.0)));
+            if (sd > 0) {
+                double revenueScore = (r - revenue) / sd;
+                if (Math.abs(revenueScore) >= threshold) {
+                    if (out != null && seen[slot] >= settings.warmup) {
+                        out.add(new Anomaly(Metric.REVENUE, interval * settings.intervalSeconds, r, revenue, revenueScore));
+                    }
+                    r = Math.max(0, revenue + Math.signum(revenueScore) * threshold * sd);
+                }
+            }
+        }
+
+        update(orderMean, orderVariance, slot, x);
+        update(revenueMean, revenueVariance, slot, r);
+        if (seen[slot] < Byte.MAX_VALUE) {
+            seen[slot]++;
+        }
+        orders = 0;
+        cents = 0;
+    }
+
+    private void update(float[] means, float[] variances, int slot, double value) {
+        if (seen[slot] == 0) {
+            means[slot] = (float) value;
+            variances[slot] = 0;
+            return;
+        }
+        double diff = value - means[slot];
+        double increment = settings.alpha * diff;
+        means[slot] += (float) increment;
+        variances[slot] = (float) ((1 - settings.alpha) * (variances[slot] + diff * increment));
+    }
+
+    private int slot(long interval) {
+        return (int) ((interval * settings.intervalSeconds / 3600 + EPOCH_HOUR_OF_WEEK) % SLOTS);
+    }
+}
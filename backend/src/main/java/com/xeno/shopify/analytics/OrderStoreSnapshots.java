@@ -0,0 +1,116 @@
+package com.xeno.shopify.analytics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Snapshot files for {@link ColumnarOrderStore}.
+ *
+ * A file holds a header (magic, format version, byte order, change log offset and the
+ * time it was taken), the store as written by {@link ColumnarOrderStore#writeTo} and a
+ * trailer. It is written to a temporary file and moved into place, so a crash leaves
+ * the previous snapshot intact. Reading maps the file and bulk-copies the columns into
+ * a new store; a file written under a different format version or byte order, or one
+ * that is cut short, is rejected and the caller falls back to a full load.
+ */
+public final class OrderStoreSnapshots {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x584F5353; // "XOSS"
+    private static final int TRAILER = 0x454E4421; // "END!"
+
+    private OrderStoreSnapshots() {
+    }
+
+    public static void write(Path file, ColumnarOrderStore store, long changeLogOffset) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeBoolean(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
+            out.writeLong(changeLogOffset);
+            out.writeLong(System.currentTimeMillis());
+            store.writeTo(out);
+            out.writeInt(TRAILER);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restore a store from a snapshot file. The store is not marked loaded.
+     */
+    public static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            try {
+                if (in.getInt() != MAGIC) {
+                    throw new IOException("Not an order store snapshot: " + file);
+                }
+                int version = in.getInt();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported snapshot format version " + version + ": " + file);
+                }
+                boolean bigEndian = in.get() != 0;
+                if (bigEndian != (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN)) {
+                    throw new IOException("Snapshot written with a different byte order: " + file);
+                }
+                long changeLogOffset = in.getLong();
+                long takenAtMillis = in.getLong();
+
+                ColumnarOrderStore store;
+                try {
+                    store = ColumnarOrderStore.readFrom(in);
+                } catch (RuntimeException e) {
+                    throw new IOException("Corrupt snapshot " + file + ": " + e.getMessage(), e);
+                }
+                if (in.remaining() < 4 || in.getInt() != TRAILER) {
+                    store.release();
+                    throw new IOException("Truncated snapshot: " + file);
+                }
+                return new Snapshot(store, changeLogOffset, takenAtMillis);
+            } finally {
+                DirectBuffers.free(in);
+            }
+        }
+    }
+
+    public static class Snapshot {
+
+        private final ColumnarOrderStore store;
+        private final long changeLogOffset;
+        private final long takenAtMillis;
+
+        Snapshot(ColumnarOrderStore store, long changeLogOffset, long takenAtMillis) {
+            this.store = store;
+            this.changeLogOffset = changeLogOffset;
+            this.takenAtMillis = takenAtMillis;
+        }
+
+        public ColumnarOrderStore getStore() {
+            return store;
+        }
+
+        public long getChangeLogOffset() {
+            return changeLogOffset;
+        }
+
+        public long getTakenAtMillis() {
+            return takenAtMillis;
+        }
+    }
+}
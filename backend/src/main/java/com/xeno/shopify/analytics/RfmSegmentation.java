@@ -0,0 +1,200 @@
+package com.xeno.shopify.analytics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recency/Frequency/Monetary scoring over primitive columns, one entry per customer.
+ *
+ * Each metric is split into quintiles: the three columns are sorted in parallel and the
+ * upper bound of each of the first four quintiles is kept as a boundary. Scores run from
+ * 1 to 5, 5 being best, which for recency means the fewest days since the last order.
+ * A value equal to a boundary falls in the lower quintile, so a metric most customers
+ * share (a single order, say) scores them low instead of spreading them over several
+ * scores. The scoring pass is split into ranges on the given pool, each range counting
+ * its own segments, and the counts are summed on the way back up.
+ */
+public final class RfmSegmentation {
+
+    private static final int QUINTILES = 5;
+    private static final int SEQUENTIAL_THRESHOLD = 16_384;
+
+    public enum Segment {
+        CHAMPIONS, LOYAL_CUSTOMERS, POTENTIAL_LOYALISTS, NEW_CUSTOMERS, PROMISING,
+        NEED_ATTENTION, ABOUT_TO_SLEEP, AT_RISK, CANNOT_LOSE_THEM, HIBERNATING
+    }
+
+    // Segment by recency score (row) and the mean of the frequency and monetary scores
+    // (column), the usual RFM grid with hibernating customers in the low corner
+    private static final Segment[][] GRID = {
+        { Segment.HIBERNATING, Segment.HIBERNATING, Segment.AT_RISK, Segment.AT_RISK, Segment.CANNOT_LOSE_THEM },
+        { Segment.HIBERNATING, Segment.HIBERNATING, Segment.AT_RISK, Segment.AT_RISK, Segment.CANNOT_LOSE_THEM },
+        { Segment.ABOUT_TO_SLEEP, Segment.ABOUT_TO_SLEEP, Segment.NEED_ATTENTION, Segment.LOYAL_CUSTOMERS, Segment.LOYAL_CUSTOMERS },
+        { Segment.PROMISING, Segment.POTENTIAL_LOYALISTS, Segment.POTENTIAL_LOYALISTS, Segment.LOYAL_CUSTOMERS, Segment.LOYAL_CUSTOMERS },
+        { Segment.NEW_CUSTOMERS, Segment.POTENTIAL_LOYALISTS, Segment.POTENTIAL_LOYALISTS, Segment.CHAMPIONS, Segment.CHAMPIONS }
+    };
+
+    private RfmSegmentation() {}
+
+    /**
+     * Score the first size entries of the columns
+     *
+     * @param recencyDays days since each customer's last order, Long.MAX_VALUE for none
+     * @param frequency orders per customer
+     * @param monetary spend per customer in cents
+     */
+    public static Result score(long[] recencyDays, long[] frequency, long[] monetary, int size, ForkJoinPool pool) {
+        Result result = new Result(size);
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(
+                    new Boundaries(recencyDays, size, result.recencyBounds),
+                    new Boundaries(frequency, size, result.frequencyBounds),
+                    new Boundaries(monetary, size, result.monetaryBounds));
+            }
+        });
+        long[] counts = pool.invoke(new ScoreRange(recencyDays, frequency, monetary, result, 0, size));
+        System.arraycopy(counts, 0, result.segmentCounts, 0, counts.length);
+        return result;
+    }
+
+    public static final class Result {
+        private final byte[] recencyScores;
+        private final byte[] frequencyScores;
+        private final byte[] monetaryScores;
+        private final byte[] segments;
+        private final long[] recencyBounds = new long[QUINTILES - 1];
+        private final long[] frequencyBounds = new long[QUINTILES - 1];
+        private final long[] monetaryBounds = new long[QUINTILES - 1];
+        private final long[] segmentCounts = new long[Segment.values().length];
+
+        private Result(int size) {
+            recencyScores = new byte[size];
+            frequencyScores = new byte[size];
+            monetaryScores = new byte[size];
+            segments = new byte[size];
+        }
+
+        public int getRecencyScore(int i) {
+            return recencyScores[i];
+        }
+
+        public int getFrequencyScore(int i) {
+            return frequencyScores[i];
+        }
+
+        public int getMonetaryScore(int i) {
+            return monetaryScores[i];
+        }
+
+        public Segment getSegment(int i) {
+            return Segment.values()[segments[i]];
+        }
+
+        /**
+         * Upper bounds of the first four quintiles, ascending
+         */
+        public long[] getRecencyBounds() {
+            return recencyBounds.clone();
+        }
+
+        public long[] getFrequencyBounds() {
+            return frequencyBounds.clone();
+        }
+
+        public long[] getMonetaryBounds() {
+            return monetaryBounds.clone();
+        }
+
+        public long getSegmentCount(Segment segment) {
+            return segmentCounts[segment.ordinal()];
+        }
+    }
+
+    private static final class Boundaries extends RecursiveAction {
+        private final long[] values;
+        private final int size;
+        private final long[] bounds;
+
+        Boundaries(long[] values, int size, long[] bounds) {
+            this.values = values;
+            this.size = size;
+            this.bounds = bounds;
+        }
+
+        @Override
+        protected void compute() {
+            if (size == 0) {
+                return;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            for (int k = 1; k < QUINTILES; k++) {
+                bounds[k - 1] = sorted[Math.max(0, (int) ((long) k * size / QUINTILES) - 1)];
+            }
+        }
+    }
+
+    private static final class ScoreRange extends RecursiveTask<long[]> {
+        private final long[] recencyDays;
+        private final long[] frequency;
+        private final long[] monetary;
+        private final Result result;
+        private final int from;
+        private final int to;
+
+        ScoreRange(long[] recencyDays, long[] frequency, long[] monetary, Result result, int from, int to) {
+            this.recencyDays = recencyDays;
+            this.frequency = frequency;
+            this.monetary = monetary;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return scoreSequentially();
+            }
+            int mid = (from + to) >>> 1;
+            ScoreRange left = new ScoreRange(recencyDays, frequency, monetary, result, from, mid);
+            left.fork();
+            long[] counts = new ScoreRange(recencyDays, frequency, monetary, result, mid, to).compute();
+            long[] leftCounts = left.join();
+            for (int s = 0; s < counts.length; s++) {
+                counts[s] += leftCounts[s];
+            }
+            return counts;
+        }
+
+        private long[] scoreSequentially() {
+            long[] counts = new long[Segment.values().length];
+            for (int i = from; i < to; i++) {
+                int r = QUINTILES + 1 - quintile(recencyDays[i], result.recencyBounds);
+                int f = quintile(frequency[i], result.frequencyBounds);
+                int m = quintile(monetary[i], result.monetaryBounds);
+                Segment segment = GRID[r - 1][(f + m + 1) / 2 - 1];
+                result.recencyScores[i] = (byte) r;
+                result.frequencyScores[i] = (byte) f;
+                result.monetaryScores[i] = (byte) m;
+                result.segments[i] = (byte) segment.ordinal();
+                counts[segment.ordinal()]++;
+            }
+            return counts;
+        }
+
+        private static int quintile(long value, long[] bounds) {
+            int quintile = 1;
+            for (long bound : bounds) {
+                if (value > bound) {
+                    quintile++;
+                }
+            }
+            return quintile;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.xeno.shopify.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving summary of the heaviest keys in a stream, in a fixed number of
+ * counters.
+ *
+ * Every monitored key has a count and an error. When a key that is not monitored
+ * arrives and all counters are taken, the counter with the smallest count is handed
+ * over to it: the new key inherits that count as its error and adds its weight on top.
+ * A key's count therefore never under-estimates its true weight, and count - error
+ * never over-estimates it. Any key whose true weight exceeds total / capacity is
+ * guaranteed to be monitored.
+ *
+ * Counters sit in an array-backed min-heap, so an update costs O(log capacity).
+ * Not thread-safe.
+ */
+public final class SpaceSaving {
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        // Take over the smallest counter
+        positions.remove(keys[0]);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += weight;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Smallest monitored count, the most a key that is not monitored can have had;
+     * 0 while there are free counters
+     */
+    public long minCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    public boolean contains(String key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * Add every counter to totals, keyed by key, as {count, error}
+     */
+    public void addTo(Map<String, long[]> totals) {
+        for (int i = 0; i < size; i++) {
+            long[] total = totals.computeIfAbsent(keys[i], k -> new long[2]);
+            total[0] += counts[i];
+            total[1] += errors[i];
+        }
+    }
+
+    /**
+     * The k keys with the largest counts, largest first, as {count, error}
+     */
+    public List<Map.Entry<String, long[]>> top(int k) {
+        Map<String, long[]> totals = new HashMap<>();
+        addTo(totals);
+        return top(totals, k);
+    }
+
+    public static List<Map.Entry<String, long[]>> top(Map<String, long[]> totals, int k) {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed());
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = right < size && counts[right] < counts[left] ? right : left;
+            if (counts[i] <= counts[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+}
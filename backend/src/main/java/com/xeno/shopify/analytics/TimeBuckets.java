@@ -0,0 +1,168 @@
+package com.xeno.shopify.analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calendar buckets of one granularity covering a range of days in a tenant's time zone.
+ *
+ * Boundaries are computed here once per query and handed to the data source as plain
+ * epoch seconds or epoch days, so the rows themselves are only ever compared against a
+ * range and binary-searched into a bucket; nothing calls a date function per row. The
+ * first and last buckets are clipped to the range but keep their calendar labels, so a
+ * range starting on a Wednesday still reports that week under its ISO week. Weeks start
+ * on Monday.
+ */
+public final class TimeBuckets {
+
+    public static final int MAX_BUCKETS = 10_000;
+
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH, QUARTER
+    }
+
+    private final Granularity granularity;
+    private final ZoneId zone;
+    private final ZonedDateTime rangeStart;
+    // Calendar start of each bucket, then the end of the range
+    private final List<ZonedDateTime> starts;
+
+    private TimeBuckets(Granularity granularity, ZoneId zone, ZonedDateTime rangeStart, List<ZonedDateTime> starts) {
+        this.granularity = granularity;
+        this.zone = zone;
+        this.rangeStart = rangeStart;
+        this.starts = starts;
+    }
+
+    /**
+     * Buckets covering startDate through endDate inclusive, in the given zone
+     */
+    public static TimeBuckets between(LocalDate startDate, LocalDate endDate, Granularity granularity, ZoneId zone) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date " + endDate + " is before start date " + startDate);
+        }
+        ZonedDateTime rangeStart = startDate.atStartOfDay(zone);
+        ZonedDateTime end = endDate.plusDays(1).atStartOfDay(zone);
+        List<ZonedDateTime> starts = new ArrayList<>();
+        for (ZonedDateTime start = truncate(rangeStart, granularity); start.isBefore(end);
+                start = next(start, granularity)) {
+            if (starts.size() == MAX_BUCKETS) {
+                throw new IllegalArgumentException("Range spans more than " + MAX_BUCKETS + " " +
+                    granularity.name().toLowerCase() + " buckets");
+            }
+            starts.add(start);
+        }
+        starts.add(end);
+        return new TimeBuckets(granularity, zone, rangeStart, starts);
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public int size() {
+        return starts.size() - 1;
+    }
+
+    /**
+     * Whether whole days of this zone are whole UTC days, so bucket boundaries fall on
+     * the day boundaries of the daily rollups
+     */
+    public boolean alignsWithUtcDays() {
+        return granularity != Granularity.HOUR && zone.normalized().equals(ZoneOffset.UTC);
+    }
+
+    /**
+     * size() + 1 ascending epoch seconds: bucket b is [boundaries[b], boundaries[b + 1]),
+     * the first bucket starting at the start of the range
+     */
+    public long[] epochSecondBoundaries() {
+        long[] boundaries = new long[starts.size()];
+        for (int b = 0; b < boundaries.length; b++) {
+            boundaries[b] = starts.get(b).toEpochSecond();
+        }
+        boundaries[0] = rangeStart.toEpochSecond();
+        return boundaries;
+    }
+
+    /**
+     * Bucket of an epoch second or epoch day against boundaries from this class, or -1
+     * if it lies outside them
+     */
+    public static int bucketOf(long[] boundaries, long value) {
+        if (value < boundaries[0] || value >= boundaries[boundaries.length - 1]) {
+            return -1;
+        }
+        int bucket = Arrays.binarySearch(boundaries, value);
+        return bucket >= 0 ? bucket : -(bucket + 1) - 1;
+    }
+
+    /**
+     * As {@link #epochSecondBoundaries()} but in epoch days of the zone's calendar; only
+     * meaningful for day granularity and coarser
+     */
+    public long[] epochDayBoundaries() {
+        long[] boundaries = new long[starts.size()];
+        for (int b = 0; b < boundaries.length; b++) {
+            boundaries[b] = starts.get(b).toLocalDate().toEpochDay();
+        }
+        boundaries[0] = rangeStart.toLocalDate().toEpochDay();
+        return boundaries;
+    }
+
+    /**
+     * Calendar start of the bucket, which for the first bucket can precede the range
+     */
+    public ZonedDateTime start(int bucket) {
+        return starts.get(bucket);
+    }
+
+    /**
+     * 2024-03-05T14:00, 2024-03-05, 2024-W10, 2024-03 or 2024-Q1
+     */
+    public String label(int bucket) {
+        ZonedDateTime start = starts.get(bucket);
+        return switch (granularity) {
+            case HOUR -> start.toLocalDateTime().toString();
+            case DAY -> start.toLocalDate().toString();
+            case WEEK -> String.format("%d-W%02d",
+                start.get(IsoFields.WEEK_BASED_YEAR), start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> String.format("%d-%02d", start.getYear(), start.getMonthValue());
+            case QUARTER -> start.getYear() + "-Q" + start.get(IsoFields.QUARTER_OF_YEAR);
+        };
+    }
+
+    private static ZonedDateTime truncate(ZonedDateTime dateTime, Granularity granularity) {
+        return switch (granularity) {
+            case HOUR, DAY -> dateTime;
+            case WEEK -> dateTime.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .atStartOfDay(dateTime.getZone());
+            case MONTH -> dateTime.toLocalDate().withDayOfMonth(1).atStartOfDay(dateTime.getZone());
+            case QUARTER -> dateTime.toLocalDate().withDayOfMonth(1)
+                .withMonth((dateTime.getMonthValue() - 1) / 3 * 3 + 1).atStartOfDay(dateTime.getZone());
+        };
+    }
+
+    private static ZonedDateTime next(ZonedDateTime start, Granularity granularity) {
+        return switch (granularity) {
+            case HOUR -> start.plus(1, ChronoUnit.HOURS);
+            case DAY -> start.toLocalDate().plusDays(1).atStartOfDay(start.getZone());
+            case WEEK -> start.toLocalDate().plusWeeks(1).atStartOfDay(start.getZone());
+            case MONTH -> start.toLocalDate().plusMonths(1).atStartOfDay(start.getZone());
+            case QUARTER -> start.toLocalDate().plusMonths(3).atStartOfDay(start.getZone());
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.xeno.shopify.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${webhooks.handler.pool-size:4}")
+    private int handlerPoolSize;
+
+    @Value("${webhooks.handler.queue-capacity:1000}")
+    private int handlerQueueCapacity;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${analytics.stream.send-threads:4}")
+    private int streamSendThreads;
+
+    @Value("${analytics.platform.threads:2}")
+    private int platformReportThreads;
+
+    /**
+     * Pool that runs webhook handlers for both live deliveries and replays.
+     * When the queue is full the submitting thread runs the handler itself,
+     * which applies natural back-pressure instead of dropping events.
+     */
+    @Bean(name = "webhookExecutor")
+    public ThreadPoolTaskExecutor webhookExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(handlerPoolSize);
+        executor.setMaxPoolSize(handlerPoolSize);
+        executor.setQueueCapacity(handlerQueueCapacity);
+        executor.setThreadNamePrefix("webhook-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs replay scans; each replay job occupies one thread for its lifetime.
+     */
+    @Bean(name = "webhookReplayExecutor")
+    public ThreadPoolTaskExecutor webhookReplayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("webhook-replay-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Background loads and rebuilds of in-memory analytics structures.
+     */
+    @Bean(name = "analyticsLoaderExecutor")
+    public ThreadPoolTaskExecutor analyticsLoaderExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("analytics-loader-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the independent queries of one analytics request side by side. Half the
+     * connection pool at most, so a burst of dashboard loads cannot starve writes of
+     * connections; when the queue is full the request thread runs the query itself.
+     */
+    @Bean(name = "analyticsQueryExecutor")
+    public ThreadPoolTaskExecutor analyticsQueryExecutor() {
+        int poolSize = Math.max(2, connectionPoolSize / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 10);
+        executor.setThreadNamePrefix("analytics-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Writes queued dashboard stream events to the open connections, so a client that
+     * stops reading ties up one of these threads rather than the scheduler. When the
+     * queue is full the events stay in the subscribers' outboxes for the next flush.
+     */
+    @Bean(name = "analyticsStreamExecutor")
+    public ThreadPoolTaskExecutor analyticsStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamSendThreads);
+        executor.setMaxPoolSize(streamSendThreads);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("analytics-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Computes platform report partials, one slice of tenants per thread. Kept apart from
+     * the dashboard query pool and small, since a report holds a connection per thread
+     * for as long as its slice takes; reports beyond what the queue holds are rejected.
+     */
+    @Bean(name = "platformReportExecutor")
+    public ThreadPoolTaskExecutor platformReportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(platformReportThreads);
+        executor.setMaxPoolSize(platformReportThreads);
+        executor.setQueueCapacity(platformReportThreads * 4);
+        executor.setThreadNamePrefix("platform-report-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.xeno.shopify.config;
+
+import com.xeno.shopify.service.DataVersionService;
+import com.xeno.shopify.service.JwtService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Conditional GET for tenant analytics and the order, customer and product lists.
+ * Every response carries the tenant's data version as a strong ETag, and a matching
+ * If-None-Match is answered with 304 before the controller runs, so an unchanged page
+ * costs no query and no serialization.
+ *
+ * The tag is read before the handler. The version is bumped only after a transaction's
+ * in-memory consumers have applied it (see {@link DataVersionService}), so whatever the
+ * handler reads is at least as new as the tag. A write that lands while the response is
+ * being built can make the tag older than the data, never newer; the next request then
+ * sees a different version and gets the full response.
+ */
+@Component
+public class DataVersionInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return true;
+        }
+        String tenantId;
+        try {
+            tenantId = jwtService.extractTenantId(authHeader.substring(7));
+        } catch (Exception e) {
+            return true;
+        }
+        if (tenantId == null) {
+            return true;
+        }
+
+        // The same URL answers differently per tenant, so shared caches must not reuse it
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        return !new ServletWebRequest(request, response).checkNotModified(dataVersionService.etag(tenantId));
+    }
+}
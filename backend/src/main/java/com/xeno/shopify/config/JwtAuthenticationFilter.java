@@ -19,6 +19,8 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/analytics/stream";
+
     @Autowired
     private JwtService jwtService;
 
@@ -33,12 +35,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String jwt;
         final String userEmail;
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwt = authHeader.substring(7);
+            // A stream token is only good for opening the stream
+            if (jwtService.isStreamToken(jwt)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+        } else if (STREAM_PATH.equals(request.getServletPath()) && request.getParameter("token") != null) {
+            // EventSource cannot send headers, so the stream also takes a stream token in the query
+            jwt = request.getParameter("token");
+            if (!jwtService.isStreamToken(jwt)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+        } else {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
         userEmail = jwtService.extractEmail(jwt);
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
@@ -0,0 +1,23 @@
+package com.xeno.shopify.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private DataVersionInterceptor dataVersionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The stream pushes its own deltas, and anomalies change as intervals close
+        // without any write, so neither is answered from a cache. Exports stream
+        // straight from the database and are not repeated often enough to be worth it.
+        registry.addInterceptor(dataVersionInterceptor)
+            .addPathPatterns("/analytics/**", "/api/orders/**", "/api/customers/**", "/api/products/**")
+            .excludePathPatterns("/analytics/stream", "/analytics/orders/anomalies");
+    }
+}
@@ -0,0 +1,146 @@
+package com.xeno.shopify.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.xeno.shopify.analytics.TimeBuckets.Granularity;
+import com.xeno.shopify.dto.PlatformReport;
+import com.xeno.shopify.service.AnomalyDetectionService;
+import com.xeno.shopify.service.CohortRetentionService;
+import com.xeno.shopify.service.DailyMetricsService;
+import com.xeno.shopify.service.PlatformReportService;
+import com.xeno.shopify.service.RfmSegmentationService;
+import com.xeno.shopify.service.SummaryTableService;
+
+@RestController
+@RequestMapping("/admin/analytics")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class AnalyticsAdminController {
+
+    @Autowired
+    private DailyMetricsService dailyMetricsService;
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Autowired
+    private RfmSegmentationService rfmSegmentationService;
+
+    @Autowired
+    private SummaryTableService summaryTableService;
+
+    @Autowired
+    private PlatformReportService platformReportService;
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+
+    /**
+     * Recompute the daily rollups from the order tables, for one tenant or all of them
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<String> rebuildRollups(@RequestParam(required = false) String tenantId) {
+        try {
+            if (tenantId != null) {
+                dailyMetricsService.rebuildTenant(tenantId);
+                return ResponseEntity.ok("Rebuilt daily rollups for tenant: " + tenantId);
+            }
+            dailyMetricsService.rebuildAll();
+            return ResponseEntity.ok("Rebuilt daily rollups for all tenants");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to rebuild rollups: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the in-memory cohort retention grids from the daily customer rollup
+     */
+    @PostMapping("/cohorts/rebuild")
+    public ResponseEntity<String> rebuildCohorts(@RequestParam(required = false) String tenantId) {
+        try {
+            if (tenantId != null) {
+                cohortRetentionService.rebuildTenant(tenantId);
+                return ResponseEntity.ok("Rebuilt cohort retention for tenant: " + tenantId);
+            }
+            cohortRetentionService.rebuildAll();
+            return ResponseEntity.ok("Rebuilt cohort retention for all tenants");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to rebuild cohorts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute RFM scores and segments, for one tenant or all of them
+     */
+    @PostMapping("/rfm/run")
+    public ResponseEntity<String> runRfmSegmentation(@RequestParam(required = false) String tenantId) {
+        try {
+            if (tenantId != null) {
+                rfmSegmentationService.segmentTenant(tenantId);
+                return ResponseEntity.ok("Segmented customers for tenant: " + tenantId);
+            }
+            rfmSegmentationService.segmentAll();
+            return ResponseEntity.ok("Segmented customers for all tenants");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to segment customers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compare the summary tables with the base tables and repair any drift
+     */
+    @PostMapping("/summaries/check")
+    public ResponseEntity<String> checkSummaries(@RequestParam(required = false) String tenantId) {
+        try {
+            if (tenantId != null) {
+                boolean repaired = summaryTableService.checkTenant(tenantId);
+                return ResponseEntity.ok((repaired ? "Repaired" : "Verified") + " summary tables for tenant: " + tenantId);
+            }
+            int repaired = summaryTableService.checkAll();
+            return ResponseEntity.ok("Checked summary tables for all tenants, repaired " + repaired);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to check summary tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Orders, GMV and webhook sync lag across all active tenants, bucketed in UTC
+     */
+    @GetMapping("/platform")
+    public ResponseEntity<?> getPlatformReport(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "1") int days,
+            @RequestParam(defaultValue = "hour") String granularity) {
+        try {
+            LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
+            LocalDate start = startDate != null ? LocalDate.parse(startDate) : end.minusDays(days - 1);
+            Granularity bucket = Granularity.valueOf(granularity.toUpperCase());
+            
+            PlatformReport report = platformReportService.getReport(start, end, bucket);
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to build platform report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tenants whose last closed interval had an order or revenue rate anomaly
+     */
+    @GetMapping("/anomalies")
+    public ResponseEntity<?> getActiveAnomalies() {
+        try {
+            List<Map<String, Object>> anomalies = anomalyDetectionService.getActiveAnomalies();
+            return ResponseEntity.ok(anomalies);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get anomalies: " + e.getMessage());
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.xeno.shopify.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.xeno.shopify.analytics.TimeBuckets.Granularity;
 import com.xeno.shopify.dto.DashboardMetrics;
+import com.xeno.shopify.dto.CohortRetention;
 import com.xeno.shopify.dto.CustomerAnalytics;
 import com.xeno.shopify.dto.OrderTrends;
+import com.xeno.shopify.dto.RfmSegments;
+import com.xeno.shopify.dto.TrendingProduct;
+import com.xeno.shopify.dto.UniqueCustomers;
 import com.xeno.shopify.service.AnalyticsService;
+import com.xeno.shopify.service.DashboardStreamService;
 import com.xeno.shopify.service.JwtService;
+import com.xeno.shopify.service.TrendingProductsService;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +36,9 @@ public class AnalyticsController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private DashboardStreamService dashboardStreamService;
+
     @GetMapping("/dashboard")
     public ResponseEntity<?> getDashboardMetrics(@RequestHeader("Authorization") String token) {
         try {
@@ -53,26 +67,204 @@ public class AnalyticsController {
         }
     }
 
+    /**
+     * Short-lived token for opening the dashboard stream from a browser EventSource,
+     * which cannot send the Authorization header
+     */
+    @PostMapping("/stream/token")
+    public ResponseEntity<?> getStreamToken(@RequestHeader("Authorization") String token) {
+        try {
+            String jwt = token.substring(7);
+            String streamToken = jwtService.generateStreamToken(jwtService.extractEmail(jwt), jwtService.extractTenantId(jwt));
+            return ResponseEntity.ok(Map.of("token", streamToken, "expiresIn", jwtService.getStreamExpiration() / 1000));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to issue stream token: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Server-sent events with live deltas for the tenant's dashboard. Authenticated by
+     * the Authorization header or by a stream token in the token query parameter; the
+     * token is only checked when the stream opens, so a reconnect needs a fresh one.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamDashboard(
+            @RequestHeader(value = "Authorization", required = false) String token,
+            @RequestParam(value = "token", required = false) String streamToken) {
+        try {
+            String jwt;
+            if (token != null && token.startsWith("Bearer ")) {
+                jwt = token.substring(7);
+            } else if (streamToken != null) {
+                jwt = streamToken;
+            } else {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Failed to open dashboard stream: missing Authorization header or stream token");
+            }
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            SseEmitter emitter = dashboardStreamService.subscribe(tenantId);
+            return ResponseEntity.ok(emitter);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to open dashboard stream: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/orders/trends")
     public ResponseEntity<?> getOrderTrends(
             @RequestHeader("Authorization") String token,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "day") String granularity) {
         try {
             String jwt = token.substring(7);
             String tenantId = jwtService.extractTenantId(jwt);
             
             LocalDate start = startDate != null ? LocalDate.parse(startDate) : LocalDate.now().minusDays(days);
             LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
+            Granularity bucket = Granularity.valueOf(granularity.toUpperCase());
             
-            List<OrderTrends> trends = analyticsService.getOrderTrends(tenantId, start, end);
+            List<OrderTrends> trends = analyticsService.getOrderTrends(tenantId, start, end, bucket);
             return ResponseEntity.ok(trends);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Failed to get order trends: " + e.getMessage());
         }
     }
 
+    @GetMapping("/customers/{customerId}/rank")
+    public ResponseEntity<?> getCustomerRank(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long customerId) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            int rank = analyticsService.getCustomerRank(tenantId, customerId);
+            if (rank == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(Map.of("customerId", customerId, "rank", rank));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get customer rank: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/customers/unique")
+    public ResponseEntity<?> getUniqueCustomers(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "30") int days) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            LocalDate start = startDate != null ? LocalDate.parse(startDate) : LocalDate.now().minusDays(days);
+            LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
+            
+            UniqueCustomers uniqueCustomers = analyticsService.getUniqueCustomers(tenantId, start, end);
+            return ResponseEntity.ok(uniqueCustomers);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get unique customers: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/customers/cohorts")
+    public ResponseEntity<?> getCohortRetention(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "12") int months) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            YearMonth start = since != null ? YearMonth.parse(since) : YearMonth.now().minusMonths(months - 1);
+            
+            List<CohortRetention> cohorts = analyticsService.getCohortRetention(tenantId, start);
+            return ResponseEntity.ok(cohorts);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get cohort retention: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/customers/rfm")
+    public ResponseEntity<?> getRfmSegments(@RequestHeader("Authorization") String token) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            RfmSegments segments = analyticsService.getRfmSegments(tenantId);
+            if (segments == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(segments);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get RFM segments: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/store/summary")
+    public ResponseEntity<?> getStoreSummary(@RequestHeader("Authorization") String token) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            Map<String, Object> summary = analyticsService.getStoreSummary(tenantId);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get store summary: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/store/top-customers")
+    public ResponseEntity<?> getStoreTopCustomers(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            List<Map<String, Object>> customers = analyticsService.getStoreTopCustomers(tenantId, limit);
+            return ResponseEntity.ok(customers);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get top customers: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/orders/anomalies")
+    public ResponseEntity<?> getOrderRateAnomalies(@RequestHeader("Authorization") String token) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            Map<String, Object> anomalies = analyticsService.getOrderRateAnomalies(tenantId);
+            return ResponseEntity.ok(anomalies);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get order rate anomalies: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/orders/fulfilment")
+    public ResponseEntity<?> getFulfilmentLatency(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "30") int days) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            LocalDate start = startDate != null ? LocalDate.parse(startDate) : LocalDate.now().minusDays(days);
+            LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
+            
+            Map<String, Map<String, Long>> latency = analyticsService.getFulfilmentLatency(tenantId, start, end);
+            return ResponseEntity.ok(latency);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get fulfilment latency: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/revenue/monthly")
     public ResponseEntity<?> getMonthlyRevenue(@RequestHeader("Authorization") String token) {
         try {
@@ -113,4 +305,22 @@ public class AnalyticsController {
             return ResponseEntity.badRequest().body("Failed to get top products: " + e.getMessage());
         }
     }
+
+    @GetMapping("/products/trending")
+    public ResponseEntity<?> getTrendingProducts(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "revenue") String by,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            String jwt = token.substring(7);
+            String tenantId = jwtService.extractTenantId(jwt);
+            
+            TrendingProductsService.Metric metric = TrendingProductsService.Metric.valueOf(by.toUpperCase());
+            List<TrendingProduct> trending = analyticsService.getTrendingProducts(tenantId, days, metric, limit);
+            return ResponseEntity.ok(trending);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to get trending products: " + e.getMessage());
+        }
+    }
 }
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.xeno.shopify.service.ShopifyService;
+import com.xeno.shopify.service.WebhookEventService;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.BufferedReader;
@@ -22,6 +23,9 @@ public class ShopifyWebhookController {
     @Autowired
     private ShopifyService shopifyService;
 
+    @Autowired
+    private WebhookEventService webhookEventService;
+
     /**
      * Handle order creation webhook
      */
@@ -42,10 +46,10 @@ public class ShopifyWebhookController {
                 return ResponseEntity.badRequest().body("Invalid shop domain");
             }
             
-            // Process the webhook
-            shopifyService.processOrderWebhook(requestBody, tenantId);
+            // Store the webhook and process it on the handler pool
+            webhookEventService.receive("orders/create", tenantId, requestBody);
             
-            logger.info("Successfully processed order creation webhook for tenant: {}", tenantId);
+            logger.info("Successfully queued order creation webhook for tenant: {}", tenantId);
             return ResponseEntity.ok("Webhook processed successfully");
             
         } catch (Exception e) {
@@ -72,7 +76,7 @@ public class ShopifyWebhookController {
                 return ResponseEntity.badRequest().body("Invalid shop domain");
             }
             
-            shopifyService.processOrderWebhook(requestBody, tenantId);
+            webhookEventService.receive("orders/paid", tenantId, requestBody);
             
             return ResponseEntity.ok("Webhook processed successfully");
             
@@ -100,7 +104,7 @@ public class ShopifyWebhookController {
                 return ResponseEntity.badRequest().body("Invalid shop domain");
             }
             
-            shopifyService.processCustomerWebhook(requestBody, tenantId);
+            webhookEventService.receive("customers/create", tenantId, requestBody);
             
             return ResponseEntity.ok("Webhook processed successfully");
             
@@ -128,7 +132,7 @@ public class ShopifyWebhookController {
                 return ResponseEntity.badRequest().body("Invalid shop domain");
             }
             
-            shopifyService.processCustomerWebhook(requestBody, tenantId);
+            webhookEventService.receive("customers/update", tenantId, requestBody);
             
             return ResponseEntity.ok("Webhook processed successfully");
             
@@ -156,8 +160,7 @@ public class ShopifyWebhookController {
                 return ResponseEntity.badRequest().body("Invalid shop domain");
             }
             
-            // For now, we'll just log this. You could extend ShopifyService to handle product webhooks
-            logger.info("Product webhook received for tenant: {} - implement processing as needed", tenantId);
+            webhookEventService.receive("products/create", tenantId, requestBody);
             
             return ResponseEntity.ok("Webhook processed successfully");
             
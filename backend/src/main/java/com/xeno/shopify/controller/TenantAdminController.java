@@ -0,0 +1,52 @@
+package com.xeno.shopify.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.xeno.shopify.service.TenantService;
+
+@RestController
+@RequestMapping("/admin/tenants")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class TenantAdminController {
+
+    @Autowired
+    private TenantService tenantService;
+
+    /**
+     * Deactivate a tenant: stops scheduled syncs and frees its in-memory analytics
+     */
+    @PostMapping("/{tenantId}/deactivate")
+    public ResponseEntity<String> deactivateTenant(@PathVariable String tenantId) {
+        return tenantService.setActive(tenantId, false)
+                .map(tenant -> ResponseEntity.ok("Tenant deactivated: " + tenantId))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Reactivate a tenant and reload its in-memory analytics
+     */
+    @PostMapping("/{tenantId}/activate")
+    public ResponseEntity<String> activateTenant(@PathVariable String tenantId) {
+        return tenantService.setActive(tenantId, true)
+                .map(tenant -> ResponseEntity.ok("Tenant activated: " + tenantId))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Set the IANA time zone (e.g. Asia/Kolkata) the tenant's analytics are bucketed in
+     */
+    @PutMapping("/{tenantId}/time-zone")
+    public ResponseEntity<String> setTimeZone(@PathVariable String tenantId, @RequestParam String zone) {
+        try {
+            return tenantService.setTimeZone(tenantId, zone)
+                    .map(tenant -> ResponseEntity.ok("Tenant " + tenantId + " time zone set to " + tenant.getTimeZone()))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to set time zone: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.xeno.shopify.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.xeno.shopify.dto.WebhookCompressionStats;
+import com.xeno.shopify.model.WebhookEvent;
+import com.xeno.shopify.model.WebhookPayloadDictionary;
+import com.xeno.shopify.service.WebhookArchiveService;
+import com.xeno.shopify.service.WebhookEventService;
+import com.xeno.shopify.service.WebhookPayloadCodec;
+
+@RestController
+@RequestMapping("/admin/webhooks")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class WebhookEventController {
+
+    @Autowired
+    private WebhookEventService webhookEventService;
+
+    @Autowired
+    private WebhookPayloadCodec payloadCodec;
+
+    @Autowired
+    private WebhookArchiveService webhookArchiveService;
+
+    /**
+     * Fetch a stored event with its payload decompressed, from the live table or the archive
+     */
+    @GetMapping("/events/{id}")
+    public ResponseEntity<WebhookEvent> getEvent(@PathVariable Long id) {
+        return webhookEventService.getEvent(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Compression ratio and CPU cost since startup
+     */
+    @GetMapping("/compression")
+    public ResponseEntity<WebhookCompressionStats> getCompressionStats() {
+        return ResponseEntity.ok(payloadCodec.getStats());
+    }
+
+    /**
+     * Train a new payload dictionary for a topic, e.g. orders/create
+     */
+    @PostMapping("/compression/dictionaries")
+    public ResponseEntity<?> trainDictionary(@RequestParam String topic) {
+        try {
+            WebhookPayloadDictionary dictionary = payloadCodec.trainDictionary(topic);
+            if (dictionary == null) {
+                return ResponseEntity.badRequest().body("Not enough stored payloads to train topic: " + topic);
+            }
+            return ResponseEntity.ok("Trained dictionary " + dictionary.getId() + " (" +
+                    dictionary.getDictionary().length + " bytes) for topic: " + topic);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to train dictionary: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run the archiver now instead of waiting for its schedule
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<String> archiveOldEvents() {
+        webhookArchiveService.archiveOldEvents();
+        return ResponseEntity.ok("Archive run completed");
+    }
+}
@@ -0,0 +1,63 @@
+package com.xeno.shopify.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.xeno.shopify.dto.WebhookReplayRequest;
+import com.xeno.shopify.dto.WebhookReplayStatus;
+import com.xeno.shopify.service.WebhookReplayService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/webhooks/replay")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class WebhookReplayController {
+
+    @Autowired
+    private WebhookReplayService webhookReplayService;
+
+    /**
+     * Start replaying stored webhook events matching the given filters
+     */
+    @PostMapping
+    public ResponseEntity<?> startReplay(@RequestBody WebhookReplayRequest request) {
+        try {
+            WebhookReplayStatus status = webhookReplayService.startReplay(request);
+            return ResponseEntity.accepted().body(status);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to start replay: " + e.getMessage());
+        }
+    }
+
+    /**
+     * List all replay jobs started since the node came up
+     */
+    @GetMapping
+    public ResponseEntity<List<WebhookReplayStatus>> getReplays() {
+        return ResponseEntity.ok(webhookReplayService.getAllStatuses());
+    }
+
+    /**
+     * Progress, throughput and ETA of a replay job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<WebhookReplayStatus> getReplay(@PathVariable String jobId) {
+        return webhookReplayService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stop a running replay after the events already in flight
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> cancelReplay(@PathVariable String jobId) {
+        return webhookReplayService.cancelReplay(jobId) ?
+                ResponseEntity.ok().build() :
+                ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.xeno.shopify.dto;
+
+import java.util.List;
+
+public class CohortRetention {
+    
+    // First-order month, yyyy-MM
+    private String cohort;
+    private Long customers;
+    // Customers of the cohort who ordered in each month since, starting with the cohort month
+    private List<Long> activeCustomers;
+    // activeCustomers as a share of customers
+    private List<Double> retention;
+    
+    public CohortRetention() {}
+    
+    public String getCohort() {
+        return cohort;
+    }
+    
+    public void setCohort(String cohort) {
+        this.cohort = cohort;
+    }
+    
+    public Long getCustomers() {
+        return customers;
+    }
+    
+    public void setCustomers(Long customers) {
+        this.customers = customers;
+    }
+    
+    public List<Long> getActiveCustomers() {
+        return activeCustomers;
+    }
+    
+    public void setActiveCustomers(List<Long> activeCustomers) {
+        this.activeCustomers = activeCustomers;
+    }
+    
+    public List<Double> getRetention() {
+        return retention;
+    }
+    
+    public void setRetention(List<Double> retention) {
+        this.retention = retention;
+    }
+}
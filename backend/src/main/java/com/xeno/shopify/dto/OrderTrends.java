@@ -4,7 +4,10 @@ import java.time.LocalDate;
 
 public class OrderTrends {
     
+    // First day of the bucket
     private LocalDate date;
+    // Bucket label, e.g. 2024-03-05T14:00, 2024-03-05, 2024-W10, 2024-03 or 2024-Q1
+    private String period;
     private Long orderCount;
     private Double revenue;
     
@@ -18,6 +21,14 @@ public class OrderTrends {
         this.date = date;
     }
     
+    public String getPeriod() {
+        return period;
+    }
+    
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+    
     public Long getOrderCount() {
         return orderCount;
     }
@@ -0,0 +1,167 @@
+package com.xeno.shopify.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class PlatformReport {
+    
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String granularity;
+    private Integer tenants;
+    // Tenants whose partial could not be computed and are missing from the totals
+    private List<String> failedTenants;
+    private Long totalOrders;
+    private Double gmv;
+    private Map<String, Double> gmvBySource;
+    // Orders and GMV per bucket across all tenants, in UTC
+    private List<OrderTrends> periods;
+    // Sync lag: seconds from webhook receipt to processing, for webhooks received in the range
+    private Long webhooksProcessed;
+    private Double avgSyncLagSeconds;
+    private Long maxSyncLagSeconds;
+    private Long webhooksPending;
+    private Long oldestPendingSeconds;
+    private List<Map<String, Object>> topTenantsByGmv;
+    private List<Map<String, Object>> mostLaggingTenants;
+    private Long durationMs;
+    
+    public PlatformReport() {}
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+    
+    public String getGranularity() {
+        return granularity;
+    }
+    
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+    
+    public Integer getTenants() {
+        return tenants;
+    }
+    
+    public void setTenants(Integer tenants) {
+        this.tenants = tenants;
+    }
+    
+    public List<String> getFailedTenants() {
+        return failedTenants;
+    }
+    
+    public void setFailedTenants(List<String> failedTenants) {
+        this.failedTenants = failedTenants;
+    }
+    
+    public Long getTotalOrders() {
+        return totalOrders;
+    }
+    
+    public void setTotalOrders(Long totalOrders) {
+        this.totalOrders = totalOrders;
+    }
+    
+    public Double getGmv() {
+        return gmv;
+    }
+    
+    public void setGmv(Double gmv) {
+        this.gmv = gmv;
+    }
+    
+    public Map<String, Double> getGmvBySource() {
+        return gmvBySource;
+    }
+    
+    public void setGmvBySource(Map<String, Double> gmvBySource) {
+        this.gmvBySource = gmvBySource;
+    }
+    
+    public List<OrderTrends> getPeriods() {
+        return periods;
+    }
+    
+    public void setPeriods(List<OrderTrends> periods) {
+        this.periods = periods;
+    }
+    
+    public Long getWebhooksProcessed() {
+        return webhooksProcessed;
+    }
+    
+    public void setWebhooksProcessed(Long webhooksProcessed) {
+        this.webhooksProcessed = webhooksProcessed;
+    }
+    
+    public Double getAvgSyncLagSeconds() {
+        return avgSyncLagSeconds;
+    }
+    
+    public void setAvgSyncLagSeconds(Double avgSyncLagSeconds) {
+        this.avgSyncLagSeconds = avgSyncLagSeconds;
+    }
+    
+    public Long getMaxSyncLagSeconds() {
+        return maxSyncLagSeconds;
+    }
+    
+    public void setMaxSyncLagSeconds(Long maxSyncLagSeconds) {
+        this.maxSyncLagSeconds = maxSyncLagSeconds;
+    }
+    
+    public Long getWebhooksPending() {
+        return webhooksPending;
+    }
+    
+    public void setWebhooksPending(Long webhooksPending) {
+        this.webhooksPending = webhooksPending;
+    }
+    
+    public Long getOldestPendingSeconds() {
+        return oldestPendingSeconds;
+    }
+    
+    public void setOldestPendingSeconds(Long oldestPendingSeconds) {
+        this.oldestPendingSeconds = oldestPendingSeconds;
+    }
+    
+    public List<Map<String, Object>> getTopTenantsByGmv() {
+        return topTenantsByGmv;
+    }
+    
+    public void setTopTenantsByGmv(List<Map<String, Object>> topTenantsByGmv) {
+        this.topTenantsByGmv = topTenantsByGmv;
+    }
+    
+    public List<Map<String, Object>> getMostLaggingTenants() {
+        return mostLaggingTenants;
+    }
+    
+    public void setMostLaggingTenants(List<Map<String, Object>> mostLaggingTenants) {
+        this.mostLaggingTenants = mostLaggingTenants;
+    }
+    
+    public Long getDurationMs() {
+        return durationMs;
+    }
+    
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,66 @@
+package com.xeno.shopify.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public class RfmSegments {
+    
+    private LocalDateTime computedAt;
+    private Long customers;
+    // Upper bounds of the first four quintiles; recency in days since the last order
+    private List<Long> recencyBoundsDays;
+    private List<Long> frequencyBounds;
+    private List<Double> monetaryBounds;
+    private Map<String, Long> segments;
+    
+    public RfmSegments() {}
+    
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+    
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+    
+    public Long getCustomers() {
+        return customers;
+    }
+    
+    public void setCustomers(Long customers) {
+        this.customers = customers;
+    }
+    
+    public List<Long> getRecencyBoundsDays() {
+        return recencyBoundsDays;
+    }
+    
+    public void setRecencyBoundsDays(List<Long> recencyBoundsDays) {
+        this.recencyBoundsDays = recencyBoundsDays;
+    }
+    
+    public List<Long> getFrequencyBounds() {
+        return frequencyBounds;
+    }
+    
+    public void setFrequencyBounds(List<Long> frequencyBounds) {
+        this.frequencyBounds = frequencyBounds;
+    }
+    
+    public List<Double> getMonetaryBounds() {
+        return monetaryBounds;
+    }
+    
+    public void setMonetaryBounds(List<Double> monetaryBounds) {
+        this.monetaryBounds = monetaryBounds;
+    }
+    
+    public Map<String, Long> getSegments() {
+        return segments;
+    }
+    
+    public void setSegments(Map<String, Long> segments) {
+        this.segments = segments;
+    }
+}
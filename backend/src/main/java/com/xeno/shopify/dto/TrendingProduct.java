@@ -0,0 +1,45 @@
+package com.xeno.shopify.dto;
+
+public class TrendingProduct {
+    
+    private String productId;
+    private String name;
+    // Units sold or revenue, depending on what was ranked; never below the true value
+    private Double value;
+    // How much value may over-state the true figure
+    private Double maxError;
+    
+    public TrendingProduct() {}
+    
+    public String getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public Double getValue() {
+        return value;
+    }
+    
+    public void setValue(Double value) {
+        this.value = value;
+    }
+    
+    public Double getMaxError() {
+        return maxError;
+    }
+    
+    public void setMaxError(Double maxError) {
+        this.maxError = maxError;
+    }
+}
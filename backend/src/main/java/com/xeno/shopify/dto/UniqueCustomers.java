@@ -0,0 +1,46 @@
+package com.xeno.shopify.dto;
+
+import java.time.LocalDate;
+
+public class UniqueCustomers {
+    
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Long uniqueCustomers;
+    // Relative standard error of the estimate, e.g. 0.016 for 1.6%
+    private Double relativeStandardError;
+    
+    public UniqueCustomers() {}
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+    
+    public Long getUniqueCustomers() {
+        return uniqueCustomers;
+    }
+    
+    public void setUniqueCustomers(Long uniqueCustomers) {
+        this.uniqueCustomers = uniqueCustomers;
+    }
+    
+    public Double getRelativeStandardError() {
+        return relativeStandardError;
+    }
+    
+    public void setRelativeStandardError(Double relativeStandardError) {
+        this.relativeStandardError = relativeStandardError;
+    }
+}
@@ -0,0 +1,81 @@
+package com.xeno.shopify.dto;
+
+import java.util.Map;
+
+public class WebhookCompressionStats {
+    
+    private Long rawBytes;
+    private Long compressedBytes;
+    private Double compressionRatio;
+    private Long encodeCount;
+    private Double avgEncodeMicros;
+    private Long decodeCount;
+    private Double avgDecodeMicros;
+    private Map<String, Long> activeDictionaries;
+    
+    public WebhookCompressionStats() {}
+    
+    public Long getRawBytes() {
+        return rawBytes;
+    }
+    
+    public void setRawBytes(Long rawBytes) {
+        this.rawBytes = rawBytes;
+    }
+    
+    public Long getCompressedBytes() {
+        return compressedBytes;
+    }
+    
+    public void setCompressedBytes(Long compressedBytes) {
+        this.compressedBytes = compressedBytes;
+    }
+    
+    public Double getCompressionRatio() {
+        return compressionRatio;
+    }
+    
+    public void setCompressionRatio(Double compressionRatio) {
+        this.compressionRatio = compressionRatio;
+    }
+    
+    public Long getEncodeCount() {
+        return encodeCount;
+    }
+    
+    public void setEncodeCount(Long encodeCount) {
+        this.encodeCount = encodeCount;
+    }
+    
+    public Double getAvgEncodeMicros() {
+        return avgEncodeMicros;
+    }
+    
+    public void setAvgEncodeMicros(Double avgEncodeMicros) {
+        this.avgEncodeMicros = avgEncodeMicros;
+    }
+    
+    public Long getDecodeCount() {
+        return decodeCount;
+    }
+    
+    public void setDecodeCount(Long decodeCount) {
+        this.decodeCount = decodeCount;
+    }
+    
+    public Double getAvgDecodeMicros() {
+        return avgDecodeMicros;
+    }
+    
+    public void setAvgDecodeMicros(Double avgDecodeMicros) {
+        this.avgDecodeMicros = avgDecodeMicros;
+    }
+    
+    public Map<String, Long> getActiveDictionaries() {
+        return activeDictionaries;
+    }
+    
+    public void setActiveDictionaries(Map<String, Long> activeDictionaries) {
+        this.activeDictionaries = activeDictionaries;
+    }
+}
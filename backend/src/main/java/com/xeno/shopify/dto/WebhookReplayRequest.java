@@ -0,0 +1,73 @@
+package com.xeno.shopify.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class WebhookReplayRequest {
+    
+    private String tenantId;
+    private List<String> topics;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private boolean dryRun;
+    private Integer batchSize;
+    private Integer maxEventsPerSecond;
+    
+    public WebhookReplayRequest() {}
+    
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
+    public List<String> getTopics() {
+        return topics;
+    }
+    
+    public void setTopics(List<String> topics) {
+        this.topics = topics;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+    
+    public boolean isDryRun() {
+        return dryRun;
+    }
+    
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+    
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public Integer getMaxEventsPerSecond() {
+        return maxEventsPerSecond;
+    }
+    
+    public void setMaxEventsPerSecond(Integer maxEventsPerSecond) {
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+}
@@ -0,0 +1,163 @@
+package com.xeno.shopify.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class WebhookReplayStatus {
+    
+    private String jobId;
+    private String state;
+    private boolean dryRun;
+    private String tenantId;
+    private List<String> topics;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long totalEvents;
+    private Long scanned;
+    private Long succeeded;
+    private Long failed;
+    private Long lastEventId;
+    private Double eventsPerSecond;
+    private Long etaSeconds;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+    
+    public WebhookReplayStatus() {}
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getState() {
+        return state;
+    }
+    
+    public void setState(String state) {
+        this.state = state;
+    }
+    
+    public boolean isDryRun() {
+        return dryRun;
+    }
+    
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+    
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
+    public List<String> getTopics() {
+        return topics;
+    }
+    
+    public void setTopics(List<String> topics) {
+        this.topics = topics;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+    
+    public Long getTotalEvents() {
+        return totalEvents;
+    }
+    
+    public void setTotalEvents(Long totalEvents) {
+        this.totalEvents = totalEvents;
+    }
+    
+    public Long getScanned() {
+        return scanned;
+    }
+    
+    public void setScanned(Long scanned) {
+        this.scanned = scanned;
+    }
+    
+    public Long getSucceeded() {
+        return succeeded;
+    }
+    
+    public void setSucceeded(Long succeeded) {
+        this.succeeded = succeeded;
+    }
+    
+    public Long getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+    
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+    
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+    
+    public Double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+    
+    public void setEventsPerSecond(Double eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+    
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+    
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,36 @@
+package com.xeno.shopify.event;
+
+/**
+ * Published when an assignment customer's total spend is set or changes, and when the
+ * customer is deleted, in which case {@code totalSpent} is null. The spend is the value
+ * the publishing transaction wrote; a listener running after commit may see events of
+ * concurrent writes out of order and should re-read the customer row.
+ */
+public class CustomerSpendChangedEvent {
+
+    private final String tenantId;
+    private final Long customerId;
+    private final Double totalSpent;
+
+    public CustomerSpendChangedEvent(String tenantId, Long customerId, Double totalSpent) {
+        this.tenantId = tenantId;
+        this.customerId = customerId;
+        this.totalSpent = totalSpent;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public Double getTotalSpent() {
+        return totalSpent;
+    }
+
+    public boolean isDeleted() {
+        return totalSpent == null;
+    }
+}
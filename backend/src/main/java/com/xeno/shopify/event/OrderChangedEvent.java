@@ -0,0 +1,53 @@
+package com.xeno.shopify.event;
+
+/**
+ * Published whenever an order is created, updated or deleted through the Shopify
+ * ingest path or the assignment CRUD services. {@code before} is null for a new
+ * order and {@code after} is null for a deleted one.
+ *
+ * Listeners that use a plain {@code @EventListener} run inside the writing
+ * transaction; in-memory consumers should listen after commit. {@code changeId} is
+ * the order_change_log row recorded for the change, set inside the transaction when
+ * the change log is enabled and null otherwise.
+ */
+public class OrderChangedEvent {
+
+    private final String tenantId;
+    private final OrderSnapshot before;
+    private final OrderSnapshot after;
+    private Long changeId;
+
+    public OrderChangedEvent(String tenantId, OrderSnapshot before, OrderSnapshot after) {
+        this.tenantId = tenantId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public OrderSnapshot getBefore() {
+        return before;
+    }
+
+    public OrderSnapshot getAfter() {
+        return after;
+    }
+
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(Long changeId) {
+        this.changeId = changeId;
+    }
+
+    public boolean isCreated() {
+        return before == null && after != null;
+    }
+
+    public boolean isDeleted() {
+        return before != null && after == null;
+    }
+}
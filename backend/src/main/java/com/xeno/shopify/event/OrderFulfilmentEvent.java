@@ -0,0 +1,53 @@
+package com.xeno.shopify.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published in the order's transaction when an assignment order's ship time
+ * ({@link Stage#SHIP}, measured from the order date) or delivery time
+ * ({@link Stage#DELIVER}, measured from the ship date) is set, changed or deleted.
+ * A change is published as the old duration with a count of -1 and the new one with
+ * a count of 1.
+ */
+public class OrderFulfilmentEvent {
+
+    public enum Stage {
+        SHIP,
+        DELIVER
+    }
+
+    private final String tenantId;
+    private final Stage stage;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime completedAt;
+    private final int count;
+
+    public OrderFulfilmentEvent(String tenantId, Stage stage, LocalDateTime startedAt, LocalDateTime completedAt,
+                                int count) {
+        this.tenantId = tenantId;
+        this.stage = stage;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.count = count;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,137 @@
+package com.xeno.shopify.event;
+
+import com.xeno.shopify.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the order fields that analytics aggregate over, taken before
+ * or after a write so listeners can apply the exact delta.
+ */
+public class OrderSnapshot {
+
+    private final String tenantId;
+    private final OrderSource source;
+    private final Long orderId;
+    private final String customerKey;
+    private final LocalDateTime orderDate;
+    private final String status;
+    private final double amount;
+    private final double tax;
+    private final double discounts;
+
+    public OrderSnapshot(String tenantId, OrderSource source, Long orderId, String customerKey,
+                         LocalDateTime orderDate, String status, double amount, double tax, double discounts) {
+        this.tenantId = tenantId;
+        this.source = source;
+        this.orderId = orderId;
+        this.customerKey = customerKey;
+        this.orderDate = orderDate;
+        this.status = status != null ? status : "unknown";
+        this.amount = amount;
+        this.tax = tax;
+        this.discounts = discounts;
+    }
+
+    public static OrderSnapshot of(com.xeno.assignment.entity.Order order) {
+        return new OrderSnapshot(
+            order.getTenantId(),
+            OrderSource.ASSIGNMENT,
+            order.getId(),
+            order.getCustomer() != null && order.getCustomer().getId() != null ?
+                String.valueOf(order.getCustomer().getId()) : null,
+            order.getOrderDate(),
+            order.getStatus() != null ? order.getStatus().name() : null,
+            valueOf(order.getTotalAmount()),
+            valueOf(order.getTaxAmount()),
+            valueOf(order.getDiscountAmount())
+        );
+    }
+
+    /**
+     * Shopify orders without processed_at are not yet placed and are left out of analytics
+     */
+    public static OrderSnapshot of(Order order) {
+        if (order.getProcessedAt() == null) {
+            return null;
+        }
+        return new OrderSnapshot(
+            order.getTenantId(),
+            OrderSource.SHOPIFY,
+            order.getId(),
+            order.getCustomerShopifyId(),
+            order.getProcessedAt(),
+            order.getFinancialStatus(),
+            valueOf(order.getTotalPrice()),
+            valueOf(order.getTotalTax()),
+            valueOf(order.getTotalDiscounts())
+        );
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private static double valueOf(BigDecimal value) {
+        return value != null ? value.doubleValue() : 0.0;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public OrderSource getSource() {
+        return source;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerKey() {
+        return customerKey;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public double getTax() {
+        return tax;
+    }
+
+    public double getDiscounts() {
+        return discounts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrderSnapshot)) return false;
+        OrderSnapshot that = (OrderSnapshot) o;
+        return Double.compare(that.amount, amount) == 0 &&
+               Double.compare(that.tax, tax) == 0 &&
+               Double.compare(that.discounts, discounts) == 0 &&
+               Objects.equals(tenantId, that.tenantId) &&
+               source == that.source &&
+               Objects.equals(orderId, that.orderId) &&
+               Objects.equals(customerKey, that.customerKey) &&
+               Objects.equals(orderDate, that.orderDate) &&
+               Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tenantId, source, orderId, customerKey, orderDate, status, amount, tax, discounts);
+    }
+}
@@ -0,0 +1,10 @@
+package com.xeno.shopify.event;
+
+/**
+ * Which order table a change came from: Shopify-ingested orders or the
+ * assignment CRUD orders.
+ */
+public enum OrderSource {
+    SHOPIFY,
+    ASSIGNMENT
+}
@@ -0,0 +1,51 @@
+package com.xeno.shopify.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published for each line item of a newly created assignment order, in the order's
+ * transaction. Revenue is the line total; cancellations and deletes publish nothing.
+ */
+public class ProductSoldEvent {
+
+    private final String tenantId;
+    private final Long orderId;
+    private final String productId;
+    private final int quantity;
+    private final double revenue;
+    private final LocalDateTime soldAt;
+
+    public ProductSoldEvent(String tenantId, Long orderId, String productId, int quantity, double revenue,
+                            LocalDateTime soldAt) {
+        this.tenantId = tenantId;
+        this.orderId = orderId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.revenue = revenue;
+        this.soldAt = soldAt;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public LocalDateTime getSoldAt() {
+        return soldAt;
+    }
+}
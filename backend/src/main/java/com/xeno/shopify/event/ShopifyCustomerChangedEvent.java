@@ -0,0 +1,71 @@
+package com.xeno.shopify.event;
+
+import com.xeno.shopify.model.Customer;
+
+import java.math.BigDecimal;
+
+/**
+ * Published inside the transaction that creates or updates a Shopify customer, with
+ * the fields the summary tables aggregate over before and after the write.
+ * {@code before} is null for a new customer.
+ */
+public class ShopifyCustomerChangedEvent {
+
+    private final String tenantId;
+    private final Snapshot before;
+    private final Snapshot after;
+
+    public ShopifyCustomerChangedEvent(String tenantId, Snapshot before, Snapshot after) {
+        this.tenantId = tenantId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Snapshot getBefore() {
+        return before;
+    }
+
+    public Snapshot getAfter() {
+        return after;
+    }
+
+    public static class Snapshot {
+
+        private final Long customerId;
+        private final BigDecimal totalSpent;
+        private final boolean verifiedEmail;
+        private final boolean acceptsMarketing;
+
+        public Snapshot(Long customerId, BigDecimal totalSpent, boolean verifiedEmail, boolean acceptsMarketing) {
+            this.customerId = customerId;
+            this.totalSpent = totalSpent != null ? totalSpent : BigDecimal.ZERO;
+            this.verifiedEmail = verifiedEmail;
+            this.acceptsMarketing = acceptsMarketing;
+        }
+
+        public static Snapshot of(Customer customer) {
+            return new Snapshot(customer.getId(), customer.getTotalSpent(),
+                Boolean.TRUE.equals(customer.getVerifiedEmail()), Boolean.TRUE.equals(customer.getAcceptsMarketing()));
+        }
+
+        public Long getCustomerId() {
+            return customerId;
+        }
+
+        public BigDecimal getTotalSpent() {
+            return totalSpent;
+        }
+
+        public boolean isVerifiedEmail() {
+            return verifiedEmail;
+        }
+
+        public boolean isAcceptsMarketing() {
+            return acceptsMarketing;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.xeno.shopify.event;
+
+import com.xeno.shopify.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Published inside the transaction that creates or updates a Shopify product, with
+ * the fields the summary tables aggregate over before and after the write.
+ * {@code before} is null for a new product.
+ */
+public class ShopifyProductChangedEvent {
+
+    private final String tenantId;
+    private final Snapshot before;
+    private final Snapshot after;
+
+    public ShopifyProductChangedEvent(String tenantId, Snapshot before, Snapshot after) {
+        this.tenantId = tenantId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Snapshot getBefore() {
+        return before;
+    }
+
+    public Snapshot getAfter() {
+        return after;
+    }
+
+    public static class Snapshot {
+
+        private final String status;
+        // Null when the product has no variant price, which averages leave out
+        private final BigDecimal price;
+        private final int inventoryQuantity;
+
+        public Snapshot(String status, BigDecimal price, int inventoryQuantity) {
+            this.status = status;
+            this.price = price;
+            this.inventoryQuantity = inventoryQuantity;
+        }
+
+        public static Snapshot of(Product product) {
+            return new Snapshot(product.getStatus(), product.getPrice(),
+                product.getInventoryQuantity() != null ? product.getInventoryQuantity() : 0);
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public int getInventoryQuantity() {
+            return inventoryQuantity;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.xeno.shopify.event;
+
+/**
+ * Published when a tenant's customers or products change through Shopify ingest or
+ * the assignment CRUD services. Order changes are covered by {@link OrderChangedEvent}.
+ */
+public class TenantDataChangedEvent {
+
+    public enum DataType {
+        CUSTOMERS,
+        PRODUCTS
+    }
+
+    private final String tenantId;
+    private final DataType dataType;
+
+    public TenantDataChangedEvent(String tenantId, DataType dataType) {
+        this.tenantId = tenantId;
+        this.dataType = dataType;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public DataType getDataType() {
+        return dataType;
+    }
+}
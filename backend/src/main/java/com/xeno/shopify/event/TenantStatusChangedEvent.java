@@ -0,0 +1,24 @@
+package com.xeno.shopify.event;
+
+/**
+ * Published after a tenant is activated or deactivated, so components holding
+ * per-tenant state can load or release it.
+ */
+public class TenantStatusChangedEvent {
+
+    private final String tenantId;
+    private final boolean active;
+
+    public TenantStatusChangedEvent(String tenantId, boolean active) {
+        this.tenantId = tenantId;
+        this.active = active;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", indexes = {
+    @Index(name = "idx_tenant_total_spent", columnList = "tenant_id, total_spent")
+})
 public class Customer extends BaseEntity {
 
     @Column(name = "shopify_id", nullable = false)
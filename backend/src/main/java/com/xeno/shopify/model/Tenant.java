@@ -34,6 +34,10 @@ public class Tenant {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
 
+    // IANA zone id that analytics buckets are aligned to
+    @Column(name = "time_zone", length = 64)
+    private String timeZone = "UTC";
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -109,6 +113,14 @@ public class Tenant {
         this.isActive = isActive;
     }
 
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(String timeZone) {
+        this.timeZone = timeZone;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,199 @@
+package com.xeno.shopify.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "webhook_events", indexes = {
+    @Index(name = "idx_tenant_created_id", columnList = "tenant_id, created_at, id")
+})
+public class WebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "shopify_id")
+    private String shopifyId;
+
+    // Uncompressed payload, only populated for rows written before compression was introduced
+    @Column(name = "payload", columnDefinition = "JSON")
+    @JsonIgnore
+    private String rawPayload;
+
+    @Lob
+    @Column(name = "payload_data", columnDefinition = "MEDIUMBLOB")
+    @JsonIgnore
+    private byte[] payloadData;
+
+    @Column(name = "payload_codec", length = 20)
+    private String payloadCodec;
+
+    @Column(name = "dictionary_id")
+    private Long dictionaryId;
+
+    @Column(name = "payload_size")
+    private Integer payloadSize;
+
+    @Column(name = "processed")
+    private Boolean processed = false;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Decoded payload, filled in on receipt or by WebhookPayloadCodec on read
+    @Transient
+    private String payload;
+
+    // True when the row was read from webhook_events_archive
+    @Transient
+    private boolean archived;
+
+    // Constructors
+    public WebhookEvent() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public WebhookEvent(String tenantId, String eventType, String shopifyId, String payload) {
+        this();
+        this.tenantId = tenantId;
+        this.eventType = eventType;
+        this.shopifyId = shopifyId;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getShopifyId() {
+        return shopifyId;
+    }
+
+    public void setShopifyId(String shopifyId) {
+        this.shopifyId = shopifyId;
+    }
+
+    public String getRawPayload() {
+        return rawPayload;
+    }
+
+    public void setRawPayload(String rawPayload) {
+        this.rawPayload = rawPayload;
+    }
+
+    public byte[] getPayloadData() {
+        return payloadData;
+    }
+
+    public void setPayloadData(byte[] payloadData) {
+        this.payloadData = payloadData;
+    }
+
+    public String getPayloadCodec() {
+        return payloadCodec;
+    }
+
+    public void setPayloadCodec(String payloadCodec) {
+        this.payloadCodec = payloadCodec;
+    }
+
+    public Long getDictionaryId() {
+        return dictionaryId;
+    }
+
+    public void setDictionaryId(Long dictionaryId) {
+        this.dictionaryId = dictionaryId;
+    }
+
+    public Integer getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(Integer payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Boolean getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Boolean processed) {
+        this.processed = processed;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+}
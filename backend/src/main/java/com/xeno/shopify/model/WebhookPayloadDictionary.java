@@ -0,0 +1,82 @@
+package com.xeno.shopify.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "webhook_payload_dictionaries", indexes = {
+    @Index(name = "idx_topic_created", columnList = "topic, created_at")
+})
+public class WebhookPayloadDictionary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false, length = 100)
+    private String topic;
+
+    @Lob
+    @Column(name = "dictionary", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] dictionary;
+
+    @Column(name = "sample_count", nullable = false)
+    private Integer sampleCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public WebhookPayloadDictionary() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public WebhookPayloadDictionary(String topic, byte[] dictionary, Integer sampleCount) {
+        this();
+        this.topic = topic;
+        this.dictionary = dictionary;
+        this.sampleCount = sampleCount;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public Integer getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Integer sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
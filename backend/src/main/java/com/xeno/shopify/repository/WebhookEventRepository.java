@@ -0,0 +1,31 @@
+package com.xeno.shopify.repository;
+
+import com.xeno.shopify.model.WebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+    
+    List<WebhookEvent> findByTenantIdAndProcessed(String tenantId, Boolean processed);
+    
+    long countByTenantIdAndProcessed(String tenantId, Boolean processed);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.processed = :processed, e.errorMessage = :errorMessage, " +
+           "e.processedAt = :processedAt WHERE e.id = :id")
+    int markProcessed(
+        @Param("id") Long id,
+        @Param("processed") Boolean processed,
+        @Param("errorMessage") String errorMessage,
+        @Param("processedAt") LocalDateTime processedAt
+    );
+}
@@ -0,0 +1,13 @@
+package com.xeno.shopify.repository;
+
+import com.xeno.shopify.model.WebhookPayloadDictionary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WebhookPayloadDictionaryRepository extends JpaRepository<WebhookPayloadDictionary, Long> {
+    
+    Optional<WebhookPayloadDictionary> findFirstByTopicOrderByCreatedAtDesc(String topic);
+}
@@ -0,0 +1,88 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of analytics results, keyed by tenant, query and parameters.
+ *
+ * Entries are weighed by the number of rows they hold, so one long trend series
+ * counts for as much as many small dashboards. The tenant's data version is part of
+ * every key; a change to the tenant's orders, customers or products raises it after the
+ * writing transaction commits, which makes all of the tenant's earlier results
+ * unreachable at once. A read that raced the write was keyed under the old version, so
+ * it can never be served afterwards. Orphaned entries are no longer read and age out
+ * under the weight bound.
+ */
+@Service
+public class AnalyticsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsCache.class);
+
+    private final Cache<List<Object>, Object> cache;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    public AnalyticsCache(MeterRegistry meterRegistry,
+                          @Value("${analytics.cache.max-weight:200000}") long maxWeight,
+                          @Value("${analytics.cache.expire-after-write-minutes:15}") long expireAfterWriteMinutes) {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxWeight)
+            .weigher((List<Object> key, Object value) -> weigh(value))
+            // Bounds staleness of "today"-relative windows such as recent orders
+            .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "analytics");
+    }
+
+    /**
+     * Return the cached result for this tenant, query and parameters, loading it on a miss
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String tenantId, String query, Supplier<T> loader, Object... params) {
+        List<Object> key = new ArrayList<>(params.length + 3);
+        key.add(tenantId);
+        key.add(dataVersionService.current(tenantId));
+        key.add(query);
+        key.addAll(Arrays.asList(params));
+        return (T) cache.get(key, k -> loader.get());
+    }
+
+    public void invalidateTenant(String tenantId) {
+        dataVersionService.bump(tenantId);
+        logger.debug("Invalidated analytics cache for tenant: {}", tenantId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return 1 + collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 1 + map.size();
+        }
+        return 1;
+    }
+}
@@ -5,83 +5,185 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import com.xeno.shopify.dto.DashboardMetrics;
+import com.xeno.shopify.dto.CohortRetention;
 import com.xeno.shopify.dto.CustomerAnalytics;
 import com.xeno.shopify.dto.OrderTrends;
+import com.xeno.shopify.dto.RfmSegments;
+import com.xeno.shopify.dto.TrendingProduct;
+import com.xeno.shopify.dto.UniqueCustomers;
+import com.xeno.shopify.analytics.HyperLogLog;
+import com.xeno.shopify.analytics.TimeBuckets;
+import com.xeno.shopify.analytics.TimeBuckets.Granularity;
+import com.xeno.shopify.event.OrderSource;
+import com.xeno.assignment.entity.Customer;
 import com.xeno.assignment.service.CustomerService;
-import com.xeno.assignment.service.OrderService;
 import com.xeno.assignment.service.ProductService;
 
-import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AnalyticsService {
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
-    
+
     @Autowired
-    private CustomerService customerService;
+    private AnalyticsCache analyticsCache;
+
+    @Autowired
+    private OrderStoreService orderStoreService;
+
+    @Autowired
+    private QueryFanOut queryFanOut;
+
+    @Autowired
+    private TrendingProductsService trendingProductsService;
+
+    @Autowired
+    private CustomerLeaderboardService customerLeaderboardService;
+
+    @Autowired
+    private FulfilmentLatencyService fulfilmentLatencyService;
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Autowired
+    private RfmSegmentationService rfmSegmentationService;
+
+    @Autowired
+    private SummaryTableService summaryTableService;
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+
+    @Autowired
+    private TenantService tenantService;
     
     @Autowired
-    private OrderService orderService;
+    private CustomerService customerService;
     
     @Autowired
     private ProductService productService;
 
     public DashboardMetrics getDashboardMetrics(String tenantId) {
-        DashboardMetrics metrics = new DashboardMetrics();
+        return analyticsCache.get(tenantId, "dashboard", () -> loadDashboardMetrics(tenantId));
+    }
 
-        // Use new service methods
-        metrics.setTotalCustomers(customerService.getCustomerCount(tenantId));
-        metrics.setTotalOrders(orderService.getOrderCount(tenantId));
-        metrics.setTotalRevenue(orderService.getTotalRevenue(tenantId));
-        metrics.setTotalProducts(productService.getProductCount(tenantId));
-        
-        // Calculate average order value
-        Long totalOrders = orderService.getOrderCount(tenantId);
-        Double totalRevenue = orderService.getTotalRevenue(tenantId);
-        if (totalOrders > 0) {
-            metrics.setAverageOrderValue(totalRevenue / totalOrders);
-        } else {
-            metrics.setAverageOrderValue(0.0);
-        }
+    private DashboardMetrics loadDashboardMetrics(String tenantId) {
+        LocalDate today = LocalDate.now();
+        // The last seven days, today included
+        LocalDate weekStart = today.minusDays(6);
+        LocalDate thisMonthStart = today.withDayOfMonth(1);
+        LocalDate lastMonthStart = thisMonthStart.minusMonths(1);
+        LocalDate lastMonthEnd = thisMonthStart.minusDays(1);
 
-        // Recent Orders (Last 7 days)
-        LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-        LocalDateTime now = LocalDateTime.now();
-        Long recentOrders = orderService.getOrderCountByDateRange(tenantId, sevenDaysAgo, now);
-        metrics.setRecentOrders(recentOrders);
-
-        // Growth metrics (month over month)
-        LocalDateTime thisMonthStart = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime thisMonthEnd = LocalDateTime.now();
-        LocalDateTime lastMonthStart = thisMonthStart.minusMonths(1);
-        LocalDateTime lastMonthEnd = thisMonthStart.minusSeconds(1);
-        
-        Long thisMonthOrders = orderService.getOrderCountByDateRange(tenantId, thisMonthStart, thisMonthEnd);
-        Long lastMonthOrders = orderService.getOrderCountByDateRange(tenantId, lastMonthStart, lastMonthEnd);
-
-        if (lastMonthOrders != null && lastMonthOrders > 0) {
-            double growth = ((thisMonthOrders != null ? thisMonthOrders : 0L) - lastMonthOrders) * 100.0 / lastMonthOrders;
-            metrics.setOrdersGrowthPercent(growth);
-        } else {
-            metrics.setOrdersGrowthPercent(0.0);
-        }
+        // The three counts touch different tables, so they run side by side
+        CompletableFuture<Long> totalCustomers = queryFanOut.submit(() -> jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM assignment_customers WHERE tenant_id = ?", Long.class, tenantId));
+        CompletableFuture<Long> totalProducts = queryFanOut.submit(() -> jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM assignment_products WHERE tenant_id = ? AND is_active = TRUE", Long.class, tenantId));
+
+        // Order figures come from the daily rollups, so the cost is one row per day
+        // of history rather than one per order
+        String query = """
+            SELECT
+                COALESCE(SUM(orders_count), 0) as total_orders,
+                COALESCE(SUM(revenue), 0) as total_revenue,
+                COALESCE(SUM(CASE WHEN metric_date BETWEEN ? AND ? THEN orders_count ELSE 0 END), 0) as recent_orders,
+                COALESCE(SUM(CASE WHEN metric_date BETWEEN ? AND ? THEN orders_count ELSE 0 END), 0) as this_month_orders,
+                COALESCE(SUM(CASE WHEN metric_date BETWEEN ? AND ? THEN orders_count ELSE 0 END), 0) as last_month_orders
+            FROM daily_tenant_metrics
+            WHERE tenant_id = ? AND source = 'ASSIGNMENT'
+        """;
 
+        CompletableFuture<DashboardMetrics> orderMetrics = queryFanOut.submit(() ->
+            jdbcTemplate.queryForObject(query, (rs, rowNum) -> {
+                DashboardMetrics metrics = new DashboardMetrics();
+                long totalOrders = rs.getLong("total_orders");
+                double totalRevenue = rs.getDouble("total_revenue");
+
+                metrics.setTotalOrders(totalOrders);
+                metrics.setTotalRevenue(totalRevenue);
+                metrics.setAverageOrderValue(totalOrders > 0 ? totalRevenue / totalOrders : 0.0);
+                metrics.setRecentOrders(rs.getLong("recent_orders"));
+
+                // Growth metrics (month over month)
+                long thisMonthOrders = rs.getLong("this_month_orders");
+                long lastMonthOrders = rs.getLong("last_month_orders");
+                metrics.setOrdersGrowthPercent(lastMonthOrders > 0 ?
+                    (thisMonthOrders - lastMonthOrders) * 100.0 / lastMonthOrders : 0.0);
+                return metrics;
+            },
+                Date.valueOf(weekStart), Date.valueOf(today),
+                Date.valueOf(thisMonthStart), Date.valueOf(today),
+                Date.valueOf(lastMonthStart), Date.valueOf(lastMonthEnd),
+                tenantId));
+
+        queryFanOut.awaitAll(totalCustomers, totalProducts, orderMetrics);
+
+        DashboardMetrics metrics = orderMetrics.join();
+        metrics.setTotalCustomers(totalCustomers.join());
+        metrics.setTotalProducts(totalProducts.join());
         return metrics;
     }
 
     public List<CustomerAnalytics> getTopCustomers(String tenantId, int limit) {
+        if (customerLeaderboardService.isReady()) {
+            // The leaderboard orders the ids; only the top customers' rows are read
+            List<Long> ids = customerLeaderboardService.getTopCustomerIds(tenantId, limit);
+            Map<Long, Customer> customersById = new HashMap<>();
+            for (Customer customer : customerService.getCustomersByIds(tenantId, ids)) {
+                customersById.put(customer.getId(), customer);
+            }
+            List<Customer> customers = new ArrayList<>();
+            for (Long id : ids) {
+                if (customersById.containsKey(id)) {
+                    customers.add(customersById.get(id));
+                }
+            }
+            return toCustomerAnalytics(customers);
+        }
+        return analyticsCache.get(tenantId, "topCustomers", () -> loadTopCustomers(tenantId, limit), limit);
+    }
+
+    /**
+     * A customer's 1-based position by total spend within the tenant, or 0 if unknown
+     */
+    public int getCustomerRank(String tenantId, Long customerId) {
+        if (customerLeaderboardService.isReady()) {
+            return customerLeaderboardService.getRank(tenantId, customerId);
+        }
+        List<Integer> ranks = jdbcTemplate.queryForList("""
+            SELECT 1 + (
+                SELECT COUNT(*) FROM assignment_customers o
+                WHERE o.tenant_id = c.tenant_id
+                  AND (o.total_spent > c.total_spent OR (o.total_spent = c.total_spent AND o.id < c.id))
+            )
+            FROM assignment_customers c
+            WHERE c.tenant_id = ? AND c.id = ?
+        """, Integer.class, tenantId, customerId);
+        return ranks.isEmpty() ? 0 : ranks.get(0);
+    }
+
+    private List<CustomerAnalytics> loadTopCustomers(String tenantId, int limit) {
         // Use new CustomerService
-        var customers = customerService.getTopCustomersBySpending(tenantId, limit);
-        
+        return toCustomerAnalytics(customerService.getTopCustomersBySpending(tenantId, limit));
+    }
+
+    private List<CustomerAnalytics> toCustomerAnalytics(List<Customer> customers) {
         List<CustomerAnalytics> analytics = new ArrayList<>();
         for (var customer : customers) {
             CustomerAnalytics ca = new CustomerAnalytics();
@@ -98,51 +200,234 @@ public class AnalyticsService {
     }
 
     public List<OrderTrends> getOrderTrends(String tenantId, LocalDate startDate, LocalDate endDate) {
-        // Use new OrderService
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
-        
-        List<Object[]> analytics = orderService.getDailyOrdersAnalytics(tenantId, startDateTime, endDateTime);
-        
+        return getOrderTrends(tenantId, startDate, endDate, Granularity.DAY);
+    }
+
+    /**
+     * Assignment order counts and revenue per bucket of the tenant's time zone, buckets
+     * without orders omitted
+     */
+    public List<OrderTrends> getOrderTrends(String tenantId, LocalDate startDate, LocalDate endDate,
+                                            Granularity granularity) {
+        TimeBuckets buckets = TimeBuckets.between(startDate, endDate, granularity, tenantService.getZone(tenantId));
+        if (orderStoreService.isReady(OrderSource.ASSIGNMENT, tenantId)) {
+            return loadOrderTrends(tenantId, buckets);
+        }
+        return analyticsCache.get(tenantId, "orderTrends",
+            () -> loadOrderTrends(tenantId, buckets), startDate, endDate, granularity, buckets.getZone());
+    }
+
+    private List<OrderTrends> loadOrderTrends(String tenantId, TimeBuckets buckets) {
+        long[] counts = new long[buckets.size()];
+        long[] cents = new long[buckets.size()];
+        sumByBucket(OrderSource.ASSIGNMENT, tenantId, null, buckets, counts, cents);
+
         List<OrderTrends> trends = new ArrayList<>();
-        for (Object[] row : analytics) {
-            OrderTrends trend = new OrderTrends();
-            trend.setDate(((java.sql.Date) row[0]).toLocalDate());
-            trend.setOrderCount((Long) row[1]);
-            trend.setRevenue(((BigDecimal) row[2]).doubleValue());
-            trends.add(trend);
+        for (int bucket = 0; bucket < buckets.size(); bucket++) {
+            if (counts[bucket] > 0) {
+                OrderTrends trend = new OrderTrends();
+                trend.setDate(buckets.start(bucket).toLocalDate());
+                trend.setPeriod(buckets.label(bucket));
+                trend.setOrderCount(counts[bucket]);
+                trend.setRevenue(cents[bucket] / 100.0);
+                trends.add(trend);
+            }
         }
-        
         return trends;
     }
 
+    /**
+     * Paid Shopify revenue per month (yyyy-MM) of the tenant's time zone over the last
+     * 12 months
+     */
     public Map<String, Double> getMonthlyRevenue(String tenantId) {
+        ZoneId zone = tenantService.getZone(tenantId);
+        LocalDate today = LocalDate.now(zone);
+        TimeBuckets buckets = TimeBuckets.between(today.minusMonths(12), today, Granularity.MONTH, zone);
+        if (orderStoreService.isReady(OrderSource.SHOPIFY, tenantId)) {
+            return loadMonthlyRevenue(tenantId, buckets);
+        }
+        return analyticsCache.get(tenantId, "monthlyRevenue", () -> loadMonthlyRevenue(tenantId, buckets), today, zone);
+    }
+
+    private Map<String, Double> loadMonthlyRevenue(String tenantId, TimeBuckets buckets) {
+        long[] counts = new long[buckets.size()];
+        long[] cents = new long[buckets.size()];
+        sumByBucket(OrderSource.SHOPIFY, tenantId, "paid", buckets, counts, cents);
+
+        Map<String, Double> monthlyRevenue = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < buckets.size(); bucket++) {
+            if (counts[bucket] > 0) {
+                monthlyRevenue.put(buckets.label(bucket), cents[bucket] / 100.0);
+            }
+        }
+        return monthlyRevenue;
+    }
+
+    /**
+     * Add the tenant's orders, all of them or those with one status, into the buckets.
+     * Reads the order store when it is loaded, else (also when the store is released or
+     * reloaded mid-request) the daily rollups when the buckets are whole UTC days, else
+     * the orders in the range from the order table; in every case the rows are matched
+     * by range and placed into buckets here.
+     */
+    public void sumByBucket(OrderSource source, String tenantId, String status, TimeBuckets buckets,
+                            long[] counts, long[] cents) {
+        if (orderStoreService.sumByBucket(source, tenantId, status, buckets.epochSecondBoundaries(), counts, cents)) {
+            return;
+        }
+
+        if (buckets.alignsWithUtcDays()) {
+            long[] boundaries = buckets.epochDayBoundaries();
+            String query = status == null ? """
+                SELECT metric_date, orders_count, revenue
+                FROM daily_tenant_metrics
+                WHERE tenant_id = ? AND source = ? AND metric_date >= ? AND metric_date < ?
+            """ : """
+                SELECT metric_date, orders_count, revenue
+                FROM daily_tenant_status_metrics
+                WHERE tenant_id = ? AND source = ? AND metric_date >= ? AND metric_date < ? AND status = ?
+            """;
+            List<Object> args = new ArrayList<>(List.of(tenantId, source.name(),
+                Date.valueOf(LocalDate.ofEpochDay(boundaries[0])),
+                Date.valueOf(LocalDate.ofEpochDay(boundaries[boundaries.length - 1]))));
+            if (status != null) {
+                args.add(status);
+            }
+            jdbcTemplate.query(query, rs -> {
+                int bucket = TimeBuckets.bucketOf(boundaries, rs.getDate("metric_date").toLocalDate().toEpochDay());
+                if (bucket >= 0) {
+                    counts[bucket] += rs.getLong("orders_count");
+                    cents[bucket] += Math.round(rs.getDouble("revenue") * 100);
+                }
+            }, args.toArray());
+            return;
+        }
+
+        long[] boundaries = buckets.epochSecondBoundaries();
+        String query = source == OrderSource.ASSIGNMENT ? """
+            SELECT order_date as ordered_at, total_amount as amount
+            FROM assignment_orders
+            WHERE tenant_id = ? AND order_date >= ? AND order_date < ?
+        """ : """
+            SELECT processed_at as ordered_at, total_price as amount
+            FROM orders
+            WHERE tenant_id = ? AND processed_at >= ? AND processed_at < ?
+        """;
+        List<Object> args = new ArrayList<>(List.of(tenantId,
+            Timestamp.valueOf(LocalDateTime.ofEpochSecond(boundaries[0], 0, ZoneOffset.UTC)),
+            Timestamp.valueOf(LocalDateTime.ofEpochSecond(boundaries[boundaries.length - 1], 0, ZoneOffset.UTC))));
+        if (status != null) {
+            query += source == OrderSource.ASSIGNMENT ? " AND status = ?" : " AND financial_status = ?";
+            args.add(status);
+        }
+        jdbcTemplate.query(query, rs -> {
+            long second = rs.getTimestamp("ordered_at").toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+            int bucket = TimeBuckets.bucketOf(boundaries, second);
+            if (bucket >= 0) {
+                counts[bucket]++;
+                cents[bucket] += Math.round(rs.getDouble("amount") * 100);
+            }
+        }, args.toArray());
+    }
+
+    public Map<String, Long> getOrdersByStatus(String tenantId) {
+        Map<String, Long> ordersByStatus = orderStoreService.getOrdersByStatus(tenantId);
+        if (ordersByStatus != null) {
+            return ordersByStatus;
+        }
+        return analyticsCache.get(tenantId, "ordersByStatus", () -> loadOrdersByStatus(tenantId));
+    }
+
+    private Map<String, Long> loadOrdersByStatus(String tenantId) {
         String query = """
-            SELECT 
-                DATE_FORMAT(processed_at, '%Y-%m') as month,
-                COALESCE(SUM(total_price), 0) as revenue
-            FROM orders 
-            WHERE tenant_id = ? 
-                AND processed_at >= DATE_SUB(NOW(), INTERVAL 12 MONTH)
-                AND financial_status = 'paid'
-            GROUP BY DATE_FORMAT(processed_at, '%Y-%m')
-            ORDER BY month
+            SELECT status, SUM(orders_count) as orders_count
+            FROM daily_tenant_status_metrics
+            WHERE tenant_id = ? AND source = 'ASSIGNMENT'
+            GROUP BY status
+            HAVING SUM(orders_count) > 0
         """;
 
-        Map<String, Double> monthlyRevenue = new HashMap<>();
+        Map<String, Long> statusCounts = new HashMap<>();
         jdbcTemplate.query(query, rs -> {
-            monthlyRevenue.put(rs.getString("month"), rs.getBigDecimal("revenue").doubleValue());
+            statusCounts.put(rs.getString("status"), rs.getLong("orders_count"));
         }, tenantId);
 
-        return monthlyRevenue;
+        return statusCounts;
     }
 
-    public Map<String, Long> getOrdersByStatus(String tenantId) {
-        // Use new OrderService
-        return orderService.getOrderStatusCounts(tenantId);
+    /**
+     * Estimated distinct customers with assignment orders between the two dates, inclusive.
+     * Merges one HyperLogLog per day, so the cost grows with the days in the range and
+     * not with the number of orders or customers.
+     */
+    public UniqueCustomers getUniqueCustomers(String tenantId, LocalDate startDate, LocalDate endDate) {
+        return analyticsCache.get(tenantId, "uniqueCustomers",
+            () -> loadUniqueCustomers(tenantId, startDate, endDate), startDate, endDate);
+    }
+
+    private UniqueCustomers loadUniqueCustomers(String tenantId, LocalDate startDate, LocalDate endDate) {
+        String query = """
+            SELECT sketch
+            FROM daily_tenant_customer_sketches
+            WHERE tenant_id = ? AND source = 'ASSIGNMENT' AND metric_date BETWEEN ? AND ?
+        """;
+
+        HyperLogLog merged = new HyperLogLog();
+        jdbcTemplate.query(query, rs -> {
+            merged.merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        }, tenantId, Date.valueOf(startDate), Date.valueOf(endDate));
+
+        UniqueCustomers uniqueCustomers = new UniqueCustomers();
+        uniqueCustomers.setStartDate(startDate);
+        uniqueCustomers.setEndDate(endDate);
+        uniqueCustomers.setUniqueCustomers(merged.estimate());
+        uniqueCustomers.setRelativeStandardError(HyperLogLog.RELATIVE_STANDARD_ERROR);
+        return uniqueCustomers;
+    }
+
+    /**
+     * Best sellers by units or revenue over the last 1 to 30 days, from in-memory
+     * heavy-hitter summaries rather than the all-time product totals
+     */
+    public List<TrendingProduct> getTrendingProducts(String tenantId, int days,
+                                                     TrendingProductsService.Metric metric, int limit) {
+        return trendingProductsService.getTrendingProducts(tenantId, days, metric, limit);
+    }
+
+    /**
+     * p50/p90/p99 order-to-ship and ship-to-deliver times for orders fulfilled in the range
+     */
+    public Map<String, Map<String, Long>> getFulfilmentLatency(String tenantId, LocalDate startDate, LocalDate endDate) {
+        return analyticsCache.get(tenantId, "fulfilmentLatency",
+            () -> fulfilmentLatencyService.getPercentiles(tenantId, startDate, endDate), startDate, endDate);
+    }
+
+    public List<CohortRetention> getCohortRetention(String tenantId, YearMonth since) {
+        return cohortRetentionService.getRetention(tenantId, since);
+    }
+
+    public RfmSegments getRfmSegments(String tenantId) {
+        return rfmSegmentationService.getSegments(tenantId);
+    }
+
+    public Map<String, Object> getStoreSummary(String tenantId) {
+        return summaryTableService.getSummary(tenantId);
+    }
+
+    public List<Map<String, Object>> getStoreTopCustomers(String tenantId, int limit) {
+        return summaryTableService.getTopCustomers(tenantId, limit);
+    }
+
+    public Map<String, Object> getOrderRateAnomalies(String tenantId) {
+        return anomalyDetectionService.getTenantAnomalies(tenantId);
     }
 
     public List<Map<String, Object>> getTopProducts(String tenantId, int limit) {
+        return analyticsCache.get(tenantId, "topProducts", () -> loadTopProducts(tenantId, limit), limit);
+    }
+
+    private List<Map<String, Object>> loadTopProducts(String tenantId, int limit) {
         // Use new ProductService
         var products = productService.getTopRevenueProducts(tenantId, limit);
         
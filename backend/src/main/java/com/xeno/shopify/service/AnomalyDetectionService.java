@@ -0,0 +1,345 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.OrderRateBaseline;
+import com.xeno.shopify.analytics.OrderRateBaseline.Anomaly;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.TenantStatusChangedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Alerts on tenants whose order or revenue rate deviates sharply from its usual level
+ * at that time of week, such as a webhook outage or a broken checkout.
+ *
+ * Each committed new order is counted into its tenant's {@link OrderRateBaseline} at
+ * its own order time, and a tick closes the intervals of tenants that went quiet, which
+ * is how an outage shows up at all. Orders placed before the open interval, such as
+ * those a sync or import backfills, are left out: their intervals are already scored,
+ * and counting them now would show as a spike here and a drop back then. Baselines are seeded at startup by replaying a few weeks
+ * of order history once; after that no query runs. Anomalies are logged, counted in the
+ * analytics.anomalies metric and kept per tenant for the API. The metric is not tagged
+ * by tenant, to keep its cardinality independent of the number of tenants.
+ */
+@Service
+public class AnomalyDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyDetectionService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Value("${analytics.anomalies.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.anomalies.interval-minutes:15}")
+    private int intervalMinutes;
+
+    @Value("${analytics.anomalies.alpha:0.1}")
+    private double alpha;
+
+    @Value("${analytics.anomalies.threshold:4.0}")
+    private double threshold;
+
+    @Value("${analytics.anomalies.warmup-intervals:8}")
+    private int warmupIntervals;
+
+    @Value("${analytics.anomalies.seed-weeks:4}")
+    private int seedWeeks;
+
+    @Value("${analytics.anomalies.recent:20}")
+    private int recent;
+
+    private OrderRateBaseline.Settings settings;
+
+    private final Map<String, TenantRate> rates = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        settings = new OrderRateBaseline.Settings(intervalMinutes * 60L, alpha, threshold, warmupIntervals);
+        Gauge.builder("analytics.anomalies.active", this, AnomalyDetectionService::activeCount)
+            .description("Tenants whose last closed interval was anomalous")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        if (enabled) {
+            loaderExecutor.execute(this::seedAll);
+        }
+    }
+
+    /**
+     * Replay the last seed-weeks of orders into fresh baselines, keeping whatever live
+     * events have counted since startup
+     */
+    public void seedAll() {
+        long started = System.currentTimeMillis();
+        long now = Instant.now().getEpochSecond();
+        long intervalSeconds = settings.getIntervalSeconds();
+        long from = (now - seedWeeks * 7L * 86400) / intervalSeconds;
+        long to = now / intervalSeconds;
+        Timestamp since = Timestamp.valueOf(LocalDateTime.ofEpochSecond(from * intervalSeconds, 0, ZoneOffset.UTC));
+
+        // tenant -> interval -> {orders, cents}
+        Map<String, TreeMap<Long, long[]>> history = new HashMap<>();
+        String[] queries = {
+            """
+            SELECT tenant_id, FLOOR(TIMESTAMPDIFF(SECOND, '1970-01-01', order_date) / ?) as bucket,
+                COUNT(*) as orders_count, COALESCE(SUM(total_amount), 0) as revenue
+            FROM assignment_orders
+            WHERE order_date >= ?
+            GROUP BY tenant_id, bucket
+            """,
+            """
+            SELECT tenant_id, FLOOR(TIMESTAMPDIFF(SECOND, '1970-01-01', processed_at) / ?) as bucket,
+                COUNT(*) as orders_count, COALESCE(SUM(total_price), 0) as revenue
+            FROM orders
+            WHERE processed_at >= ?
+            GROUP BY tenant_id, bucket
+            """
+        };
+        for (String query : queries) {
+            jdbcTemplate.query(query, rs -> {
+                long[] interval = history.computeIfAbsent(rs.getString("tenant_id"), id -> new TreeMap<>())
+                    .computeIfAbsent(rs.getLong("bucket"), b -> new long[2]);
+                interval[0] += rs.getLong("orders_count");
+                interval[1] += Math.round(rs.getDouble("revenue") * 100);
+            }, intervalSeconds, since);
+        }
+
+        history.keySet().removeAll(jdbcTemplate.queryForList(
+            "SELECT tenant_id FROM tenants WHERE is_active = FALSE", String.class));
+        history.forEach((tenantId, intervals) -> {
+            OrderRateBaseline seeded = new OrderRateBaseline(settings);
+            for (long interval = from; interval < to; interval++) {
+                long start = interval * intervalSeconds;
+                seeded.advance(start, null);
+                long[] counts = intervals.get(interval);
+                if (counts != null) {
+                    seeded.record(start, (int) counts[0], counts[1], null);
+                }
+            }
+            rates.compute(tenantId, (id, live) -> {
+                TenantRate rate = new TenantRate(seeded);
+                if (live != null) {
+                    seeded.carryOver(live.baseline);
+                    rate.anomalies.addAll(live.anomalies);
+                }
+                return rate;
+            });
+        });
+        logger.info("Seeded order rate baselines for {} tenants in {} ms",
+            history.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!enabled || !event.isCreated()) {
+            return;
+        }
+        long now = Instant.now().getEpochSecond();
+        LocalDateTime orderDate = event.getAfter().getOrderDate();
+        // UTC, as in the seed queries; a clock ahead of ours counts in the open interval
+        long placed = orderDate != null ? Math.min(orderDate.toEpochSecond(ZoneOffset.UTC), now) : now;
+        long intervalSeconds = settings.getIntervalSeconds();
+        if (placed / intervalSeconds < now / intervalSeconds) {
+            return;
+        }
+
+        String tenantId = event.getTenantId();
+        TenantRate rate = rates.computeIfAbsent(tenantId, id -> new TenantRate(new OrderRateBaseline(settings)));
+        List<Anomaly> found = new ArrayList<>();
+        rate.baseline.record(placed, 1, Math.round(event.getAfter().getAmount() * 100), found);
+        report(tenantId, rate, found);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantStatusChanged(TenantStatusChangedEvent event) {
+        if (!event.isActive()) {
+            rates.remove(event.getTenantId());
+        }
+    }
+
+    /**
+     * Close the intervals of tenants that have had no orders since they ended
+     */
+    @Scheduled(fixedDelayString = "${analytics.anomalies.tick-ms:60000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        long now = Instant.now().getEpochSecond();
+        rates.forEach((tenantId, rate) -> {
+            List<Anomaly> found = new ArrayList<>();
+            rate.baseline.advance(now, found);
+            report(tenantId, rate, found);
+        });
+    }
+
+    /**
+     * The tenant's current interval against its baseline, and its recent anomalies
+     */
+    public Map<String, Object> getTenantAnomalies(String tenantId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        TenantRate rate = rates.get(tenantId);
+        if (rate == null) {
+            result.put("current", null);
+            result.put("anomalies", List.of());
+            return result;
+        }
+        OrderRateBaseline.Expectation current = rate.baseline.current();
+        Map<String, Object> interval = new LinkedHashMap<>();
+        interval.put("start", Instant.ofEpochSecond(current.getIntervalStart()).toString());
+        interval.put("minutes", intervalMinutes);
+        interval.put("orders", current.getOrders());
+        interval.put("revenue", current.getCents() / 100.0);
+        interval.put("expectedOrders", current.getExpectedOrders());
+        interval.put("expectedRevenue", current.getExpectedCents() / 100.0);
+        interval.put("warm", current.isWarm());
+        result.put("current", interval);
+
+        List<Map<String, Object>> anomalies = new ArrayList<>();
+        synchronized (rate) {
+            rate.anomalies.descendingIterator().forEachRemaining(anomaly -> anomalies.add(toMap(tenantId, anomaly)));
+        }
+        result.put("anomalies", anomalies);
+        return result;
+    }
+
+    /**
+     * The latest anomalies of every tenant whose last closed interval was anomalous
+     */
+    public List<Map<String, Object>> getActiveAnomalies() {
+        List<Map<String, Object>> active = new ArrayList<>();
+        rates.forEach((tenantId, rate) -> {
+            synchronized (rate) {
+                if (rate.active) {
+                    rate.anomalies.descendingIterator().forEachRemaining(anomaly -> {
+                        if (anomaly.getIntervalStart() == rate.lastAnomalous) {
+                            active.add(toMap(tenantId, anomaly));
+                        }
+                    });
+                }
+            }
+        });
+        return active;
+    }
+
+    private void report(String tenantId, TenantRate rate, List<Anomaly> found) {
+        if (found.isEmpty()) {
+            if (rate.active) {
+                // Clear once an interval after the anomalous one has closed cleanly
+                long current = rate.baseline.current().getIntervalStart();
+                synchronized (rate) {
+                    if (current > rate.lastAnomalous + settings.getIntervalSeconds()) {
+                        rate.active = false;
+                    }
+                }
+            }
+            return;
+        }
+        synchronized (rate) {
+            for (Anomaly anomaly : found) {
+                rate.anomalies.addLast(anomaly);
+                if (rate.anomalies.size() > recent) {
+                    rate.anomalies.removeFirst();
+                }
+                rate.lastAnomalous = Math.max(rate.lastAnomalous, anomaly.getIntervalStart());
+            }
+            rate.active = true;
+        }
+        for (Anomaly anomaly : found) {
+            counter(anomaly).increment();
+            logger.warn("Order rate anomaly for tenant {}: {} {} in interval starting {}, observed {} expected {} (score {})",
+                tenantId, anomaly.getMetric(), anomaly.getDirection(), Instant.ofEpochSecond(anomaly.getIntervalStart()),
+                format(anomaly, anomaly.getObserved()), format(anomaly, anomaly.getExpected()),
+                String.format("%.1f", anomaly.getScore()));
+        }
+    }
+
+    private Counter counter(Anomaly anomaly) {
+        String metric = anomaly.getMetric().name().toLowerCase();
+        String direction = anomaly.getDirection().name().toLowerCase();
+        return counters.computeIfAbsent(metric + "." + direction, key -> Counter.builder("analytics.anomalies")
+            .description("Order and revenue rate anomalies detected across tenants")
+            .tag("metric", metric)
+            .tag("direction", direction)
+            .register(meterRegistry));
+    }
+
+    private long activeCount() {
+        return rates.values().stream().filter(rate -> rate.active).count();
+    }
+
+    private Map<String, Object> toMap(String tenantId, Anomaly anomaly) {
+        boolean revenue = anomaly.getMetric() == OrderRateBaseline.Metric.REVENUE;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("tenantId", tenantId);
+        map.put("metric", anomaly.getMetric().name().toLowerCase());
+        map.put("direction", anomaly.getDirection().name().toLowerCase());
+        map.put("intervalStart", Instant.ofEpochSecond(anomaly.getIntervalStart()).toString());
+        map.put("intervalMinutes", intervalMinutes);
+        map.put("observed", revenue ? anomaly.getObserved() / 100.0 : anomaly.getObserved());
+        map.put("expected", revenue ? anomaly.getExpected() / 100.0 : anomaly.getExpected());
+        map.put("score", anomaly.getScore());
+        return map;
+    }
+
+    private static String format(Anomaly anomaly, double value) {
+        return anomaly.getMetric() == OrderRateBaseline.Metric.REVENUE ?
+            String.format("%.2f", value / 100.0) : String.format("%.1f", value);
+    }
+
+    // A tenant's baseline and its recent anomalies, oldest first; anomalies, active and
+    // lastAnomalous are guarded by the TenantRate's monitor
+    private static final class TenantRate {
+        final OrderRateBaseline baseline;
+        final Deque<Anomaly> anomalies = new ArrayDeque<>();
+        volatile boolean active;
+        long lastAnomalous = Long.MIN_VALUE;
+
+        TenantRate(OrderRateBaseline baseline) {
+            this.baseline = baseline;
+        }
+    }
+}
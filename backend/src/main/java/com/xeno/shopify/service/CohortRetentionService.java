@@ -0,0 +1,262 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.CohortGrid;
+import com.xeno.shopify.dto.CohortRetention;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.OrderSource;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Monthly acquisition-cohort retention for assignment orders, one {@link CohortGrid}
+ * per tenant held in memory and updated from {@link OrderChangedEvent}s after each
+ * write commits.
+ *
+ * Grids are built from the per-customer daily rollup (daily_tenant_customers) rather
+ * than from raw orders: at startup, nightly and on demand, with tenants rebuilt in
+ * parallel. While a tenant is rebuilt its events wait in heldDuringRebuild and are
+ * applied to the new grid before it replaces the old one, so changes committed after
+ * the rebuild read the rollup are not lost. An event delivered after the rebuild
+ * started for a commit the read already saw is still counted twice; that window is
+ * only the time between a commit and its event, and the next rebuild corrects it.
+ */
+@Service
+public class CohortRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CohortRetentionService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${analytics.cohorts.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.cohorts.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    private final Map<String, CohortGrid> grids = new ConcurrentHashMap<>();
+
+    // Events of the tenants being rebuilt wait here until their new grid is in place
+    private final Object rebuildMonitor = new Object();
+    private final Map<String, List<OrderChangedEvent>> heldDuringRebuild = new HashMap<>();
+    private final Map<String, Object> rebuildLocks = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loaderExecutor.execute(this::rebuildAll);
+        }
+    }
+
+    @Order(DataVersionService.CONSUMER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot after = event.getAfter();
+        if (sameCustomerMonth(before, after)) {
+            return;
+        }
+        CohortGrid grid;
+        synchronized (rebuildMonitor) {
+            List<OrderChangedEvent> held = heldDuringRebuild.get(event.getTenantId());
+            if (held != null) {
+                held.add(event);
+                return;
+            }
+            grid = grids.computeIfAbsent(event.getTenantId(), id -> new CohortGrid());
+        }
+        apply(grid, event);
+    }
+
+    public boolean isReady() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Retention of the cohorts acquired from the given month on, oldest first
+     */
+    public List<CohortRetention> getRetention(String tenantId, YearMonth since) {
+        List<CohortRetention> retention = new ArrayList<>();
+        CohortGrid grid = grids.get(tenantId);
+        if (grid == null) {
+            return retention;
+        }
+        SortedMap<Integer, long[]> cells;
+        synchronized (grid) {
+            cells = grid.cells().tailMap(month(since));
+        }
+
+        cells.forEach((cohort, row) -> {
+            CohortRetention cohortRetention = new CohortRetention();
+            cohortRetention.setCohort(YearMonth.of(cohort / 12, cohort % 12 + 1).toString());
+            cohortRetention.setCustomers(row[0]);
+            List<Long> active = new ArrayList<>(row.length);
+            List<Double> shares = new ArrayList<>(row.length);
+            for (long customers : row) {
+                active.add(customers);
+                shares.add(row[0] > 0 ? (double) customers / row[0] : 0.0);
+            }
+            cohortRetention.setActiveCustomers(active);
+            cohortRetention.setRetention(shares);
+            retention.add(cohortRetention);
+        });
+        return retention;
+    }
+
+    /**
+     * Rebuild every tenant's grid, several tenants at a time
+     */
+    @Scheduled(cron = "${analytics.cohorts.rebuild-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        List<String> tenantIds = jdbcTemplate.queryForList(
+            "SELECT DISTINCT tenant_id FROM daily_tenant_customers WHERE source = 'ASSIGNMENT'", String.class);
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, rebuildParallelism));
+        try {
+            pool.submit(() -> tenantIds.parallelStream().forEach(tenantId -> {
+                try {
+                    rebuildTenant(tenantId);
+                } catch (Exception e) {
+                    logger.error("Error rebuilding cohorts for tenant {}: {}", tenantId, e.getMessage(), e);
+                }
+            })).get();
+            loaded = true;
+            logger.info("Rebuilt cohort retention for {} tenants in {} ms",
+                tenantIds.size(), System.currentTimeMillis() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error rebuilding cohort retention: {}", e.getMessage(), e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void rebuildTenant(String tenantId) {
+        if (!enabled) {
+            return;
+        }
+        // One rebuild of a tenant at a time, so each one holds its own events
+        synchronized (rebuildLocks.computeIfAbsent(tenantId, id -> new Object())) {
+            synchronized (rebuildMonitor) {
+                heldDuringRebuild.put(tenantId, new ArrayList<>());
+            }
+            CohortGrid grid = new CohortGrid();
+            try {
+                loadGrid(tenantId, grid);
+            } catch (RuntimeException e) {
+                // Keep the old grid and apply what was held to it
+                releaseHeldEvents(tenantId, null);
+                throw e;
+            }
+            releaseHeldEvents(tenantId, grid);
+        }
+        dataVersionService.bump(tenantId);
+    }
+
+    private void loadGrid(String tenantId, CohortGrid grid) {
+        jdbcTemplate.query("""
+            SELECT customer_key, YEAR(metric_date) * 12 + MONTH(metric_date) - 1 as month,
+                SUM(orders_count) as orders_count
+            FROM daily_tenant_customers
+            WHERE tenant_id = ? AND source = 'ASSIGNMENT'
+            GROUP BY customer_key, YEAR(metric_date), MONTH(metric_date)
+        """, rs -> {
+            grid.apply(rs.getString("customer_key"), rs.getInt("month"), rs.getInt("orders_count"));
+        }, tenantId);
+    }
+
+    /**
+     * Apply the tenant's held events to the rebuilt grid and put it in place, or to the
+     * current grid when rebuilt is null
+     */
+    private void releaseHeldEvents(String tenantId, CohortGrid rebuilt) {
+        int released;
+        synchronized (rebuildMonitor) {
+            List<OrderChangedEvent> held = heldDuringRebuild.remove(tenantId);
+            CohortGrid grid = rebuilt != null ? rebuilt : grids.computeIfAbsent(tenantId, id -> new CohortGrid());
+            for (OrderChangedEvent event : held) {
+                apply(grid, event);
+            }
+            if (rebuilt != null) {
+                grids.put(tenantId, rebuilt);
+            }
+            released = held.size();
+        }
+        if (released > 0) {
+            logger.debug("Applied {} order changes held during the cohort rebuild of tenant {}", released, tenantId);
+        }
+    }
+
+    private static void apply(CohortGrid grid, OrderChangedEvent event) {
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot after = event.getAfter();
+        synchronized (grid) {
+            if (counts(before)) {
+                grid.apply(before.getCustomerKey(), month(before.getOrderDate()), -1);
+            }
+            if (counts(after)) {
+                grid.apply(after.getCustomerKey(), month(after.getOrderDate()), 1);
+            }
+        }
+    }
+
+    private static boolean counts(OrderSnapshot snapshot) {
+        return snapshot != null && snapshot.getSource() == OrderSource.ASSIGNMENT && snapshot.getCustomerKey() != null;
+    }
+
+    private static boolean sameCustomerMonth(OrderSnapshot before, OrderSnapshot after) {
+        return before != null && after != null &&
+               Objects.equals(before.getCustomerKey(), after.getCustomerKey()) &&
+               month(before.getOrderDate()) == month(after.getOrderDate());
+    }
+
+    private static int month(LocalDateTime dateTime) {
+        return month(YearMonth.from(dateTime != null ? dateTime : LocalDateTime.now()));
+    }
+
+    private static int month(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+}
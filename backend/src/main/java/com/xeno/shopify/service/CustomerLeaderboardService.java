@@ -0,0 +1,155 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.Leaderboard;
+import com.xeno.shopify.event.CustomerSpendChangedEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-tenant {@link Leaderboard} of assignment customers by total spend, so the top
+ * customers and any customer's rank come from memory without sorting the customer
+ * table. Loaded from the database at startup and kept current from
+ * {@link CustomerSpendChangedEvent}s after each write commits; until the load is done
+ * callers fall back to the database.
+ *
+ * After-commit listeners of concurrent writes run in no particular order, so the spend
+ * carried by an event can be older than one already applied. Each event instead re-reads
+ * the customer's committed spend under a per-customer lock: every read sees at least its
+ * own write, and the last put for a customer comes from the last read, so the board
+ * settles on the latest committed value.
+ */
+@Service
+public class CustomerLeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerLeaderboardService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Value("${analytics.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    private final Map<String, Leaderboard> leaderboards = new ConcurrentHashMap<>();
+
+    // Customers deleted while the startup load runs, which the load must not bring back
+    private final Set<Long> deletedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loaded;
+
+    private final Object[] customerLocks = new Object[64];
+
+    {
+        for (int i = 0; i < customerLocks.length; i++) {
+            customerLocks[i] = new Object();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loaderExecutor.execute(this::loadAll);
+        }
+    }
+
+    /**
+     * Fill the leaderboards from the customer table. Spend already set by a live change
+     * is newer than the row read here and is kept.
+     */
+    public void loadAll() {
+        long started = System.currentTimeMillis();
+        try {
+            int[] customers = new int[1];
+            jdbcTemplate.query("SELECT tenant_id, id, total_spent FROM assignment_customers", rs -> {
+                long id = rs.getLong("id");
+                if (!deletedDuringLoad.contains(id)) {
+                    leaderboard(rs.getString("tenant_id")).putIfAbsent(id, toCents(rs.getDouble("total_spent")));
+                    customers[0]++;
+                }
+            });
+            loaded = true;
+            deletedDuringLoad.clear();
+            // Rankings switch from the database to the leaderboards
+            dataVersionService.bumpAll();
+            logger.info("Loaded {} customers into the spend leaderboards in {} ms",
+                customers[0], System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Error loading customer leaderboards: {}", e.getMessage(), e);
+        }
+    }
+
+    @Order(DataVersionService.CONSUMER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerSpendChanged(CustomerSpendChangedEvent event) {
+        if (!enabled || event.getCustomerId() == null) {
+            return;
+        }
+        Long customerId = event.getCustomerId();
+        Leaderboard leaderboard = leaderboard(event.getTenantId());
+        synchronized (customerLocks[Math.floorMod(customerId.hashCode(), customerLocks.length)]) {
+            List<Double> spent = jdbcTemplate.queryForList(
+                "SELECT COALESCE(total_spent, 0) FROM assignment_customers WHERE id = ? AND tenant_id = ?",
+                Double.class, customerId, event.getTenantId());
+            if (spent.isEmpty()) {
+                if (!loaded) {
+                    deletedDuringLoad.add(customerId);
+                }
+                leaderboard.remove(customerId);
+            } else {
+                leaderboard.put(customerId, toCents(spent.get(0)));
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Ids of the tenant's limit biggest spenders, biggest first
+     */
+    public List<Long> getTopCustomerIds(String tenantId, int limit) {
+        return leaderboard(tenantId).top(limit).stream().map(entry -> entry[0]).toList();
+    }
+
+    /**
+     * 1-based rank of the customer by spend within the tenant, or 0 if unknown
+     */
+    public int getRank(String tenantId, Long customerId) {
+        return leaderboard(tenantId).rank(customerId);
+    }
+
+    public int getCustomerCount(String tenantId) {
+        return leaderboard(tenantId).size();
+    }
+
+    private Leaderboard leaderboard(String tenantId) {
+        return leaderboards.computeIfAbsent(tenantId, id -> new Leaderboard());
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
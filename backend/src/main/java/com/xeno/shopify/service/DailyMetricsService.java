@@ -0,0 +1,374 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.HyperLogLog;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains the per-tenant daily rollups that analytics reads instead of scanning
+ * raw orders:
+ *
+ * daily_tenant_metrics         orders, revenue, tax, discounts and unique customers per day
+ * daily_tenant_status_metrics  orders and revenue per day and status
+ * daily_tenant_customers       orders per day and customer, backing the unique count
+ * daily_tenant_customer_sketches  a HyperLogLog of the day's customers, merged to
+ *                              count distinct customers over any range of days
+ *
+ * Every order write publishes an {@link OrderChangedEvent}; the listener runs in the
+ * writer's transaction and applies the old snapshot with a negative sign and the new
+ * one with a positive sign, so creates, edits, status changes and deletes all land as
+ * exact deltas. Each row is keyed by (tenant_id, source, metric_date, ...) so the
+ * Shopify and assignment order tables never mix. {@link #rebuildTenant(String)}
+ * recomputes a tenant from the order tables for backfills and drift repair.
+ *
+ * Deltas are only right on top of rows that already count the tenant's older orders,
+ * so every rebuild is recorded in daily_rollup_builds and, at startup, tenants with
+ * orders but no recorded rebuild are backfilled once. Until that finishes their
+ * analytics read short, and edits to their older orders can leave rows negative;
+ * the backfill replaces those rows.
+ */
+@Service
+public class DailyMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyMetricsService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FulfilmentLatencyService fulfilmentLatencyService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Value("${analytics.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            loaderExecutor.execute(this::backfillMissing);
+        }
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot after = event.getAfter();
+        if (Objects.equals(before, after)) {
+            return;
+        }
+
+        if (before != null) {
+            applyTotals(before, -1);
+            applyStatus(before, -1);
+        }
+        if (after != null) {
+            applyTotals(after, 1);
+            applyStatus(after, 1);
+        }
+
+        // Moving an order between amounts or statuses leaves its customer's day untouched
+        if (!sameCustomerDay(before, after)) {
+            if (before != null) {
+                removeCustomer(before);
+            }
+            if (after != null) {
+                addCustomer(after);
+            }
+        }
+    }
+
+    private void applyTotals(OrderSnapshot snapshot, int sign) {
+        jdbcTemplate.update("""
+            INSERT INTO daily_tenant_metrics
+                (tenant_id, source, metric_date, orders_count, revenue, tax, discounts, unique_customers)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 0)
+            ON DUPLICATE KEY UPDATE
+                orders_count = orders_count + VALUES(orders_count),
+                revenue = revenue + VALUES(revenue),
+                tax = tax + VALUES(tax),
+                discounts = discounts + VALUES(discounts)
+        """,
+            snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot), sign,
+            sign * snapshot.getAmount(), sign * snapshot.getTax(), sign * snapshot.getDiscounts());
+    }
+
+    private void applyStatus(OrderSnapshot snapshot, int sign) {
+        jdbcTemplate.update("""
+            INSERT INTO daily_tenant_status_metrics
+                (tenant_id, source, metric_date, status, orders_count, revenue)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                orders_count = orders_count + VALUES(orders_count),
+                revenue = revenue + VALUES(revenue)
+        """,
+            snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot),
+            snapshot.getStatus(), sign, sign * snapshot.getAmount());
+    }
+
+    private void addCustomer(OrderSnapshot snapshot) {
+        if (snapshot.getCustomerKey() == null) {
+            return;
+        }
+        // MySQL reports 1 for an inserted row and 2 for an updated one
+        int affected = jdbcTemplate.update("""
+            INSERT INTO daily_tenant_customers (tenant_id, source, metric_date, customer_key, orders_count)
+            VALUES (?, ?, ?, ?, 1)
+            ON DUPLICATE KEY UPDATE orders_count = orders_count + 1
+        """,
+            snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot), snapshot.getCustomerKey());
+        if (affected == 1) {
+            adjustUniqueCustomers(snapshot, 1);
+            addToSketch(snapshot);
+        }
+    }
+
+    // Only reached for a customer's first order of the day. The daily_tenant_metrics row
+    // for the same day is already locked by this transaction, so writers of one tenant's
+    // day are serialized before they read the sketch.
+    private void addToSketch(OrderSnapshot snapshot) {
+        Object[] key = { snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot) };
+        List<byte[]> existing = jdbcTemplate.query("""
+            SELECT sketch FROM daily_tenant_customer_sketches
+            WHERE tenant_id = ? AND source = ? AND metric_date = ?
+            FOR UPDATE
+        """, (rs, rowNum) -> rs.getBytes("sketch"), key);
+
+        if (existing.isEmpty()) {
+            HyperLogLog sketch = new HyperLogLog();
+            sketch.add(snapshot.getCustomerKey());
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_customer_sketches (tenant_id, source, metric_date, sketch)
+                VALUES (?, ?, ?, ?)
+            """, key[0], key[1], key[2], sketch.toBytes());
+            return;
+        }
+
+        HyperLogLog sketch = HyperLogLog.fromBytes(existing.get(0));
+        if (sketch.add(snapshot.getCustomerKey())) {
+            jdbcTemplate.update("""
+                UPDATE daily_tenant_customer_sketches SET sketch = ?
+                WHERE tenant_id = ? AND source = ? AND metric_date = ?
+            """, sketch.toBytes(), key[0], key[1], key[2]);
+        }
+    }
+
+    private void removeCustomer(OrderSnapshot snapshot) {
+        if (snapshot.getCustomerKey() == null) {
+            return;
+        }
+        Object[] key = {
+            snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot), snapshot.getCustomerKey()
+        };
+        jdbcTemplate.update("""
+            UPDATE daily_tenant_customers SET orders_count = orders_count - 1
+            WHERE tenant_id = ? AND source = ? AND metric_date = ? AND customer_key = ?
+        """, key);
+        int removed = jdbcTemplate.update("""
+            DELETE FROM daily_tenant_customers
+            WHERE tenant_id = ? AND source = ? AND metric_date = ? AND customer_key = ? AND orders_count <= 0
+        """, key);
+        if (removed > 0) {
+            adjustUniqueCustomers(snapshot, -1);
+        }
+    }
+
+    private void adjustUniqueCustomers(OrderSnapshot snapshot, int delta) {
+        jdbcTemplate.update("""
+            UPDATE daily_tenant_metrics SET unique_customers = unique_customers + ?
+            WHERE tenant_id = ? AND source = ? AND metric_date = ?
+        """, delta, snapshot.getTenantId(), snapshot.getSource().name(), metricDate(snapshot));
+    }
+
+    private boolean sameCustomerDay(OrderSnapshot before, OrderSnapshot after) {
+        return before != null && after != null &&
+               Objects.equals(before.getCustomerKey(), after.getCustomerKey()) &&
+               metricDate(before).equals(metricDate(after));
+    }
+
+    private Date metricDate(OrderSnapshot snapshot) {
+        return Date.valueOf(snapshot.getOrderDate() != null ?
+            snapshot.getOrderDate().toLocalDate() : LocalDate.now());
+    }
+
+    /**
+     * Recompute every rollup row for one tenant from the order tables
+     */
+    public void rebuildTenant(String tenantId) {
+        long started = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM daily_tenant_metrics WHERE tenant_id = ?", tenantId);
+            jdbcTemplate.update("DELETE FROM daily_tenant_status_metrics WHERE tenant_id = ?", tenantId);
+            jdbcTemplate.update("DELETE FROM daily_tenant_customers WHERE tenant_id = ?", tenantId);
+            jdbcTemplate.update("DELETE FROM daily_tenant_customer_sketches WHERE tenant_id = ?", tenantId);
+
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_metrics
+                    (tenant_id, source, metric_date, orders_count, revenue, tax, discounts, unique_customers)
+                SELECT tenant_id, 'ASSIGNMENT', DATE(order_date), COUNT(*),
+                    COALESCE(SUM(total_amount), 0), COALESCE(SUM(tax_amount), 0),
+                    COALESCE(SUM(discount_amount), 0), COUNT(DISTINCT customer_id)
+                FROM assignment_orders
+                WHERE tenant_id = ?
+                GROUP BY tenant_id, DATE(order_date)
+            """, tenantId);
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_metrics
+                    (tenant_id, source, metric_date, orders_count, revenue, tax, discounts, unique_customers)
+                SELECT tenant_id, 'SHOPIFY', DATE(processed_at), COUNT(*),
+                    COALESCE(SUM(total_price), 0), COALESCE(SUM(total_tax), 0),
+                    COALESCE(SUM(total_discounts), 0), COUNT(DISTINCT customer_shopify_id)
+                FROM orders
+                WHERE tenant_id = ? AND processed_at IS NOT NULL
+                GROUP BY tenant_id, DATE(processed_at)
+            """, tenantId);
+
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_status_metrics
+                    (tenant_id, source, metric_date, status, orders_count, revenue)
+                SELECT tenant_id, 'ASSIGNMENT', DATE(order_date), status, COUNT(*), COALESCE(SUM(total_amount), 0)
+                FROM assignment_orders
+                WHERE tenant_id = ?
+                GROUP BY tenant_id, DATE(order_date), status
+            """, tenantId);
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_status_metrics
+                    (tenant_id, source, metric_date, status, orders_count, revenue)
+                SELECT tenant_id, 'SHOPIFY', DATE(processed_at), COALESCE(financial_status, 'unknown'),
+                    COUNT(*), COALESCE(SUM(total_price), 0)
+                FROM orders
+                WHERE tenant_id = ? AND processed_at IS NOT NULL
+                GROUP BY tenant_id, DATE(processed_at), COALESCE(financial_status, 'unknown')
+            """, tenantId);
+
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_customers (tenant_id, source, metric_date, customer_key, orders_count)
+                SELECT tenant_id, 'ASSIGNMENT', DATE(order_date), CAST(customer_id AS CHAR), COUNT(*)
+                FROM assignment_orders
+                WHERE tenant_id = ? AND customer_id IS NOT NULL
+                GROUP BY tenant_id, DATE(order_date), customer_id
+            """, tenantId);
+            jdbcTemplate.update("""
+                INSERT INTO daily_tenant_customers (tenant_id, source, metric_date, customer_key, orders_count)
+                SELECT tenant_id, 'SHOPIFY', DATE(processed_at), customer_shopify_id, COUNT(*)
+                FROM orders
+                WHERE tenant_id = ? AND processed_at IS NOT NULL AND customer_shopify_id IS NOT NULL
+                GROUP BY tenant_id, DATE(processed_at), customer_shopify_id
+            """, tenantId);
+
+            rebuildSketches(tenantId);
+            fulfilmentLatencyService.rebuildTenant(tenantId);
+
+            jdbcTemplate.update("""
+                INSERT INTO daily_rollup_builds (tenant_id, built_at) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE built_at = VALUES(built_at)
+            """, tenantId, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        dataVersionService.bump(tenantId);
+        logger.info("Rebuilt daily rollups for tenant {} in {} ms", tenantId, System.currentTimeMillis() - started);
+    }
+
+    // Sketches only grow, so a rebuild is also what drops customers whose orders were deleted
+    private void rebuildSketches(String tenantId) {
+        Map<List<Object>, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT source, metric_date, customer_key FROM daily_tenant_customers WHERE tenant_id = ?
+        """, rs -> {
+            List<Object> day = List.of(rs.getString("source"), rs.getDate("metric_date"));
+            sketches.computeIfAbsent(day, k -> new HyperLogLog()).add(rs.getString("customer_key"));
+        }, tenantId);
+
+        List<Object[]> rows = new ArrayList<>(sketches.size());
+        sketches.forEach((day, sketch) -> rows.add(new Object[] { tenantId, day.get(0), day.get(1), sketch.toBytes() }));
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO daily_tenant_customer_sketches (tenant_id, source, metric_date, sketch)
+            VALUES (?, ?, ?, ?)
+        """, rows);
+    }
+
+    /**
+     * Rebuild the tenants that have orders but whose rollups were never rebuilt, such as
+     * tenants that already had orders when the rollups were introduced. Their cohort
+     * grids are rebuilt afterwards, since those are read from the rollups.
+     */
+    public void backfillMissing() {
+        List<String> tenantIds = jdbcTemplate.queryForList("""
+            SELECT t.tenant_id
+            FROM (
+                SELECT DISTINCT tenant_id FROM assignment_orders
+                UNION
+                SELECT DISTINCT tenant_id FROM orders
+            ) t
+            LEFT JOIN daily_rollup_builds b ON b.tenant_id = t.tenant_id
+            WHERE b.tenant_id IS NULL
+        """, String.class);
+        if (tenantIds.isEmpty()) {
+            return;
+        }
+
+        logger.info("Backfilling daily rollups for {} tenants", tenantIds.size());
+        for (String tenantId : tenantIds) {
+            try {
+                rebuildTenant(tenantId);
+                cohortRetentionService.rebuildTenant(tenantId);
+            } catch (Exception e) {
+                logger.error("Error backfilling daily rollups for tenant {}: {}", tenantId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Rebuild every tenant that has orders in either table. Disabled unless
+     * analytics.rollups.rebuild-cron is set; writes keep the rollups current.
+     */
+    @Scheduled(cron = "${analytics.rollups.rebuild-cron:-}")
+    public void rebuildAll() {
+        List<String> tenantIds = jdbcTemplate.queryForList("""
+            SELECT DISTINCT tenant_id FROM assignment_orders
+            UNION
+            SELECT DISTINCT tenant_id FROM orders
+        """, String.class);
+
+        for (String tenantId : tenantIds) {
+            try {
+                rebuildTenant(tenantId);
+            } catch (Exception e) {
+                logger.error("Error rebuilding daily rollups for tenant {}: {}", tenantId, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.OrderSource;
+import com.xeno.shopify.event.TenantDataChangedEvent;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live dashboard updates over server-sent events, so open dashboards apply small deltas
+ * instead of polling every analytics endpoint.
+ *
+ * Committed order changes are folded into one pending delta per subscribed tenant:
+ * orders and revenue added or removed and the net change per status, by source. Every
+ * flush interval each tenant's delta is serialized once and written to all of that
+ * tenant's subscribers, so the work per change does not grow with the number of open
+ * tabs and a burst of ingest becomes one message. Customer and product changes are
+ * passed on as the data types to refetch. Tenants nobody is watching cost nothing.
+ *
+ * Clients load the current figures from the regular endpoints, then apply deltas; the
+ * event id increases by one per delta, so a gap means a missed message and a refetch.
+ *
+ * The scheduled jobs only queue events. Each subscriber has its own outbox, drained in
+ * order on the stream executor, so a browser that stops reading holds up neither the
+ * scheduler nor the other subscribers; one whose outbox passes max-queued-events is
+ * disconnected and resyncs when it reconnects.
+ */
+@Service
+public class DashboardStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStreamService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("analyticsStreamExecutor")
+    private ThreadPoolTaskExecutor streamExecutor;
+
+    @Value("${analytics.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${analytics.stream.max-subscribers-per-tenant:50}")
+    private int maxSubscribersPerTenant;
+
+    @Value("${analytics.stream.max-queued-events:100}")
+    private int maxQueuedEvents;
+
+    private final Map<String, TenantStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Open a stream for the tenant; the first event, "ready", carries the id the next
+     * delta will follow
+     */
+    public SseEmitter subscribe(String tenantId) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs));
+        // Added inside compute so the heartbeat cannot drop the stream in between, and
+        // under the stream's monitor so "ready" is queued ahead of the next delta
+        TenantStream stream = streams.compute(tenantId, (id, existing) -> {
+            TenantStream tenantStream = existing != null ? existing : new TenantStream();
+            synchronized (tenantStream) {
+                if (tenantStream.subscribers.size() >= maxSubscribersPerTenant) {
+                    throw new IllegalStateException("Too many open dashboard streams for tenant: " + tenantId);
+                }
+                subscriber.offer(SseEmitter.event().name("ready").id(Long.toString(tenantStream.sequence))
+                    .data("{}", MediaType.APPLICATION_JSON).build());
+                tenantStream.subscribers.add(subscriber);
+            }
+            return tenantStream;
+        });
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> stream.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> stream.subscribers.remove(subscriber));
+        emitter.onError(e -> stream.subscribers.remove(subscriber));
+
+        drain(stream, subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        TenantStream stream = streams.get(event.getTenantId());
+        if (stream == null || stream.subscribers.isEmpty()) {
+            return;
+        }
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot after = event.getAfter();
+        OrderSource source = (after != null ? after : before).getSource();
+
+        synchronized (stream) {
+            SourceDelta delta = stream.pending.computeIfAbsent(source, s -> new SourceDelta());
+            if (before != null) {
+                delta.orders--;
+                delta.revenueCents -= Math.round(before.getAmount() * 100);
+                delta.statuses.merge(statusOf(before), -1L, Long::sum);
+            }
+            if (after != null) {
+                delta.orders++;
+                delta.revenueCents += Math.round(after.getAmount() * 100);
+                delta.statuses.merge(statusOf(after), 1L, Long::sum);
+            }
+            if (event.isCreated()) {
+                delta.newOrders++;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantDataChanged(TenantDataChangedEvent event) {
+        TenantStream stream = streams.get(event.getTenantId());
+        if (stream == null || stream.subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (stream) {
+            stream.changed.add(event.getDataType());
+        }
+    }
+
+    /**
+     * Queue each tenant's pending delta for its subscribers
+     */
+    @Scheduled(fixedDelayString = "${analytics.stream.flush-ms:1000}")
+    public void flush() {
+        streams.forEach((tenantId, stream) -> {
+            synchronized (stream) {
+                if (stream.pending.isEmpty() && stream.changed.isEmpty()) {
+                    return;
+                }
+                String payload = toJson(stream);
+                stream.pending.clear();
+                stream.changed.clear();
+                long id = ++stream.sequence;
+                if (payload != null) {
+                    // Queued under the monitor so every subscriber sees the ids in order
+                    queue(stream, SseEmitter.event().name("delta").id(Long.toString(id))
+                        .data(payload, MediaType.APPLICATION_JSON).build());
+                }
+            }
+            drainAll(stream);
+        });
+    }
+
+    /**
+     * Keep idle connections open through proxies, notice closed ones and drop tenants
+     * nobody is watching
+     */
+    @Scheduled(fixedDelayString = "${analytics.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        streams.forEach((tenantId, stream) -> {
+            queue(stream, heartbeat);
+            drainAll(stream);
+        });
+        for (String tenantId : streams.keySet()) {
+            streams.computeIfPresent(tenantId, (id, stream) -> stream.subscribers.isEmpty() ? null : stream);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return streams.values().stream().mapToInt(stream -> stream.subscribers.size()).sum();
+    }
+
+    // The event is built once and shared, since building an SseEventBuilder mutates it
+    private void queue(TenantStream stream, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (Subscriber subscriber : stream.subscribers) {
+            if (!subscriber.offer(event)) {
+                disconnect(stream, subscriber, new IllegalStateException("Dashboard stream subscriber fell behind"));
+            }
+        }
+    }
+
+    private void drainAll(TenantStream stream) {
+        for (Subscriber subscriber : stream.subscribers) {
+            drain(stream, subscriber);
+        }
+    }
+
+    // At most one drain per subscriber runs at a time, so its events go out in order
+    private void drain(TenantStream stream, Subscriber subscriber) {
+        if (subscriber.outbox.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            streamExecutor.execute(() -> drainNow(stream, subscriber));
+        } catch (TaskRejectedException e) {
+            // Left queued for the next flush or heartbeat
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drainNow(TenantStream stream, Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = subscriber.poll()) != null) {
+                subscriber.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            disconnect(stream, subscriber, e);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Picks up an event queued after the last poll but before the flag was cleared
+        if (stream.subscribers.contains(subscriber)) {
+            drain(stream, subscriber);
+        }
+    }
+
+    private void disconnect(TenantStream stream, Subscriber subscriber, Exception cause) {
+        if (stream.subscribers.remove(subscriber)) {
+            subscriber.outbox.clear();
+            subscriber.emitter.completeWithError(cause);
+        }
+    }
+
+    private String toJson(TenantStream stream) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        stream.pending.forEach((source, delta) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("orders", delta.orders);
+            values.put("newOrders", delta.newOrders);
+            values.put("revenue", delta.revenueCents / 100.0);
+            delta.statuses.values().removeIf(count -> count == 0);
+            values.put("statuses", delta.statuses);
+            payload.put(source.name().toLowerCase(), values);
+        });
+        if (!stream.changed.isEmpty()) {
+            payload.put("changed", stream.changed.stream().map(type -> type.name().toLowerCase()).toList());
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing dashboard delta: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static String statusOf(OrderSnapshot snapshot) {
+        return snapshot.getStatus() != null ? snapshot.getStatus() : "unknown";
+    }
+
+    // Subscribers of one tenant and the delta not yet sent to them; pending, changed
+    // and sequence are guarded by the stream's monitor
+    private static final class TenantStream {
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final Map<OrderSource, SourceDelta> pending = new EnumMap<>(OrderSource.class);
+        final Set<TenantDataChangedEvent.DataType> changed = EnumSet.noneOf(TenantDataChangedEvent.DataType.class);
+        long sequence;
+    }
+
+    // One open stream and the events queued for it but not yet written
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (queued.incrementAndGet() > maxQueuedEvents) {
+                queued.decrementAndGet();
+                return false;
+            }
+            outbox.add(event);
+            return true;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> poll() {
+            Set<ResponseBodyEmitter.DataWithMediaType> event = outbox.poll();
+            if (event != null) {
+                queued.decrementAndGet();
+            }
+            return event;
+        }
+    }
+
+    private static final class SourceDelta {
+        long orders;
+        long newOrders;
+        long revenueCents;
+        final Map<String, Long> statuses = new TreeMap<>();
+    }
+}
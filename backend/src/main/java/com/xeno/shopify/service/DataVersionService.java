@@ -0,0 +1,77 @@
+package com.xeno.shopify.service;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.TenantDataChangedEvent;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant data version, raised after every committed write to a tenant's orders,
+ * customers or products and whenever a job recomputes derived analytics.
+ *
+ * Versions only ever increase. They live in memory like the other analytics state, and
+ * the ETag carries the process start time so a restart can never reproduce an earlier
+ * tag. The tag also carries the current date, because ranges
+ * relative to today change at midnight without any write.
+ *
+ * After-commit listeners that update in-memory analytics run at {@link #CONSUMER_ORDER};
+ * the bump listeners here run after them, so once a request can see the new version
+ * every in-memory consumer has applied the transaction's changes. Loads that replace
+ * database fallbacks with in-memory state bump the version when they finish.
+ */
+@Service
+public class DataVersionService {
+
+    public static final int CONSUMER_ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long current(String tenantId) {
+        return counter(tenantId).get();
+    }
+
+    public void bump(String tenantId) {
+        counter(tenantId).incrementAndGet();
+    }
+
+    /**
+     * Bump every tenant that has a version, after a change to many tenants' data; a
+     * tenant without one has never been served a tag
+     */
+    public void bumpAll() {
+        versions.values().forEach(AtomicLong::incrementAndGet);
+    }
+
+    /**
+     * Strong ETag for the tenant's analytics responses at the current version
+     */
+    public String etag(String tenantId) {
+        return "\"" + epoch + "-" + current(tenantId) + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        bump(event.getTenantId());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantDataChanged(TenantDataChangedEvent event) {
+        bump(event.getTenantId());
+    }
+
+    private AtomicLong counter(String tenantId) {
+        return versions.computeIfAbsent(tenantId, id -> new AtomicLong());
+    }
+}
@@ -0,0 +1,125 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.xeno.shopify.analytics.LatencyHistogram;
+import com.xeno.shopify.event.OrderFulfilmentEvent;
+import com.xeno.shopify.event.OrderFulfilmentEvent.Stage;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fulfilment lead times as daily {@link LatencyHistogram}s in daily_fulfilment_latency:
+ * one row per tenant, stage, day and bucket, counting the orders whose ship or delivery
+ * on that day took a duration in that bucket. Rows are incremented and decremented in
+ * the order's transaction, and a range is read by summing its days bucket by bucket, so the cost of
+ * a percentile query depends on the days and buckets involved and not on the orders.
+ */
+@Service
+public class FulfilmentLatencyService {
+
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @EventListener
+    public void onOrderFulfilment(OrderFulfilmentEvent event) {
+        if (event.getStartedAt() == null || event.getCompletedAt() == null) {
+            return;
+        }
+        long seconds = Duration.between(event.getStartedAt(), event.getCompletedAt()).getSeconds();
+        Object[] key = {
+            event.getTenantId(), event.getStage().name(),
+            Date.valueOf(event.getCompletedAt().toLocalDate()), LatencyHistogram.bucketOf(seconds)
+        };
+        jdbcTemplate.update("""
+            INSERT INTO daily_fulfilment_latency (tenant_id, stage, metric_date, bucket, orders_count)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE orders_count = orders_count + VALUES(orders_count)
+        """, key[0], key[1], key[2], key[3], event.getCount());
+        if (event.getCount() < 0) {
+            jdbcTemplate.update("""
+                DELETE FROM daily_fulfilment_latency
+                WHERE tenant_id = ? AND stage = ? AND metric_date = ? AND bucket = ? AND orders_count <= 0
+            """, key);
+        }
+    }
+
+    /**
+     * p50, p90 and p99 in seconds, plus the number of orders, for each stage completed
+     * between the two dates inclusive. Each percentile is the upper bound of its bucket,
+     * at most about 3% above the true value.
+     */
+    public Map<String, Map<String, Long>> getPercentiles(String tenantId, LocalDate startDate, LocalDate endDate) {
+        Map<Stage, LatencyHistogram> histograms = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT stage, bucket, SUM(orders_count) as orders_count
+            FROM daily_fulfilment_latency
+            WHERE tenant_id = ? AND metric_date BETWEEN ? AND ?
+            GROUP BY stage, bucket
+        """, rs -> {
+            histograms.computeIfAbsent(Stage.valueOf(rs.getString("stage")), stage -> new LatencyHistogram())
+                .add(rs.getInt("bucket"), rs.getLong("orders_count"));
+        }, tenantId, Date.valueOf(startDate), Date.valueOf(endDate));
+
+        Map<String, Map<String, Long>> percentiles = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms.getOrDefault(stage, new LatencyHistogram());
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("orders", histogram.getTotal());
+            for (double percentile : PERCENTILES) {
+                values.put("p" + (int) percentile + "Seconds", histogram.percentile(percentile));
+            }
+            percentiles.put(stage == Stage.SHIP ? "orderToShip" : "shipToDeliver", values);
+        }
+        return percentiles;
+    }
+
+    /**
+     * Recompute a tenant's histograms from the order dates. Runs inside the caller's
+     * transaction.
+     */
+    public void rebuildTenant(String tenantId) {
+        jdbcTemplate.update("DELETE FROM daily_fulfilment_latency WHERE tenant_id = ?", tenantId);
+
+        Map<List<Object>, Long> counts = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT order_date, shipped_date, delivered_date
+            FROM assignment_orders
+            WHERE tenant_id = ? AND shipped_date IS NOT NULL
+        """, rs -> {
+            LocalDateTime ordered = rs.getTimestamp("order_date").toLocalDateTime();
+            LocalDateTime shipped = rs.getTimestamp("shipped_date").toLocalDateTime();
+            Timestamp delivered = rs.getTimestamp("delivered_date");
+            count(counts, Stage.SHIP, ordered, shipped);
+            if (delivered != null) {
+                count(counts, Stage.DELIVER, shipped, delivered.toLocalDateTime());
+            }
+        }, tenantId);
+
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[] { tenantId, key.get(0), key.get(1), key.get(2), count }));
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO daily_fulfilment_latency (tenant_id, stage, metric_date, bucket, orders_count)
+            VALUES (?, ?, ?, ?, ?)
+        """, rows);
+    }
+
+    private static void count(Map<List<Object>, Long> counts, Stage stage, LocalDateTime from, LocalDateTime to) {
+        int bucket = LatencyHistogram.bucketOf(Duration.between(from, to).getSeconds());
+        counts.merge(List.of(stage.name(), Date.valueOf(to.toLocalDate()), bucket), 1L, Long::sum);
+    }
+}
@@ -22,18 +22,39 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long expiration;
     
+    @Value("${jwt.stream-expiration:60000}")
+    private Long streamExpiration;
+    
+    private static final String SCOPE_CLAIM = "scope";
+    private static final String STREAM_SCOPE = "dashboard-stream";
+    
     public String generateToken(String email, String tenantId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("tenantId", tenantId);
-        return createToken(claims, email);
+        return createToken(claims, email, expiration);
+    }
+    
+    /**
+     * Short-lived token that only opens the dashboard stream. EventSource cannot send
+     * headers, so it goes in the query string, where it may end up in access logs.
+     */
+    public String generateStreamToken(String email, String tenantId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("tenantId", tenantId);
+        claims.put(SCOPE_CLAIM, STREAM_SCOPE);
+        return createToken(claims, email, streamExpiration);
+    }
+    
+    public Long getStreamExpiration() {
+        return streamExpiration;
     }
     
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, Long validity) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .setExpiration(new Date(System.currentTimeMillis() + validity))
                 .signWith(getSignKey(), SignatureAlgorithm.HS512)
                 .compact();
     }
@@ -77,6 +98,10 @@ public class JwtService {
         return (tokenEmail.equals(email) && !isTokenExpired(token));
     }
     
+    public boolean isStreamToken(String token) {
+        return STREAM_SCOPE.equals(extractClaim(token, claims -> claims.get(SCOPE_CLAIM, String.class)));
+    }
+    
     public Boolean isTokenValid(String token) {
         try {
             return !isTokenExpired(token);
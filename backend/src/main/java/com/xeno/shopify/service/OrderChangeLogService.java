@@ -0,0 +1,195 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.OrderSource;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Records every order change in order_change_log inside the writing transaction, so
+ * the log commits or rolls back with the order itself. The row id is handed back on
+ * the event and orders the changes; analytics snapshots store the last id they cover
+ * and replay the rows after it on restore. Rows older than the retention window are
+ * pruned, which bounds how old a snapshot can be and still be restored.
+ */
+@Service
+public class OrderChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderChangeLogService.class);
+
+    private static final int PRUNE_BATCH_SIZE = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${analytics.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.snapshot.change-log-retention-hours:48}")
+    private int retentionHours;
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        OrderSnapshot after = event.getAfter();
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot current = after != null ? after : before;
+        if (current == null || current.getOrderId() == null) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("""
+                INSERT INTO order_change_log
+                    (tenant_id, source, order_id, operation, ordered_at, amount, status, customer_key)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, event.getTenantId());
+            ps.setString(2, current.getSource().name());
+            ps.setLong(3, current.getOrderId());
+            ps.setString(4, after != null ? "UPSERT" : "DELETE");
+            ps.setTimestamp(5, after != null && after.getOrderDate() != null ?
+                Timestamp.valueOf(after.getOrderDate()) : null);
+            ps.setObject(6, after != null ? after.getAmount() : null);
+            ps.setString(7, after != null ? after.getStatus() : null);
+            ps.setString(8, after != null ? after.getCustomerKey() : null);
+            return ps;
+        }, keyHolder);
+
+        Number id = keyHolder.getKey();
+        if (id != null) {
+            event.setChangeId(id.longValue());
+        }
+    }
+
+    /**
+     * Changes to one tenant's orders in one table with an id above afterId, oldest first
+     */
+    public List<ChangeRecord> readChanges(OrderSource source, String tenantId, long afterId, int limit) {
+        return jdbcTemplate.query("""
+            SELECT id, order_id, operation, ordered_at, amount, status, customer_key
+            FROM order_change_log
+            WHERE tenant_id = ? AND source = ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+        """, (rs, rowNum) -> {
+            Timestamp orderedAt = rs.getTimestamp("ordered_at");
+            return new ChangeRecord(
+                rs.getLong("id"),
+                rs.getLong("order_id"),
+                "DELETE".equals(rs.getString("operation")),
+                orderedAt != null ? orderedAt.toLocalDateTime() : null,
+                rs.getDouble("amount"),
+                rs.getString("status"),
+                rs.getString("customer_key"));
+        }, tenantId, source.name(), afterId, limit);
+    }
+
+    /**
+     * Highest change id that is safe to treat as fully committed: changes made in the
+     * last graceSeconds may belong to transactions that have not committed yet, and a
+     * smaller id could still appear after a larger one is visible.
+     */
+    public long committedOffset(int graceSeconds) {
+        Long offset = jdbcTemplate.queryForObject("""
+            SELECT COALESCE(MAX(id), 0) FROM order_change_log
+            WHERE created_at < NOW() - INTERVAL ? SECOND
+        """, Long.class, graceSeconds);
+        return offset != null ? offset : 0;
+    }
+
+    public int getRetentionHours() {
+        return retentionHours;
+    }
+
+    /**
+     * Delete change log rows older than the retention window, in batches
+     */
+    @Scheduled(cron = "${analytics.snapshot.prune-cron:0 30 * * * *}")
+    public void pruneChangeLog() {
+        if (!enabled) {
+            return;
+        }
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                "DELETE FROM order_change_log WHERE created_at < NOW() - INTERVAL ? HOUR LIMIT " + PRUNE_BATCH_SIZE,
+                retentionHours);
+            total += deleted;
+        } while (deleted == PRUNE_BATCH_SIZE);
+
+        if (total > 0) {
+            logger.info("Pruned {} order change log rows older than {} hours", total, retentionHours);
+        }
+    }
+
+    public static class ChangeRecord {
+
+        private final long id;
+        private final long orderId;
+        private final boolean delete;
+        private final LocalDateTime orderedAt;
+        private final double amount;
+        private final String status;
+        private final String customerKey;
+
+        public ChangeRecord(long id, long orderId, boolean delete, LocalDateTime orderedAt,
+                            double amount, String status, String customerKey) {
+            this.id = id;
+            this.orderId = orderId;
+            this.delete = delete;
+            this.orderedAt = orderedAt;
+            this.amount = amount;
+            this.status = status;
+            this.customerKey = customerKey;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getOrderId() {
+            return orderId;
+        }
+
+        public boolean isDelete() {
+            return delete;
+        }
+
+        public LocalDateTime getOrderedAt() {
+            return orderedAt;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getCustomerKey() {
+            return customerKey;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.ColumnarOrderStore;
+import com.xeno.shopify.analytics.OrderStoreSnapshots;
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.OrderSource;
+import com.xeno.shopify.event.TenantStatusChangedEvent;
+import com.xeno.shopify.service.OrderChangeLogService.ChangeRecord;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link ColumnarOrderStore} per tenant and order table, loaded in the
+ * background at startup and kept current from {@link OrderChangedEvent}s after each
+ * write commits. Trend, monthly revenue and status queries are answered from memory
+ * once a tenant's store has finished loading; until then callers fall back to the
+ * rollup tables.
+ *
+ * The stores live off-heap, about {@link ColumnarOrderStore#BYTES_PER_ORDER} bytes per
+ * order (37 MB per million), published as the analytics.order.store.bytes gauge and
+ * bounded by -XX:MaxDirectMemorySize. Deactivating a tenant frees its stores straight
+ * away and reactivating it loads them again; inactive tenants are skipped at startup.
+ *
+ * Loaded stores are snapshotted to one file per tenant and table on a schedule and at
+ * shutdown, together with the order_change_log offset they are known to cover. A
+ * tenant whose snapshot is younger than the change log retention is restored from it
+ * and brought up to date by replaying only the changes after the offset, instead of
+ * reading all of its orders back from the database.
+ */
+@Service
+public class OrderStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStoreService.class);
+
+    private static final String ASSIGNMENT_ORDERS_QUERY = """
+        SELECT id, order_date AS ordered_at, total_amount AS amount, status, customer_id AS customer_key
+        FROM assignment_orders
+        WHERE tenant_id = ? AND id > ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    private static final String ASSIGNMENT_COUNT_QUERY = "SELECT COUNT(*) FROM assignment_orders WHERE tenant_id = ?";
+
+    private static final String SHOPIFY_ORDERS_QUERY = """
+        SELECT id, processed_at AS ordered_at, total_price AS amount,
+            COALESCE(financial_status, 'unknown') AS status, customer_shopify_id AS customer_key
+        FROM orders
+        WHERE tenant_id = ? AND processed_at IS NOT NULL AND id > ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    private static final String SHOPIFY_COUNT_QUERY =
+        "SELECT COUNT(*) FROM orders WHERE tenant_id = ? AND processed_at IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderChangeLogService changeLogService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Value("${analytics.order-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.order-store.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    @Value("${analytics.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${analytics.snapshot.directory:./data/analytics-snapshots}")
+    private String snapshotDirectory;
+
+    @Value("${analytics.snapshot.grace-seconds:60}")
+    private int snapshotGraceSeconds;
+
+    private final Map<OrderSource, Map<String, ColumnarOrderStore>> stores = new EnumMap<>(OrderSource.class);
+
+    // Sources whose tenants have been listed by the startup load
+    private final Set<OrderSource> enumeratedSources = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> inactiveTenants = ConcurrentHashMap.newKeySet();
+
+    public OrderStoreService() {
+        for (OrderSource source : OrderSource.values()) {
+            stores.put(source, new ConcurrentHashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("analytics.order.store.bytes", this, OrderStoreService::memoryBytes)
+            .description("Off-heap memory held by the columnar order stores")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("analytics.order.store.orders", this, OrderStoreService::orderCount)
+            .description("Orders held by the in-memory columnar order stores")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loaderExecutor.execute(this::loadAll);
+        }
+    }
+
+    /**
+     * Load every tenant's orders from both order tables
+     */
+    public void loadAll() {
+        inactiveTenants.addAll(jdbcTemplate.queryForList(
+            "SELECT tenant_id FROM tenants WHERE is_active = FALSE", String.class));
+
+        for (OrderSource source : OrderSource.values()) {
+            try {
+                List<String> tenantIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT tenant_id FROM " + tableFor(source), String.class);
+                tenantIds.removeAll(inactiveTenants);
+                for (String tenantId : tenantIds) {
+                    stores.get(source).computeIfAbsent(tenantId, id -> new ColumnarOrderStore());
+                }
+                enumeratedSources.add(source);
+
+                // A tenant that fails to load keeps falling back to the database; the rest still load
+                for (String tenantId : tenantIds) {
+                    try {
+                        loadTenant(source, tenantId);
+                    } catch (Exception e) {
+                        logger.error("Error loading {} orders for tenant {} into the order store: {}",
+                            source, tenantId, e.getMessage(), e);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Error listing {} tenants for the order store: {}", source, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * (Re)load one tenant's orders. Live changes keep applying to the new store while it
+     * loads, and queries fall back to the database until it is complete.
+     */
+    public void loadTenant(OrderSource source, String tenantId) {
+        if (inactiveTenants.contains(tenantId)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        if (snapshotEnabled && restoreTenant(source, tenantId)) {
+            ColumnarOrderStore restored = stores.get(source).get(tenantId);
+            logger.info("Restored {} {} orders for tenant {} from snapshot in {} ms",
+                restored != null ? restored.size() : 0, source, tenantId, System.currentTimeMillis() - started);
+            return;
+        }
+
+        Long expected = jdbcTemplate.queryForObject(
+            source == OrderSource.SHOPIFY ? SHOPIFY_COUNT_QUERY : ASSIGNMENT_COUNT_QUERY, Long.class, tenantId);
+        int capacity = (int) Math.min(expected != null ? expected + expected / 8 : 0, Integer.MAX_VALUE);
+
+        // Keep a store that is still waiting for its first load, it may already hold live changes
+        ColumnarOrderStore[] replaced = new ColumnarOrderStore[1];
+        ColumnarOrderStore store = stores.get(source).compute(tenantId, (id, existing) -> {
+            if (existing != null && !existing.isLoaded()) {
+                return existing;
+            }
+            replaced[0] = existing;
+            return new ColumnarOrderStore(capacity);
+        });
+        if (replaced[0] != null) {
+            replaced[0].release();
+        }
+
+        String query = source == OrderSource.SHOPIFY ? SHOPIFY_ORDERS_QUERY : ASSIGNMENT_ORDERS_QUERY;
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>(loadBatchSize);
+            jdbcTemplate.query(query, rs -> {
+                long id = rs.getLong("id");
+                store.loadRow(id, toEpochSecond(rs.getTimestamp("ordered_at").toLocalDateTime()),
+                    toCents(rs.getDouble("amount")), rs.getString("status"), rs.getString("customer_key"));
+                ids.add(id);
+            }, tenantId, lastId, loadBatchSize);
+
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < loadBatchSize) {
+                break;
+            }
+        }
+
+        store.markLoaded();
+        dataVersionService.bump(tenantId);
+        logger.info("Loaded {} {} orders for tenant {} into the order store in {} ms",
+            store.size(), source, tenantId, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Restore a tenant from its snapshot and replay the change log from the snapshot's
+     * offset. Returns false, leaving the caller to load from the database, if there is
+     * no usable snapshot or the changes after it may already have been pruned.
+     */
+    private boolean restoreTenant(OrderSource source, String tenantId) {
+        Path file = snapshotFile(source, tenantId);
+        OrderStoreSnapshots.Snapshot snapshot;
+        try {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+            // Leave an hour's margin before the pruner removes changes the replay needs
+            Duration maxAge = Duration.ofHours(changeLogService.getRetentionHours() - 1L);
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+            if (age > maxAge.toMillis()) {
+                logger.info("Snapshot for {} tenant {} is older than the change log, loading from the database",
+                    source, tenantId);
+                return false;
+            }
+            snapshot = OrderStoreSnapshots.read(file);
+        } catch (IOException e) {
+            logger.warn("Could not restore {} orders for tenant {} from snapshot: {}", source, tenantId, e.getMessage());
+            return false;
+        }
+
+        // Publish before replaying: live changes apply to the restored store from here on,
+        // and every change committed before this point is in the change log. Change ids are
+        // assigned before commit, so one with a lower id can commit after a higher one; the
+        // replay therefore starts from the snapshot's own offset rather than from where an
+        // earlier read of the log stopped. Queries keep using the database until it is done.
+        ColumnarOrderStore restored = snapshot.getStore();
+        ColumnarOrderStore replaced = stores.get(source).put(tenantId, restored);
+        if (replaced != null) {
+            replaced.release();
+        }
+        replayChanges(source, tenantId, restored, snapshot.getChangeLogOffset());
+        restored.markLoaded();
+        dataVersionService.bump(tenantId);
+        return true;
+    }
+
+    // Versions make replaying a change the store has already seen a no-op
+    private long replayChanges(OrderSource source, String tenantId, ColumnarOrderStore store, long afterId) {
+        long lastId = afterId;
+        while (true) {
+            List<ChangeRecord> changes = changeLogService.readChanges(source, tenantId, lastId, loadBatchSize);
+            for (ChangeRecord change : changes) {
+                if (change.isDelete()) {
+                    store.remove(change.getOrderId(), change.getId());
+                } else {
+                    store.upsert(change.getOrderId(), change.getId(), toEpochSecond(change.getOrderedAt()),
+                        toCents(change.getAmount()), change.getStatus(), change.getCustomerKey());
+                }
+                lastId = change.getId();
+            }
+            if (changes.size() < loadBatchSize) {
+                return lastId;
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of every loaded store. The offset is read first, so every change
+     * up to it is already in the stores when they are copied; changes after it that also
+     * made it in are harmless to replay.
+     */
+    @Scheduled(cron = "${analytics.snapshot.cron:0 */10 * * * *}")
+    public void snapshotAll() {
+        if (!enabled || !snapshotEnabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long offset = changeLogService.committedOffset(snapshotGraceSeconds);
+        int written = 0;
+        for (Map.Entry<OrderSource, Map<String, ColumnarOrderStore>> entry : stores.entrySet()) {
+            for (Map.Entry<String, ColumnarOrderStore> tenantStore : entry.getValue().entrySet()) {
+                if (!tenantStore.getValue().isLoaded()) {
+                    continue;
+                }
+                try {
+                    OrderStoreSnapshots.write(snapshotFile(entry.getKey(), tenantStore.getKey()),
+                        tenantStore.getValue(), offset);
+                    written++;
+                } catch (IOException | IllegalStateException e) {
+                    logger.warn("Could not snapshot {} orders for tenant {}: {}",
+                        entry.getKey(), tenantStore.getKey(), e.getMessage());
+                }
+            }
+        }
+        logger.info("Wrote {} order store snapshots at change log offset {} in {} ms",
+            written, offset, System.currentTimeMillis() - started);
+    }
+
+    @Order(DataVersionService.CONSUMER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        OrderSnapshot before = event.getBefore();
+        OrderSnapshot after = event.getAfter();
+        OrderSource source = after != null ? after.getSource() : before.getSource();
+        if (inactiveTenants.contains(event.getTenantId())) {
+            return;
+        }
+
+        ColumnarOrderStore store = stores.get(source).computeIfAbsent(event.getTenantId(), id -> {
+            ColumnarOrderStore created = new ColumnarOrderStore();
+            // A tenant the startup load did not list has no orders other than this one
+            if (enumeratedSources.contains(source)) {
+                created.markLoaded();
+            }
+            return created;
+        });
+
+        long version = event.getChangeId() != null ? event.getChangeId() : 0L;
+        if (after != null && after.getOrderId() != null) {
+            store.upsert(after.getOrderId(), version, toEpochSecond(after.getOrderDate()),
+                toCents(after.getAmount()), after.getStatus(), after.getCustomerKey());
+        } else if (before != null && before.getOrderId() != null) {
+            store.remove(before.getOrderId(), version);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantStatusChanged(TenantStatusChangedEvent event) {
+        String tenantId = event.getTenantId();
+        if (event.isActive()) {
+            inactiveTenants.remove(tenantId);
+            if (enabled) {
+                for (OrderSource source : OrderSource.values()) {
+                    loaderExecutor.execute(() -> loadTenant(source, tenantId));
+                }
+            }
+        } else {
+            inactiveTenants.add(tenantId);
+            releaseTenant(tenantId);
+        }
+    }
+
+    /**
+     * Drop a tenant's stores and free their native memory
+     */
+    public void releaseTenant(String tenantId) {
+        long freed = 0;
+        for (Map<String, ColumnarOrderStore> tenantStores : stores.values()) {
+            ColumnarOrderStore store = tenantStores.remove(tenantId);
+            if (store != null) {
+                freed += store.memoryBytes();
+                store.release();
+            }
+        }
+        logger.info("Released order stores for tenant {} ({} bytes)", tenantId, freed);
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        try {
+            snapshotAll();
+        } catch (Exception e) {
+            logger.warn("Could not snapshot order stores at shutdown: {}", e.getMessage());
+        }
+        for (Map<String, ColumnarOrderStore> tenantStores : stores.values()) {
+            tenantStores.values().forEach(ColumnarOrderStore::release);
+            tenantStores.clear();
+        }
+    }
+
+    public boolean isReady(OrderSource source, String tenantId) {
+        return loadedStore(source, tenantId) != null;
+    }
+
+    /**
+     * Add the tenant's orders with the given status, or all live orders if status is
+     * null, into the buckets [boundaries[b], boundaries[b + 1]) of epoch seconds.
+     * Returns false, leaving the buckets untouched, when the tenant has no loaded store,
+     * including one released or replaced by a reload since the caller checked isReady.
+     */
+    public boolean sumByBucket(OrderSource source, String tenantId, String status,
+                               long[] boundaries, long[] counts, long[] cents) {
+        ColumnarOrderStore store = loadedStore(source, tenantId);
+        if (store == null) {
+            return false;
+        }
+        try {
+            store.sumByBucket(status, boundaries, counts, cents);
+            return true;
+        } catch (IllegalStateException e) {
+            // Released between the lookup and the read
+            return false;
+        }
+    }
+
+    /**
+     * The tenant's assignment orders per status, or null when the tenant has no loaded
+     * store, as for sumByBucket
+     */
+    public Map<String, Long> getOrdersByStatus(String tenantId) {
+        ColumnarOrderStore store = loadedStore(OrderSource.ASSIGNMENT, tenantId);
+        if (store == null) {
+            return null;
+        }
+        try {
+            return store.countByStatus();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Map<String, ColumnarOrderStore> tenantStores : stores.values()) {
+            for (ColumnarOrderStore store : tenantStores.values()) {
+                bytes += store.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public long orderCount() {
+        long orders = 0;
+        for (Map<String, ColumnarOrderStore> tenantStores : stores.values()) {
+            for (ColumnarOrderStore store : tenantStores.values()) {
+                orders += store.size();
+            }
+        }
+        return orders;
+    }
+
+    private ColumnarOrderStore loadedStore(OrderSource source, String tenantId) {
+        if (!enabled) {
+            return null;
+        }
+        ColumnarOrderStore store = stores.get(source).get(tenantId);
+        return store != null && store.isLoaded() ? store : null;
+    }
+
+    private Path snapshotFile(OrderSource source, String tenantId) {
+        return Paths.get(snapshotDirectory, source.name().toLowerCase(),
+            URLEncoder.encode(tenantId, StandardCharsets.UTF_8) + ".snap");
+    }
+
+    private static String tableFor(OrderSource source) {
+        return source == OrderSource.SHOPIFY ? "orders" : "assignment_orders";
+    }
+
+    // Wall-clock time read as UTC, so epoch days line up with DATE() in MySQL
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return (dateTime != null ? dateTime : LocalDateTime.now()).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
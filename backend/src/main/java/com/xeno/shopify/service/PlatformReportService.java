@@ -0,0 +1,274 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.TimeBuckets;
+import com.xeno.shopify.analytics.TimeBuckets.Granularity;
+import com.xeno.shopify.dto.OrderTrends;
+import com.xeno.shopify.dto.PlatformReport;
+import com.xeno.shopify.event.OrderSource;
+import com.xeno.shopify.model.Tenant;
+import com.xeno.shopify.repository.TenantRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Platform-wide totals for operators: orders and GMV per bucket, and webhook sync lag,
+ * across every active tenant.
+ *
+ * Each tenant's partial is computed on its own, from the same sources as its dashboard
+ * (the order store, else the daily rollups, else the order table) plus one indexed
+ * range query on its webhooks. Tenants are dealt into one slice per thread of the
+ * platform report pool, which is separate from the dashboard query pool, so a report
+ * over thousands of tenants neither queues ahead of dashboard queries nor spills onto
+ * the request thread. Partials are then merged on the request thread. A tenant that
+ * fails is listed in the report instead of failing it.
+ */
+@Service
+public class PlatformReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlatformReportService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private QueryFanOut queryFanOut;
+
+    @Autowired
+    @Qualifier("platformReportExecutor")
+    private ThreadPoolTaskExecutor reportExecutor;
+
+    @Value("${analytics.platform.timeout-ms:60000}")
+    private long timeoutMs;
+
+    @Value("${analytics.platform.top-tenants:10}")
+    private int topTenants;
+
+    /**
+     * Report on startDate through endDate inclusive, bucketed in UTC
+     */
+    public PlatformReport getReport(LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        long started = System.currentTimeMillis();
+        TimeBuckets buckets = TimeBuckets.between(startDate, endDate, granularity, ZoneOffset.UTC);
+        List<String> tenantIds = tenantRepository.findByIsActiveTrue().stream().map(Tenant::getTenantId).toList();
+
+        // Every slice mixes large and small tenants, since tenants are dealt round robin
+        int sliceCount = Math.max(1, Math.min(reportExecutor.getMaxPoolSize(), tenantIds.size()));
+        List<List<String>> slices = new ArrayList<>(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (int i = 0; i < tenantIds.size(); i++) {
+            slices.get(i % sliceCount).add(tenantIds.get(i));
+        }
+
+        List<CompletableFuture<List<TenantPartial>>> partials = new ArrayList<>(sliceCount);
+        for (List<String> slice : slices) {
+            partials.add(CompletableFuture.supplyAsync(() -> {
+                List<TenantPartial> computed = new ArrayList<>(slice.size());
+                for (String tenantId : slice) {
+                    computed.add(computePartial(tenantId, buckets, startDate, endDate));
+                }
+                return computed;
+            }, reportExecutor));
+        }
+        queryFanOut.awaitAll(timeoutMs, partials.toArray(new CompletableFuture<?>[0]));
+
+        PlatformTotals totals = new PlatformTotals(buckets.size());
+        for (CompletableFuture<List<TenantPartial>> slice : partials) {
+            slice.join().forEach(totals::merge);
+        }
+
+        PlatformReport report = totals.toReport(buckets);
+        report.setStartDate(startDate);
+        report.setEndDate(endDate);
+        report.setGranularity(granularity.name().toLowerCase());
+        report.setDurationMs(System.currentTimeMillis() - started);
+        logger.info("Built platform report for {} tenants in {} ms", tenantIds.size(), report.getDurationMs());
+        return report;
+    }
+
+    private TenantPartial computePartial(String tenantId, TimeBuckets buckets, LocalDate startDate, LocalDate endDate) {
+        TenantPartial partial = new TenantPartial(tenantId, buckets.size());
+        try {
+            for (OrderSource source : OrderSource.values()) {
+                long[] cents = new long[buckets.size()];
+                analyticsService.sumByBucket(source, tenantId, null, buckets, partial.counts, cents);
+                for (int b = 0; b < cents.length; b++) {
+                    partial.cents[b] += cents[b];
+                    partial.centsBySource[source.ordinal()] += cents[b];
+                }
+            }
+
+            jdbcTemplate.query("""
+                SELECT COUNT(processed_at) as processed,
+                    COALESCE(SUM(TIMESTAMPDIFF(SECOND, created_at, processed_at)), 0) as lag_seconds,
+                    COALESCE(MAX(TIMESTAMPDIFF(SECOND, created_at, processed_at)), 0) as max_lag_seconds,
+                    COUNT(CASE WHEN processed = FALSE THEN 1 END) as pending,
+                    COALESCE(TIMESTAMPDIFF(SECOND, MIN(CASE WHEN processed = FALSE THEN created_at END),
+                        CURRENT_TIMESTAMP), 0) as oldest_pending_seconds
+                FROM webhook_events
+                WHERE tenant_id = ? AND created_at >= ? AND created_at < ?
+            """, rs -> {
+                partial.processed = rs.getLong("processed");
+                partial.lagSeconds = rs.getLong("lag_seconds");
+                partial.maxLagSeconds = rs.getLong("max_lag_seconds");
+                partial.pending = rs.getLong("pending");
+                partial.oldestPendingSeconds = rs.getLong("oldest_pending_seconds");
+            }, tenantId, Timestamp.valueOf(startDate.atStartOfDay()), Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+        } catch (Exception e) {
+            logger.error("Error computing platform report for tenant {}: {}", tenantId, e.getMessage(), e);
+            partial.failed = true;
+        }
+        return partial;
+    }
+
+    // One tenant's contribution, in cents and seconds so merging is plain addition
+    private static final class TenantPartial {
+        final String tenantId;
+        final long[] counts;
+        final long[] cents;
+        final long[] centsBySource = new long[OrderSource.values().length];
+        long processed;
+        long lagSeconds;
+        long maxLagSeconds;
+        long pending;
+        long oldestPendingSeconds;
+        boolean failed;
+
+        TenantPartial(String tenantId, int buckets) {
+            this.tenantId = tenantId;
+            this.counts = new long[buckets];
+            this.cents = new long[buckets];
+        }
+
+        long totalCents() {
+            long total = 0;
+            for (long sourceCents : centsBySource) {
+                total += sourceCents;
+            }
+            return total;
+        }
+    }
+
+    private final class PlatformTotals {
+        final long[] counts;
+        final long[] cents;
+        final long[] centsBySource = new long[OrderSource.values().length];
+        final List<TenantPartial> merged = new ArrayList<>();
+        final List<String> failed = new ArrayList<>();
+        long processed;
+        long lagSeconds;
+        long maxLagSeconds;
+        long pending;
+        long oldestPendingSeconds;
+
+        PlatformTotals(int buckets) {
+            counts = new long[buckets];
+            cents = new long[buckets];
+        }
+
+        void merge(TenantPartial partial) {
+            if (partial.failed) {
+                failed.add(partial.tenantId);
+                return;
+            }
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += partial.counts[b];
+                cents[b] += partial.cents[b];
+            }
+            for (int s = 0; s < centsBySource.length; s++) {
+                centsBySource[s] += partial.centsBySource[s];
+            }
+            processed += partial.processed;
+            lagSeconds += partial.lagSeconds;
+            maxLagSeconds = Math.max(maxLagSeconds, partial.maxLagSeconds);
+            pending += partial.pending;
+            oldestPendingSeconds = Math.max(oldestPendingSeconds, partial.oldestPendingSeconds);
+            merged.add(partial);
+        }
+
+        PlatformReport toReport(TimeBuckets buckets) {
+            PlatformReport report = new PlatformReport();
+            report.setTenants(merged.size() + failed.size());
+            report.setFailedTenants(failed);
+
+            long totalOrders = 0;
+            List<OrderTrends> periods = new ArrayList<>(counts.length);
+            for (int b = 0; b < counts.length; b++) {
+                OrderTrends period = new OrderTrends();
+                period.setDate(buckets.start(b).toLocalDate());
+                period.setPeriod(buckets.label(b));
+                period.setOrderCount(counts[b]);
+                period.setRevenue(cents[b] / 100.0);
+                periods.add(period);
+                totalOrders += counts[b];
+            }
+            report.setPeriods(periods);
+            report.setTotalOrders(totalOrders);
+
+            long totalCents = 0;
+            Map<String, Double> gmvBySource = new LinkedHashMap<>();
+            for (OrderSource source : OrderSource.values()) {
+                gmvBySource.put(source.name().toLowerCase(), centsBySource[source.ordinal()] / 100.0);
+                totalCents += centsBySource[source.ordinal()];
+            }
+            report.setGmv(totalCents / 100.0);
+            report.setGmvBySource(gmvBySource);
+
+            report.setWebhooksProcessed(processed);
+            report.setAvgSyncLagSeconds(processed > 0 ? (double) lagSeconds / processed : 0.0);
+            report.setMaxSyncLagSeconds(maxLagSeconds);
+            report.setWebhooksPending(pending);
+            report.setOldestPendingSeconds(oldestPendingSeconds);
+
+            report.setTopTenantsByGmv(merged.stream()
+                .sorted(Comparator.comparingLong(TenantPartial::totalCents).reversed())
+                .limit(topTenants)
+                .map(partial -> {
+                    Map<String, Object> tenant = new LinkedHashMap<>();
+                    tenant.put("tenantId", partial.tenantId);
+                    tenant.put("gmv", partial.totalCents() / 100.0);
+                    return tenant;
+                })
+                .toList());
+            report.setMostLaggingTenants(merged.stream()
+                .filter(partial -> partial.maxLagSeconds > 0 || partial.pending > 0)
+                .sorted(Comparator.comparingLong((TenantPartial partial) ->
+                    Math.max(partial.maxLagSeconds, partial.oldestPendingSeconds)).reversed())
+                .limit(topTenants)
+                .map(partial -> {
+                    Map<String, Object> tenant = new LinkedHashMap<>();
+                    tenant.put("tenantId", partial.tenantId);
+                    tenant.put("maxSyncLagSeconds", partial.maxLagSeconds);
+                    tenant.put("webhooksPending", partial.pending);
+                    tenant.put("oldestPendingSeconds", partial.oldestPendingSeconds);
+                    return tenant;
+                })
+                .toList());
+            return report;
+        }
+    }
+}
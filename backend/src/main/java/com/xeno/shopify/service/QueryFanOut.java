@@ -0,0 +1,77 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent queries behind one request concurrently on the
+ * analyticsQueryExecutor, so the request takes about as long as its slowest query
+ * rather than the sum of them all.
+ *
+ * Each query runs in its own transaction on its own connection, so only queries that
+ * return plain values belong here; entities with lazy associations must be loaded on
+ * the request thread, which can do that while the others run. {@link #awaitAll}
+ * enforces the per-request deadline and cancels the queries still waiting to start
+ * when it passes; a query already running on the database is left to finish.
+ */
+@Service
+public class QueryFanOut {
+
+    @Autowired
+    @Qualifier("analyticsQueryExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${analytics.fan-out.timeout-ms:10000}")
+    private long timeoutMs;
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    /**
+     * Wait for every query to complete, rethrowing the first failure
+     *
+     * @throws IllegalStateException if the deadline passes first
+     */
+    public void awaitAll(CompletableFuture<?>... queries) {
+        awaitAll(timeoutMs, queries);
+    }
+
+    /**
+     * As {@link #awaitAll(CompletableFuture[])} with a deadline of its own, for work
+     * such as platform reports that fans out much wider than one dashboard
+     */
+    public void awaitAll(long timeoutMs, CompletableFuture<?>... queries) {
+        try {
+            CompletableFuture.allOf(queries).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(queries);
+            throw new IllegalStateException("Queries did not complete within " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            cancel(queries);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queries", e);
+        } catch (ExecutionException e) {
+            cancel(queries);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void cancel(CompletableFuture<?>... queries) {
+        for (CompletableFuture<?> query : queries) {
+            query.cancel(false);
+        }
+    }
+}
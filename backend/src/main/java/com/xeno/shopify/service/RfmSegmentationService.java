@@ -0,0 +1,247 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.RfmSegmentation;
+import com.xeno.shopify.analytics.RfmSegmentation.Segment;
+import com.xeno.shopify.dto.RfmSegments;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * RFM segmentation of assignment customers, run per tenant nightly and on demand.
+ *
+ * One streaming query aggregates each customer's orders into primitive columns, which
+ * {@link RfmSegmentation} scores on a dedicated fork-join pool. The scores, segment
+ * counts and quintile boundaries then replace the tenant's previous run in one
+ * transaction, written with multi-row inserts instead of a statement per customer.
+ */
+@Service
+public class RfmSegmentationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfmSegmentationService.class);
+
+    private static final int SCORE_COLUMNS = 9;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${analytics.rfm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.rfm.parallelism:0}")
+    private int parallelism;
+
+    @Value("${analytics.rfm.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Scheduled(cron = "${analytics.rfm.cron:0 0 2 * * *}")
+    public void segmentAll() {
+        if (!enabled) {
+            return;
+        }
+        List<String> tenantIds = jdbcTemplate.queryForList(
+            "SELECT DISTINCT tenant_id FROM assignment_customers", String.class);
+
+        for (String tenantId : tenantIds) {
+            try {
+                segmentTenant(tenantId);
+            } catch (Exception e) {
+                logger.error("Error segmenting customers for tenant {}: {}", tenantId, e.getMessage(), e);
+            }
+        }
+    }
+
+    public void segmentTenant(String tenantId) {
+        long started = System.currentTimeMillis();
+        CustomerColumns columns = readCustomers(tenantId);
+        long read = System.currentTimeMillis();
+
+        RfmSegmentation.Result result = RfmSegmentation.score(
+            columns.recencyDays, columns.frequency, columns.monetary, columns.size, pool);
+        long scored = System.currentTimeMillis();
+
+        transactionTemplate.executeWithoutResult(status -> save(tenantId, columns, result, started));
+        dataVersionService.bump(tenantId);
+        logger.info("Segmented {} customers for tenant {}: read {} ms, scored {} ms, saved {} ms",
+            columns.size, tenantId, read - started, scored - read, System.currentTimeMillis() - scored);
+    }
+
+    /**
+     * The tenant's latest run, or null if it has never been segmented
+     */
+    public RfmSegments getSegments(String tenantId) {
+        List<RfmSegments> runs = jdbcTemplate.query("""
+            SELECT customers_count, recency_bounds, frequency_bounds, monetary_bounds, computed_at
+            FROM customer_rfm_runs
+            WHERE tenant_id = ?
+        """, (rs, rowNum) -> {
+            RfmSegments segments = new RfmSegments();
+            segments.setCustomers(rs.getLong("customers_count"));
+            segments.setRecencyBoundsDays(parseBounds(rs.getString("recency_bounds")).stream()
+                .map(days -> days == Long.MAX_VALUE ? null : days).toList());
+            segments.setFrequencyBounds(parseBounds(rs.getString("frequency_bounds")));
+            segments.setMonetaryBounds(parseBounds(rs.getString("monetary_bounds")).stream()
+                .map(cents -> cents / 100.0).toList());
+            segments.setComputedAt(rs.getTimestamp("computed_at").toLocalDateTime());
+            return segments;
+        }, tenantId);
+        if (runs.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Segment segment : Segment.values()) {
+            counts.put(segment.name(), 0L);
+        }
+        jdbcTemplate.query("SELECT segment, customers_count FROM customer_rfm_segments WHERE tenant_id = ?",
+            rs -> {
+                counts.put(rs.getString("segment"), rs.getLong("customers_count"));
+            }, tenantId);
+        RfmSegments segments = runs.get(0);
+        segments.setSegments(counts);
+        return segments;
+    }
+
+    private CustomerColumns readCustomers(String tenantId) {
+        LocalDate today = LocalDate.now();
+        CustomerColumns columns = new CustomerColumns();
+        // Integer.MIN_VALUE makes MySQL stream rows instead of buffering the result
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT c.id, MAX(o.order_date) as last_order_date, COUNT(o.id) as orders_count,
+                    COALESCE(SUM(o.total_amount), 0) as total_spent
+                FROM assignment_customers c
+                LEFT JOIN assignment_orders o ON o.customer_id = c.id
+                WHERE c.tenant_id = ?
+                GROUP BY c.id
+            """, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setString(1, tenantId);
+            return ps;
+        }, rs -> {
+            Timestamp lastOrder = rs.getTimestamp("last_order_date");
+            long recencyDays = lastOrder != null ?
+                Math.max(0, ChronoUnit.DAYS.between(lastOrder.toLocalDateTime().toLocalDate(), today)) : Long.MAX_VALUE;
+            columns.add(rs.getLong("id"), recencyDays, rs.getLong("orders_count"),
+                Math.round(rs.getDouble("total_spent") * 100));
+        });
+        return columns;
+    }
+
+    private void save(String tenantId, CustomerColumns columns, RfmSegmentation.Result result, long started) {
+        jdbcTemplate.update("DELETE FROM customer_rfm_scores WHERE tenant_id = ?", tenantId);
+        int batchSize = Math.max(1, writeBatchSize);
+        for (int from = 0; from < columns.size; from += batchSize) {
+            int to = Math.min(columns.size, from + batchSize);
+            Object[] args = new Object[(to - from) * SCORE_COLUMNS];
+            int a = 0;
+            for (int i = from; i < to; i++) {
+                args[a++] = tenantId;
+                args[a++] = columns.ids[i];
+                args[a++] = columns.recencyDays[i] == Long.MAX_VALUE ? null : columns.recencyDays[i];
+                args[a++] = columns.frequency[i];
+                args[a++] = BigDecimal.valueOf(columns.monetary[i], 2);
+                args[a++] = result.getRecencyScore(i);
+                args[a++] = result.getFrequencyScore(i);
+                args[a++] = result.getMonetaryScore(i);
+                args[a++] = result.getSegment(i).name();
+            }
+            jdbcTemplate.update("INSERT INTO customer_rfm_scores (tenant_id, customer_id, recency_days, frequency, " +
+                "monetary, recency_score, frequency_score, monetary_score, segment) VALUES " +
+                String.join(", ", Collections.nCopies(to - from, "(?, ?, ?, ?, ?, ?, ?, ?, ?)")), args);
+        }
+
+        jdbcTemplate.update("DELETE FROM customer_rfm_segments WHERE tenant_id = ?", tenantId);
+        List<Object[]> counts = new ArrayList<>();
+        for (Segment segment : Segment.values()) {
+            counts.add(new Object[] { tenantId, segment.name(), result.getSegmentCount(segment) });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO customer_rfm_segments (tenant_id, segment, customers_count) VALUES (?, ?, ?)", counts);
+
+        jdbcTemplate.update("""
+            INSERT INTO customer_rfm_runs (tenant_id, customers_count, recency_bounds, frequency_bounds,
+                monetary_bounds, duration_ms, computed_at)
+            VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+            ON DUPLICATE KEY UPDATE customers_count = VALUES(customers_count),
+                recency_bounds = VALUES(recency_bounds), frequency_bounds = VALUES(frequency_bounds),
+                monetary_bounds = VALUES(monetary_bounds), duration_ms = VALUES(duration_ms),
+                computed_at = VALUES(computed_at)
+        """, tenantId, columns.size, formatBounds(result.getRecencyBounds()), formatBounds(result.getFrequencyBounds()),
+            formatBounds(result.getMonetaryBounds()), System.currentTimeMillis() - started);
+    }
+
+    private static String formatBounds(long[] bounds) {
+        return Arrays.stream(bounds).mapToObj(Long::toString).collect(Collectors.joining(","));
+    }
+
+    private static List<Long> parseBounds(String bounds) {
+        return Arrays.stream(bounds.split(",")).map(Long::valueOf).toList();
+    }
+
+    // Growable primitive columns, one entry per customer
+    private static final class CustomerColumns {
+        long[] ids = new long[1024];
+        long[] recencyDays = new long[1024];
+        long[] frequency = new long[1024];
+        long[] monetary = new long[1024];
+        int size;
+
+        void add(long id, long days, long orders, long cents) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                recencyDays = Arrays.copyOf(recencyDays, capacity);
+                frequency = Arrays.copyOf(frequency, capacity);
+                monetary = Arrays.copyOf(monetary, capacity);
+            }
+            ids[size] = id;
+            recencyDays[size] = days;
+            frequency[size] = orders;
+            monetary[size] = cents;
+            size++;
+        }
+    }
+}
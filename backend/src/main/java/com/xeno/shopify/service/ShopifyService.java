@@ -2,6 +2,7 @@ package com.xeno.shopify.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -9,10 +10,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.xeno.shopify.event.OrderChangedEvent;
+import com.xeno.shopify.event.OrderSnapshot;
+import com.xeno.shopify.event.ShopifyCustomerChangedEvent;
+import com.xeno.shopify.event.ShopifyProductChangedEvent;
+import com.xeno.shopify.event.TenantDataChangedEvent;
 import com.xeno.shopify.model.Customer;
 import com.xeno.shopify.model.Order;
 import com.xeno.shopify.model.Product;
@@ -22,6 +29,7 @@ import com.xeno.shopify.repository.ShopifyOrderRepository;
 import com.xeno.shopify.repository.ShopifyProductRepository;
 import com.xeno.shopify.repository.TenantRepository;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -49,6 +57,12 @@ public class ShopifyService {
     @Autowired
     private TenantRepository tenantRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Value("${shopify.api.version:2023-10}")
     private String apiVersion;
 
@@ -188,27 +202,19 @@ public class ShopifyService {
     /**
      * Process webhook for order creation
      */
-    public void processOrderWebhook(String webhookData, String tenantId) {
-        try {
-            logger.info("Processing order webhook for tenant: {}", tenantId);
-            JsonNode orderNode = objectMapper.readTree(webhookData);
-            processOrderData(orderNode, tenantId);
-        } catch (Exception e) {
-            logger.error("Error processing order webhook for tenant {}: {}", tenantId, e.getMessage());
-        }
+    public void processOrderWebhook(String webhookData, String tenantId) throws JsonProcessingException {
+        logger.info("Processing order webhook for tenant: {}", tenantId);
+        JsonNode orderNode = objectMapper.readTree(webhookData);
+        processOrderData(orderNode, tenantId);
     }
 
     /**
      * Process webhook for customer creation/update
      */
-    public void processCustomerWebhook(String webhookData, String tenantId) {
-        try {
-            logger.info("Processing customer webhook for tenant: {}", tenantId);
-            JsonNode customerNode = objectMapper.readTree(webhookData);
-            processCustomerData(customerNode, tenantId);
-        } catch (Exception e) {
-            logger.error("Error processing customer webhook for tenant {}: {}", tenantId, e.getMessage());
-        }
+    public void processCustomerWebhook(String webhookData, String tenantId) throws JsonProcessingException {
+        logger.info("Processing customer webhook for tenant: {}", tenantId);
+        JsonNode customerNode = objectMapper.readTree(webhookData);
+        processCustomerData(customerNode, tenantId);
     }
 
     /**
@@ -232,7 +238,12 @@ public class ShopifyService {
             
             if (customers != null && customers.isArray()) {
                 for (JsonNode customerNode : customers) {
-                    processCustomerData(customerNode, tenantId);
+                    // One bad customer is logged and skipped, not allowed to stop the sync
+                    try {
+                        processCustomerData(customerNode, tenantId);
+                    } catch (Exception e) {
+                        logger.error("Error processing customer data for tenant {}: {}", tenantId, e.getMessage());
+                    }
                 }
             }
         } catch (Exception e) {
@@ -247,7 +258,12 @@ public class ShopifyService {
             
             if (products != null && products.isArray()) {
                 for (JsonNode productNode : products) {
-                    processProductData(productNode, tenantId);
+                    // One bad product is logged and skipped, not allowed to stop the sync
+                    try {
+                        processProductData(productNode, tenantId);
+                    } catch (Exception e) {
+                        logger.error("Error processing product data for tenant {}: {}", tenantId, e.getMessage());
+                    }
                 }
             }
         } catch (Exception e) {
@@ -262,7 +278,12 @@ public class ShopifyService {
             
             if (orders != null && orders.isArray()) {
                 for (JsonNode orderNode : orders) {
-                    processOrderData(orderNode, tenantId);
+                    // One bad order is logged and skipped, not allowed to stop the sync
+                    try {
+                        processOrderData(orderNode, tenantId);
+                    } catch (Exception e) {
+                        logger.error("Error processing order data for tenant {}: {}", tenantId, e.getMessage());
+                    }
                 }
             }
         } catch (Exception e) {
@@ -271,94 +292,109 @@ public class ShopifyService {
     }
 
     private void processCustomerData(JsonNode customerNode, String tenantId) {
-        try {
-            String shopifyId = customerNode.get("id").asText();
-            
-            Optional<Customer> existingCustomer = customerRepository
-                .findByTenantIdAndShopifyId(tenantId, shopifyId);
-            
-            Customer customer = existingCustomer.orElse(new Customer());
-            customer.setTenantId(tenantId);
-            customer.setShopifyId(shopifyId);
-            customer.setEmail(getTextValue(customerNode, "email"));
-            customer.setFirstName(getTextValue(customerNode, "first_name"));
-            customer.setLastName(getTextValue(customerNode, "last_name"));
-            customer.setPhone(getTextValue(customerNode, "phone"));
-            customer.setTotalSpent(getBigDecimalValue(customerNode, "total_spent"));
-            customer.setOrdersCount(getIntValue(customerNode, "orders_count"));
-            customer.setAcceptsMarketing(getBooleanValue(customerNode, "accepts_marketing"));
-            customer.setVerifiedEmail(getBooleanValue(customerNode, "verified_email"));
-            customer.setState(getTextValue(customerNode, "state"));
-            
-            customerRepository.save(customer);
-            
-        } catch (Exception e) {
-            logger.error("Error processing customer data: {}", e.getMessage());
-        }
+        // Save and publish in one transaction so the summary tables move with the customer
+        transactionTemplate.executeWithoutResult(status -> saveCustomer(customerNode, tenantId));
+    }
+
+    private void saveCustomer(JsonNode customerNode, String tenantId) {
+        String shopifyId = customerNode.get("id").asText();
+        
+        Optional<Customer> existingCustomer = customerRepository
+            .findByTenantIdAndShopifyId(tenantId, shopifyId);
+        ShopifyCustomerChangedEvent.Snapshot before = existingCustomer
+            .map(ShopifyCustomerChangedEvent.Snapshot::of).orElse(null);
+        
+        Customer customer = existingCustomer.orElse(new Customer());
+        customer.setTenantId(tenantId);
+        customer.setShopifyId(shopifyId);
+        customer.setEmail(getTextValue(customerNode, "email"));
+        customer.setFirstName(getTextValue(customerNode, "first_name"));
+        customer.setLastName(getTextValue(customerNode, "last_name"));
+        customer.setPhone(getTextValue(customerNode, "phone"));
+        customer.setTotalSpent(getBigDecimalValue(customerNode, "total_spent"));
+        customer.setOrdersCount(getIntValue(customerNode, "orders_count"));
+        customer.setAcceptsMarketing(getBooleanValue(customerNode, "accepts_marketing"));
+        customer.setVerifiedEmail(getBooleanValue(customerNode, "verified_email"));
+        customer.setState(getTextValue(customerNode, "state"));
+        
+        Customer saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new ShopifyCustomerChangedEvent(tenantId, before,
+            ShopifyCustomerChangedEvent.Snapshot.of(saved)));
+        eventPublisher.publishEvent(new TenantDataChangedEvent(tenantId, TenantDataChangedEvent.DataType.CUSTOMERS));
     }
 
     private void processProductData(JsonNode productNode, String tenantId) {
-        try {
-            String shopifyId = productNode.get("id").asText();
-            
-            Optional<Product> existingProduct = productRepository
-                .findByTenantIdAndShopifyId(tenantId, shopifyId);
-            
-            Product product = existingProduct.orElse(new Product());
-            product.setTenantId(tenantId);
-            product.setShopifyId(shopifyId);
-            product.setTitle(getTextValue(productNode, "title"));
-            product.setVendor(getTextValue(productNode, "vendor"));
-            product.setProductType(getTextValue(productNode, "product_type"));
-            product.setStatus(getTextValue(productNode, "status"));
-            product.setTaxable(getBooleanValue(productNode, "taxable"));
-            
-            // Get price from first variant
-            JsonNode variants = productNode.get("variants");
-            if (variants != null && variants.isArray() && variants.size() > 0) {
-                JsonNode firstVariant = variants.get(0);
-                product.setPrice(getBigDecimalValue(firstVariant, "price"));
-                product.setInventoryQuantity(getIntValue(firstVariant, "inventory_quantity"));
-                product.setSku(getTextValue(firstVariant, "sku"));
-            }
-            
-            productRepository.save(product);
-            
-        } catch (Exception e) {
-            logger.error("Error processing product data: {}", e.getMessage());
+        // Save and publish in one transaction so the summary tables move with the product
+        transactionTemplate.executeWithoutResult(status -> saveProduct(productNode, tenantId));
+    }
+
+    private void saveProduct(JsonNode productNode, String tenantId) {
+        String shopifyId = productNode.get("id").asText();
+        
+        Optional<Product> existingProduct = productRepository
+            .findByTenantIdAndShopifyId(tenantId, shopifyId);
+        ShopifyProductChangedEvent.Snapshot before = existingProduct
+            .map(ShopifyProductChangedEvent.Snapshot::of).orElse(null);
+        
+        Product product = existingProduct.orElse(new Product());
+        product.setTenantId(tenantId);
+        product.setShopifyId(shopifyId);
+        product.setTitle(getTextValue(productNode, "title"));
+        product.setVendor(getTextValue(productNode, "vendor"));
+        product.setProductType(getTextValue(productNode, "product_type"));
+        product.setStatus(getTextValue(productNode, "status"));
+        product.setTaxable(getBooleanValue(productNode, "taxable"));
+        
+        // Get price from first variant
+        JsonNode variants = productNode.get("variants");
+        if (variants != null && variants.isArray() && variants.size() > 0) {
+            JsonNode firstVariant = variants.get(0);
+            product.setPrice(getBigDecimalValue(firstVariant, "price"));
+            product.setInventoryQuantity(getIntValue(firstVariant, "inventory_quantity"));
+            product.setSku(getTextValue(firstVariant, "sku"));
         }
+        
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ShopifyProductChangedEvent(tenantId, before,
+            ShopifyProductChangedEvent.Snapshot.of(saved)));
+        eventPublisher.publishEvent(new TenantDataChangedEvent(tenantId, TenantDataChangedEvent.DataType.PRODUCTS));
     }
 
     private void processOrderData(JsonNode orderNode, String tenantId) {
-        try {
-            String shopifyId = orderNode.get("id").asText();
-            
-            Optional<Order> existingOrder = orderRepository
-                .findByTenantIdAndShopifyId(tenantId, shopifyId);
-            
-            Order order = existingOrder.orElse(new Order());
-            order.setTenantId(tenantId);
-            order.setShopifyId(shopifyId);
-            order.setOrderNumber(getTextValue(orderNode, "order_number"));
-            order.setName(getTextValue(orderNode, "name"));
-            order.setCustomerShopifyId(getTextValue(orderNode.get("customer"), "id"));
-            order.setEmail(getTextValue(orderNode, "email"));
-            order.setFinancialStatus(getTextValue(orderNode, "financial_status"));
-            order.setFulfillmentStatus(getTextValue(orderNode, "fulfillment_status"));
-            order.setTotalPrice(getBigDecimalValue(orderNode, "total_price"));
-            order.setSubtotalPrice(getBigDecimalValue(orderNode, "subtotal_price"));
-            order.setTotalTax(getBigDecimalValue(orderNode, "total_tax"));
-            order.setCurrency(getTextValue(orderNode, "currency"));
-            
-            String processedAtStr = getTextValue(orderNode, "processed_at");
-            if (processedAtStr != null) {
-                order.setProcessedAt(OffsetDateTime.parse(processedAtStr).toLocalDateTime());
-            }
-            
-            orderRepository.save(order);
-            
-        } catch (Exception e) {
-            logger.error("Error processing order data: {}", e.getMessage());
+        String shopifyId = orderNode.get("id").asText();
+
+        // Save and publish in one transaction so the daily rollups move with the order
+        transactionTemplate.executeWithoutResult(status -> saveOrder(orderNode, shopifyId, tenantId));
+    }
+
+    private void saveOrder(JsonNode orderNode, String shopifyId, String tenantId) {
+        Optional<Order> existingOrder = orderRepository
+            .findByTenantIdAndShopifyId(tenantId, shopifyId);
+        OrderSnapshot before = existingOrder.map(OrderSnapshot::of).orElse(null);
+        
+        Order order = existingOrder.orElse(new Order());
+        order.setTenantId(tenantId);
+        order.setShopifyId(shopifyId);
+        order.setOrderNumber(getTextValue(orderNode, "order_number"));
+        order.setName(getTextValue(orderNode, "name"));
+        order.setCustomerShopifyId(getTextValue(orderNode.get("customer"), "id"));
+        order.setEmail(getTextValue(orderNode, "email"));
+        order.setFinancialStatus(getTextValue(orderNode, "financial_status"));
+        order.setFulfillmentStatus(getTextValue(orderNode, "fulfillment_status"));
+        order.setTotalPrice(getBigDecimalValue(orderNode, "total_price"));
+        order.setSubtotalPrice(getBigDecimalValue(orderNode, "subtotal_price"));
+        order.setTotalTax(getBigDecimalValue(orderNode, "total_tax"));
+        order.setCurrency(getTextValue(orderNode, "currency"));
+        
+        String processedAtStr = getTextValue(orderNode, "processed_at");
+        if (processedAtStr != null) {
+            order.setProcessedAt(OffsetDateTime.parse(processedAtStr).toLocalDateTime());
+        }
+        
+        Order saved = orderRepository.save(order);
+        OrderSnapshot after = OrderSnapshot.of(saved);
+        if (before != null || after != null) {
+            eventPublisher.publishEvent(new OrderChangedEvent(tenantId, before, after));
         }
     }
 
@@ -0,0 +1,350 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.event.ShopifyCustomerChangedEvent;
+import com.xeno.shopify.event.ShopifyProductChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-tenant summary tables of Shopify customers and products, read by primary key
+ * instead of aggregating the base tables:
+ *
+ * tenant_customer_summary  customer counts, total and largest spend
+ * tenant_product_summary   product counts by status, price total, inventory
+ * tenant_top_customers     the biggest spenders in rank order
+ *
+ * Counts and totals move by the difference between the before and after snapshots of
+ * each change, inside the writing transaction. A largest spend that shrinks is re-read
+ * from the (tenant_id, total_spent) index, and the top list is refilled from that index
+ * only when a change can move it. A nightly check recomputes each tenant from the base
+ * tables, repairs any drift and fills tenants that predate the tables.
+ */
+@Service
+public class SummaryTableService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummaryTableService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${analytics.summaries.top-customers:100}")
+    private int topCustomers;
+
+    @Value("${analytics.summaries.check-on-startup:true}")
+    private boolean checkOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkOnStartup() {
+        if (checkOnStartup) {
+            loaderExecutor.execute(this::checkAll);
+        }
+    }
+
+    @EventListener
+    public void onCustomerChanged(ShopifyCustomerChangedEvent event) {
+        ShopifyCustomerChangedEvent.Snapshot before = event.getBefore();
+        ShopifyCustomerChangedEvent.Snapshot after = event.getAfter();
+        String tenantId = event.getTenantId();
+
+        BigDecimal spendBefore = before != null ? before.getTotalSpent() : BigDecimal.ZERO;
+        jdbcTemplate.update("""
+            INSERT INTO tenant_customer_summary (tenant_id, total_customers, verified_customers,
+                marketing_subscribers, total_customer_spend, max_customer_spend)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                total_customers = total_customers + VALUES(total_customers),
+                verified_customers = verified_customers + VALUES(verified_customers),
+                marketing_subscribers = marketing_subscribers + VALUES(marketing_subscribers),
+                total_customer_spend = total_customer_spend + VALUES(total_customer_spend),
+                max_customer_spend = GREATEST(max_customer_spend, VALUES(max_customer_spend))
+        """, tenantId, before == null ? 1 : 0,
+            flag(after.isVerifiedEmail()) - (before != null ? flag(before.isVerifiedEmail()) : 0),
+            flag(after.isAcceptsMarketing()) - (before != null ? flag(before.isAcceptsMarketing()) : 0),
+            after.getTotalSpent().subtract(spendBefore), after.getTotalSpent());
+
+        if (after.getTotalSpent().compareTo(spendBefore) < 0) {
+            // The largest spend may have been this customer's; re-read it from the index
+            jdbcTemplate.update("""
+                UPDATE tenant_customer_summary
+                SET max_customer_spend = (SELECT COALESCE(MAX(total_spent), 0) FROM customers WHERE tenant_id = ?)
+                WHERE tenant_id = ? AND max_customer_spend <= ?
+            """, tenantId, tenantId, spendBefore);
+        }
+
+        if (movesTopCustomers(tenantId, after)) {
+            refreshTopCustomers(tenantId);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ShopifyProductChangedEvent event) {
+        ShopifyProductChangedEvent.Snapshot before = event.getBefore();
+        ShopifyProductChangedEvent.Snapshot after = event.getAfter();
+        jdbcTemplate.update("""
+            INSERT INTO tenant_product_summary (tenant_id, total_products, active_products, draft_products,
+                priced_products, total_price, total_inventory)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                total_products = total_products + VALUES(total_products),
+                active_products = active_products + VALUES(active_products),
+                draft_products = draft_products + VALUES(draft_products),
+                priced_products = priced_products + VALUES(priced_products),
+                total_price = total_price + VALUES(total_price),
+                total_inventory = total_inventory + VALUES(total_inventory)
+        """, event.getTenantId(), before == null ? 1 : 0,
+            statusCount(after, "active") - statusCount(before, "active"),
+            statusCount(after, "draft") - statusCount(before, "draft"),
+            pricedCount(after) - pricedCount(before),
+            price(after).subtract(price(before)),
+            after.getInventoryQuantity() - (before != null ? before.getInventoryQuantity() : 0));
+    }
+
+    /**
+     * Customer and product summary for the tenant, with averages derived from the totals
+     */
+    public Map<String, Object> getSummary(String tenantId) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Map<String, Object> customers = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM tenant_customer_summary WHERE tenant_id = ?", rs -> {
+            long total = rs.getLong("total_customers");
+            BigDecimal spend = rs.getBigDecimal("total_customer_spend");
+            customers.put("totalCustomers", total);
+            customers.put("verifiedCustomers", rs.getLong("verified_customers"));
+            customers.put("marketingSubscribers", rs.getLong("marketing_subscribers"));
+            customers.put("totalCustomerSpend", spend.doubleValue());
+            customers.put("avgCustomerSpend", total > 0 ? spend.doubleValue() / total : 0.0);
+            customers.put("maxCustomerSpend", rs.getBigDecimal("max_customer_spend").doubleValue());
+        }, tenantId);
+
+        Map<String, Object> products = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM tenant_product_summary WHERE tenant_id = ?", rs -> {
+            long priced = rs.getLong("priced_products");
+            products.put("totalProducts", rs.getLong("total_products"));
+            products.put("activeProducts", rs.getLong("active_products"));
+            products.put("draftProducts", rs.getLong("draft_products"));
+            products.put("avgProductPrice", priced > 0 ? rs.getBigDecimal("total_price").doubleValue() / priced : 0.0);
+            products.put("totalInventory", rs.getLong("total_inventory"));
+        }, tenantId);
+
+        summary.put("customers", customers);
+        summary.put("products", products);
+        return summary;
+    }
+
+    /**
+     * The tenant's biggest spenders, at most analytics.summaries.top-customers of them
+     */
+    public List<Map<String, Object>> getTopCustomers(String tenantId, int limit) {
+        return jdbcTemplate.query("""
+            SELECT spending_rank, customer_id, shopify_id, customer_name, email, total_spent, orders_count
+            FROM tenant_top_customers
+            WHERE tenant_id = ? AND spending_rank <= ?
+            ORDER BY spending_rank
+        """, (rs, rowNum) -> {
+            Map<String, Object> customer = new LinkedHashMap<>();
+            customer.put("rank", rs.getInt("spending_rank"));
+            customer.put("id", rs.getLong("customer_id"));
+            customer.put("shopifyId", rs.getString("shopify_id"));
+            customer.put("name", rs.getString("customer_name"));
+            customer.put("email", rs.getString("email"));
+            customer.put("totalSpent", rs.getBigDecimal("total_spent").doubleValue());
+            customer.put("ordersCount", rs.getInt("orders_count"));
+            return customer;
+        }, tenantId, Math.min(limit, topCustomers));
+    }
+
+    /**
+     * Recompute every tenant's summaries from the base tables and repair the rows that
+     * differ. Returns the number of tenants repaired.
+     */
+    @Scheduled(cron = "${analytics.summaries.check-cron:0 15 4 * * *}")
+    public int checkAll() {
+        long started = System.currentTimeMillis();
+        List<String> tenantIds = jdbcTemplate.queryForList("""
+            SELECT DISTINCT tenant_id FROM customers
+            UNION
+            SELECT DISTINCT tenant_id FROM products
+        """, String.class);
+
+        int repaired = 0;
+        for (String tenantId : tenantIds) {
+            try {
+                if (checkTenant(tenantId)) {
+                    repaired++;
+                }
+            } catch (Exception e) {
+                logger.error("Error checking summary tables for tenant {}: {}", tenantId, e.getMessage(), e);
+            }
+        }
+        logger.info("Checked summary tables for {} tenants in {} ms, repaired {}",
+            tenantIds.size(), System.currentTimeMillis() - started, repaired);
+        return repaired;
+    }
+
+    /**
+     * Recompute one tenant's summaries and repair them if they drifted
+     */
+    public boolean checkTenant(String tenantId) {
+        Boolean repaired = transactionTemplate.execute(status -> {
+            boolean drifted = false;
+
+            // Lock the summary rows before reading the base tables. Writers update these rows
+            // in their own transactions, so every delta is then either committed and counted
+            // below, or waits for this transaction and applies on top of the repaired row.
+            List<List<Object>> storedCustomers = jdbcTemplate.query("""
+                SELECT total_customers, verified_customers, marketing_subscribers, total_customer_spend, max_customer_spend
+                FROM tenant_customer_summary WHERE tenant_id = ?
+                FOR UPDATE
+            """, (rs, rowNum) -> row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4), rs.getBigDecimal(5)),
+                tenantId);
+            List<List<Object>> storedProducts = jdbcTemplate.query("""
+                SELECT total_products, active_products, draft_products, priced_products, total_price, total_inventory
+                FROM tenant_product_summary WHERE tenant_id = ?
+                FOR UPDATE
+            """, (rs, rowNum) -> row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                rs.getBigDecimal(5), rs.getLong(6)), tenantId);
+
+            List<Object> expectedCustomers = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*), COUNT(CASE WHEN verified_email = TRUE THEN 1 END),
+                    COUNT(CASE WHEN accepts_marketing = TRUE THEN 1 END),
+                    COALESCE(SUM(total_spent), 0), COALESCE(MAX(total_spent), 0)
+                FROM customers WHERE tenant_id = ?
+            """, (rs, rowNum) -> row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4), rs.getBigDecimal(5)),
+                tenantId);
+            List<Object> expectedProducts = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*), COUNT(CASE WHEN status = 'active' THEN 1 END),
+                    COUNT(CASE WHEN status = 'draft' THEN 1 END), COUNT(price),
+                    COALESCE(SUM(price), 0), COALESCE(SUM(inventory_quantity), 0)
+                FROM products WHERE tenant_id = ?
+            """, (rs, rowNum) -> row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                rs.getBigDecimal(5), rs.getLong(6)), tenantId);
+            if (storedCustomers.isEmpty() || !storedCustomers.get(0).equals(expectedCustomers)) {
+                drifted = true;
+                jdbcTemplate.update("""
+                    REPLACE INTO tenant_customer_summary (tenant_id, total_customers, verified_customers,
+                        marketing_subscribers, total_customer_spend, max_customer_spend)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                """, tenantId, expectedCustomers.get(0), expectedCustomers.get(1), expectedCustomers.get(2),
+                    expectedCustomers.get(3), expectedCustomers.get(4));
+            }
+            if (storedProducts.isEmpty() || !storedProducts.get(0).equals(expectedProducts)) {
+                drifted = true;
+                jdbcTemplate.update("""
+                    REPLACE INTO tenant_product_summary (tenant_id, total_products, active_products, draft_products,
+                        priced_products, total_price, total_inventory)
+                    VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, tenantId, expectedProducts.get(0), expectedProducts.get(1), expectedProducts.get(2),
+                    expectedProducts.get(3), expectedProducts.get(4), expectedProducts.get(5));
+            }
+
+            List<Long> expectedTop = jdbcTemplate.queryForList("""
+                SELECT id FROM customers
+                WHERE tenant_id = ? AND total_spent > 0
+                ORDER BY total_spent DESC, id
+                LIMIT ?
+            """, Long.class, tenantId, topCustomers);
+            List<Long> storedTop = jdbcTemplate.queryForList(
+                "SELECT customer_id FROM tenant_top_customers WHERE tenant_id = ? ORDER BY spending_rank",
+                Long.class, tenantId);
+            if (!storedTop.equals(expectedTop)) {
+                drifted = true;
+                refreshTopCustomers(tenantId);
+            }
+            return drifted;
+        });
+        if (Boolean.TRUE.equals(repaired)) {
+            dataVersionService.bump(tenantId);
+            logger.warn("Repaired drifted summary tables for tenant {}", tenantId);
+        }
+        return Boolean.TRUE.equals(repaired);
+    }
+
+    // A change can reorder the top list if the customer is on it, or could join it
+    private boolean movesTopCustomers(String tenantId, ShopifyCustomerChangedEvent.Snapshot after) {
+        Map<String, Object> top = jdbcTemplate.queryForMap("""
+            SELECT COUNT(*) as customers, MIN(total_spent) as min_spent,
+                COUNT(CASE WHEN customer_id = ? THEN 1 END) as listed
+            FROM tenant_top_customers
+            WHERE tenant_id = ?
+        """, after.getCustomerId(), tenantId);
+        long listed = ((Number) top.get("listed")).longValue();
+        long customers = ((Number) top.get("customers")).longValue();
+        BigDecimal minSpent = (BigDecimal) top.get("min_spent");
+        if (listed > 0) {
+            return true;
+        }
+        if (after.getTotalSpent().signum() <= 0) {
+            return false;
+        }
+        return customers < topCustomers || minSpent == null || after.getTotalSpent().compareTo(minSpent) >= 0;
+    }
+
+    private void refreshTopCustomers(String tenantId) {
+        jdbcTemplate.update("DELETE FROM tenant_top_customers WHERE tenant_id = ?", tenantId);
+        jdbcTemplate.update("""
+            INSERT INTO tenant_top_customers (tenant_id, spending_rank, customer_id, shopify_id, customer_name,
+                email, total_spent, orders_count)
+            SELECT tenant_id, ROW_NUMBER() OVER (ORDER BY total_spent DESC, id), id, shopify_id,
+                CONCAT(first_name, ' ', last_name), email, total_spent, COALESCE(orders_count, 0)
+            FROM (
+                SELECT * FROM customers
+                WHERE tenant_id = ? AND total_spent > 0
+                ORDER BY total_spent DESC, id
+                LIMIT ?
+            ) top
+        """, tenantId, topCustomers);
+    }
+
+    private static List<Object> row(Object... values) {
+        List<Object> row = new ArrayList<>(values.length);
+        for (Object value : values) {
+            // Compare decimals by value, not scale
+            row.add(value instanceof BigDecimal decimal ? decimal.stripTrailingZeros() : value);
+        }
+        return row;
+    }
+
+    private static int flag(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static int statusCount(ShopifyProductChangedEvent.Snapshot product, String status) {
+        return product != null && Objects.equals(product.getStatus(), status) ? 1 : 0;
+    }
+
+    private static int pricedCount(ShopifyProductChangedEvent.Snapshot product) {
+        return product != null && product.getPrice() != null ? 1 : 0;
+    }
+
+    private static BigDecimal price(ShopifyProductChangedEvent.Snapshot product) {
+        return product != null && product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,92 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.event.TenantStatusChangedEvent;
+import com.xeno.shopify.model.Tenant;
+import com.xeno.shopify.repository.TenantRepository;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TenantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantService.class);
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    private final Map<String, ZoneId> zones = new ConcurrentHashMap<>();
+
+    /**
+     * Activate or deactivate a tenant. Listeners release or reload the tenant's
+     * in-memory analytics once the change commits.
+     */
+    @Transactional
+    public Optional<Tenant> setActive(String tenantId, boolean active) {
+        return tenantRepository.findByTenantId(tenantId)
+                .map(tenant -> {
+                    if (!Boolean.valueOf(active).equals(tenant.getIsActive())) {
+                        tenant.setIsActive(active);
+                        tenant = tenantRepository.save(tenant);
+                        eventPublisher.publishEvent(new TenantStatusChangedEvent(tenantId, active));
+                        logger.info("Tenant {} {}", tenantId, active ? "activated" : "deactivated");
+                    }
+                    return tenant;
+                });
+    }
+
+    /**
+     * Change the time zone a tenant's analytics are bucketed in
+     *
+     * @throws java.time.DateTimeException if the zone id is not valid
+     */
+    @Transactional
+    public Optional<Tenant> setTimeZone(String tenantId, String timeZone) {
+        ZoneId zone = ZoneId.of(timeZone);
+        return tenantRepository.findByTenantId(tenantId)
+                .map(tenant -> {
+                    tenant.setTimeZone(zone.getId());
+                    tenant = tenantRepository.save(tenant);
+                    zones.put(tenantId, zone);
+                    dataVersionService.bump(tenantId);
+                    logger.info("Tenant {} time zone set to {}", tenantId, zone.getId());
+                    return tenant;
+                });
+    }
+
+    /**
+     * The tenant's time zone, UTC if unset or unknown
+     */
+    public ZoneId getZone(String tenantId) {
+        return zones.computeIfAbsent(tenantId, id -> tenantRepository.findByTenantId(id)
+                .map(Tenant::getTimeZone)
+                .map(TenantService::parseZone)
+                .orElse(ZoneOffset.UTC));
+    }
+
+    private static ZoneId parseZone(String timeZone) {
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            logger.warn("Ignoring invalid tenant time zone {}", timeZone);
+            return ZoneOffset.UTC;
+        }
+    }
+}
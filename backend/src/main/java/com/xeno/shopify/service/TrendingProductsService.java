@@ -0,0 +1,294 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.analytics.SpaceSaving;
+import com.xeno.shopify.dto.TrendingProduct;
+import com.xeno.shopify.event.ProductSoldEvent;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Top products by units and by revenue over the last 1 to 30 days, kept in memory from
+ * the stream of new assignment orders.
+ *
+ * Each tenant has one {@link SpaceSaving} summary per day and metric, in a ring of
+ * {@link #MAX_WINDOW_DAYS} days. A window is answered by merging its days' summaries,
+ * so the cost depends on the window length and summary capacity and never on how many
+ * order items were sold. Ranked values are upper bounds and come with the most they
+ * may over-state the true figure; products selling more than 1/capacity of a day's
+ * total are always tracked. Sales are counted when orders are created, as the product
+ * statistics are; later cancellations are not subtracted.
+ *
+ * The last 30 days are loaded from the database at startup, up to the highest order id
+ * at the time. Events of orders up to that id are held until the load is done: an order
+ * the load read is not counted again, and one that committed too late for the load's
+ * read, with a lower id than orders it did see, is counted from its events. Which orders
+ * the load read is kept in a bitmap, one bit per order id, only while it runs.
+ */
+@Service
+public class TrendingProductsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingProductsService.class);
+
+    public static final int MAX_WINDOW_DAYS = 30;
+
+    public enum Metric {
+        UNITS,
+        REVENUE
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    @Qualifier("analyticsLoaderExecutor")
+    private ThreadPoolTaskExecutor loaderExecutor;
+
+    @Value("${analytics.trending.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.trending.capacity:200}")
+    private int capacity;
+
+    private final Map<String, TenantSales> tenants = new ConcurrentHashMap<>();
+
+    // Events of orders up to this id wait in heldDuringLoad until the startup load is done
+    private final Object loadMonitor = new Object();
+    private long loadedThroughOrderId = Long.MAX_VALUE;
+    private List<ProductSoldEvent> heldDuringLoad = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loaderExecutor.execute(this::loadRecentSales);
+        }
+    }
+
+    /**
+     * Count the order items of the last {@link #MAX_WINDOW_DAYS} days
+     */
+    public void loadRecentSales() {
+        long started = System.currentTimeMillis();
+        long maxOrderId;
+        try {
+            synchronized (loadMonitor) {
+                Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM assignment_orders", Long.class);
+                maxOrderId = max != null ? max : 0;
+                loadedThroughOrderId = maxOrderId;
+            }
+        } catch (Exception e) {
+            logger.error("Error loading trending products: {}", e.getMessage(), e);
+            // Nothing was loaded, so every held event counts
+            releaseHeldEvents(0, new BitSet());
+            return;
+        }
+
+        LocalDate since = LocalDate.now().minusDays(MAX_WINDOW_DAYS - 1);
+        long[] items = new long[1];
+        // Bit n is set once the load has counted order maxOrderId - n
+        BitSet counted = new BitSet();
+        try {
+            jdbcTemplate.query("""
+                SELECT o.id, o.tenant_id, o.order_date, p.product_id, i.quantity, i.total_price
+                FROM assignment_order_items i
+                JOIN assignment_orders o ON o.id = i.order_id
+                JOIN assignment_products p ON p.id = i.product_id
+                WHERE o.order_date >= ? AND o.id <= ?
+            """, rs -> {
+                long distance = maxOrderId - rs.getLong("id");
+                if (distance <= Integer.MAX_VALUE) {
+                    counted.set((int) distance);
+                }
+                record(rs.getString("tenant_id"), rs.getTimestamp("order_date").toLocalDateTime(),
+                    rs.getString("product_id"), rs.getInt("quantity"), rs.getDouble("total_price"));
+                items[0]++;
+            }, Timestamp.valueOf(since.atStartOfDay()), maxOrderId);
+            logger.info("Loaded {} order items into trending products in {} ms",
+                items[0], System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Error loading trending products: {}", e.getMessage(), e);
+        } finally {
+            releaseHeldEvents(maxOrderId, counted);
+        }
+    }
+
+    // Count the held events of orders the load did not read
+    private void releaseHeldEvents(long maxOrderId, BitSet counted) {
+        int released = 0;
+        synchronized (loadMonitor) {
+            for (ProductSoldEvent event : heldDuringLoad) {
+                long distance = maxOrderId - event.getOrderId();
+                if (distance < 0 || (distance <= Integer.MAX_VALUE && !counted.get((int) distance))) {
+                    record(event.getTenantId(), event.getSoldAt(), event.getProductId(),
+                        event.getQuantity(), event.getRevenue());
+                    released++;
+                }
+            }
+            heldDuringLoad = null;
+        }
+        // Responses served before the load may have been missing its sales
+        dataVersionService.bumpAll();
+        if (released > 0) {
+            logger.info("Counted {} order items committed during the trending products load", released);
+        }
+    }
+
+    @Order(DataVersionService.CONSUMER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSold(ProductSoldEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (loadMonitor) {
+            if (heldDuringLoad != null && event.getOrderId() != null && event.getOrderId() <= loadedThroughOrderId) {
+                heldDuringLoad.add(event);
+                return;
+            }
+        }
+        record(event.getTenantId(), event.getSoldAt(), event.getProductId(), event.getQuantity(), event.getRevenue());
+    }
+
+    /**
+     * The limit best-selling products over the last days days, today included
+     */
+    public List<TrendingProduct> getTrendingProducts(String tenantId, int days, Metric metric, int limit) {
+        if (days < 1 || days > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW_DAYS + " days");
+        }
+        List<TrendingProduct> trending = new ArrayList<>();
+        TenantSales sales = tenants.get(tenantId);
+        if (sales == null) {
+            return trending;
+        }
+
+        long today = LocalDate.now().toEpochDay();
+        Map<String, long[]> totals = sales.merge(metric, today - days + 1, today);
+        List<Map.Entry<String, long[]>> top = SpaceSaving.top(totals, Math.min(limit, capacity));
+        Map<String, String> names = productNames(tenantId, top.stream().map(Map.Entry::getKey).toList());
+
+        double scale = metric == Metric.REVENUE ? 100.0 : 1.0;
+        for (Map.Entry<String, long[]> entry : top) {
+            TrendingProduct product = new TrendingProduct();
+            product.setProductId(entry.getKey());
+            product.setName(names.get(entry.getKey()));
+            product.setValue(entry.getValue()[0] / scale);
+            product.setMaxError(entry.getValue()[1] / scale);
+            trending.add(product);
+        }
+        return trending;
+    }
+
+    private void record(String tenantId, LocalDateTime soldAt, String productId, int quantity, double revenue) {
+        if (productId == null) {
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        // A future order date counts towards today
+        long day = soldAt != null ? Math.min(soldAt.toLocalDate().toEpochDay(), today) : today;
+        if (day <= today - MAX_WINDOW_DAYS) {
+            return;
+        }
+        tenants.computeIfAbsent(tenantId, id -> new TenantSales(capacity))
+            .record(day, productId, quantity, Math.round(revenue * 100));
+    }
+
+    private Map<String, String> productNames(String tenantId, List<String> productIds) {
+        Map<String, String> names = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return names;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(tenantId);
+        args.addAll(productIds);
+        jdbcTemplate.query(
+            "SELECT product_id, name FROM assignment_products WHERE tenant_id = ? AND product_id IN (" +
+                String.join(", ", Collections.nCopies(productIds.size(), "?")) + ")",
+            rs -> {
+                names.put(rs.getString("product_id"), rs.getString("name"));
+            }, args.toArray());
+        return names;
+    }
+
+    // One tenant's daily summaries, in a ring indexed by epoch day
+    private static class TenantSales {
+
+        private final int capacity;
+        private final long[] days = new long[MAX_WINDOW_DAYS];
+        private final SpaceSaving[] units = new SpaceSaving[MAX_WINDOW_DAYS];
+        private final SpaceSaving[] revenue = new SpaceSaving[MAX_WINDOW_DAYS];
+
+        TenantSales(int capacity) {
+            this.capacity = capacity;
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        synchronized void record(long day, String productId, long quantity, long cents) {
+            int slot = (int) Math.floorMod(day, (long) MAX_WINDOW_DAYS);
+            if (days[slot] != day) {
+                if (days[slot] > day) {
+                    // The slot has moved on to a later day; this one is out of every window
+                    return;
+                }
+                days[slot] = day;
+                units[slot] = new SpaceSaving(capacity);
+                revenue[slot] = new SpaceSaving(capacity);
+            }
+            units[slot].offer(productId, quantity);
+            revenue[slot].offer(productId, cents);
+        }
+
+        synchronized Map<String, long[]> merge(Metric metric, long fromDay, long toDay) {
+            List<SpaceSaving> summaries = new ArrayList<>();
+            for (int slot = 0; slot < MAX_WINDOW_DAYS; slot++) {
+                if (days[slot] >= fromDay && days[slot] <= toDay) {
+                    summaries.add((metric == Metric.UNITS ? units : revenue)[slot]);
+                }
+            }
+
+            Map<String, long[]> totals = new HashMap<>();
+            for (SpaceSaving summary : summaries) {
+                summary.addTo(totals);
+            }
+            // A product a full day did not track may still have sold up to that day's
+            // smallest count, which keeps the merged value an upper bound
+            for (SpaceSaving summary : summaries) {
+                long min = summary.minCount();
+                if (min == 0) {
+                    continue;
+                }
+                totals.forEach((productId, total) -> {
+                    if (!summary.contains(productId)) {
+                        total[0] += min;
+                        total[1] += min;
+                    }
+                });
+            }
+            return totals;
+        }
+    }
+}
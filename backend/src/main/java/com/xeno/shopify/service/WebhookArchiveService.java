@@ -0,0 +1,119 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.model.WebhookEvent;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Moves old webhook events into webhook_events_archive.
+ *
+ * The archive table is a compact, write-once copy: payloads are recompressed at
+ * the highest deflate level with the newest dictionary for their topic, and the
+ * table carries only the keyset index used by replay on top of the primary key
+ * (see database/schema.sql, which also sets ROW_FORMAT=COMPRESSED). Each batch is
+ * copied and deleted in one transaction so an event is never in both tables.
+ */
+@Service
+public class WebhookArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookArchiveService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WebhookPayloadCodec payloadCodec;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${webhooks.archive.after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${webhooks.archive.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Archive every event older than the retention window, one batch at a time
+     */
+    @Scheduled(cron = "${webhooks.archive.cron:0 0 4 * * *}")
+    public void archiveOldEvents() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        long archived = 0;
+        long rawBytes = 0;
+        long archivedBytes = 0;
+
+        try {
+            while (true) {
+                List<WebhookEvent> batch = jdbcTemplate.query(
+                    "SELECT " + WebhookEventService.EVENT_COLUMNS + " FROM webhook_events " +
+                    "WHERE created_at < ? ORDER BY id LIMIT ?",
+                    WebhookEventService.EVENT_ROW_MAPPER, Timestamp.valueOf(cutoff), batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                for (WebhookEvent event : batch) {
+                    String payload = payloadCodec.decode(event);
+                    if (payload != null) {
+                        payloadCodec.encode(event, Deflater.BEST_COMPRESSION);
+                        rawBytes += event.getPayloadSize();
+                        archivedBytes += event.getPayloadData().length;
+                    }
+                }
+
+                transactionTemplate.executeWithoutResult(status -> moveToArchive(batch));
+                archived += batch.size();
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error archiving webhook events: {}", e.getMessage(), e);
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} webhook events older than {}: {} raw payload bytes stored in {} bytes ({}x)",
+                archived, cutoff, rawBytes, archivedBytes,
+                archivedBytes > 0 ? String.format("%.1f", (double) rawBytes / archivedBytes) : "n/a");
+        }
+    }
+
+    private void moveToArchive(List<WebhookEvent> batch) {
+        List<Object[]> rows = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        for (WebhookEvent event : batch) {
+            rows.add(new Object[] {
+                event.getId(), event.getTenantId(), event.getEventType(), event.getShopifyId(),
+                event.getPayloadData(), event.getPayloadCodec(), event.getDictionaryId(), event.getPayloadSize(),
+                event.getProcessed(), event.getErrorMessage(), Timestamp.valueOf(event.getCreatedAt()),
+                event.getProcessedAt() != null ? Timestamp.valueOf(event.getProcessedAt()) : null
+            });
+            ids.add(event.getId());
+        }
+
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO webhook_events_archive (id, tenant_id, event_type, shopify_id, payload_data, " +
+            "payload_codec, dictionary_id, payload_size, processed, error_message, created_at, processed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            rows);
+        jdbcTemplate.update(
+            "DELETE FROM webhook_events WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+            ids.toArray());
+    }
+}
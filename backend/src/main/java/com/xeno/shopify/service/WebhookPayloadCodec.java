@@ -0,0 +1,354 @@
+package com.xeno.shopify.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.dto.WebhookCompressionStats;
+import com.xeno.shopify.model.WebhookEvent;
+import com.xeno.shopify.model.WebhookPayloadDictionary;
+import com.xeno.shopify.repository.WebhookPayloadDictionaryRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses raw webhook payloads with a per-topic preset dictionary.
+ *
+ * Shopify payloads of one topic share almost all of their keys and many values,
+ * so a deflate stream primed with a dictionary trained on recent payloads of that
+ * topic compresses far better than deflate alone. Dictionaries are immutable once
+ * stored; every row records the dictionary it was written with, so retraining
+ * never breaks old rows.
+ */
+@Service
+public class WebhookPayloadCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookPayloadCodec.class);
+
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_DEFLATE = "deflate";
+    public static final String CODEC_DEFLATE_DICT = "deflate-dict";
+
+    // Deflate can only reference the last 32 KiB of history
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("\"[A-Za-z0-9_]{1,64}\":");
+    private static final Pattern KEY_VALUE_PATTERN = Pattern.compile(
+        "\"[A-Za-z0-9_]{1,64}\":(?:\"[^\"\\\\]{0,48}\"|-?\\d{1,12}(?:\\.\\d{1,4})?|true|false|null)");
+
+    @Autowired
+    private WebhookPayloadDictionaryRepository dictionaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhooks.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${webhooks.compression.training-samples:500}")
+    private int trainingSamples;
+
+    @Value("${webhooks.compression.min-training-samples:50}")
+    private int minTrainingSamples;
+
+    private final Map<Long, byte[]> dictionariesById = new ConcurrentHashMap<>();
+    private final Map<String, Long> activeDictionaryByTopic = new ConcurrentHashMap<>();
+
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private Timer encodeTimer;
+    private Timer decodeTimer;
+
+    private static final long NO_DICTIONARY = -1L;
+
+    @PostConstruct
+    public void registerMetrics() {
+        encodeTimer = Timer.builder("webhook.payload.encode")
+            .description("CPU time spent compressing webhook payloads")
+            .register(meterRegistry);
+        decodeTimer = Timer.builder("webhook.payload.decode")
+            .description("CPU time spent decompressing webhook payloads")
+            .register(meterRegistry);
+        Gauge.builder("webhook.payload.compression.ratio", this, WebhookPayloadCodec::getCompressionRatio)
+            .description("Raw payload bytes per stored byte since startup")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Compress the decoded payload of an event and fill in its storage columns
+     */
+    public void encode(WebhookEvent event) {
+        encode(event, compressionLevel);
+    }
+
+    /**
+     * Compress with an explicit deflate level, used by the archiver for tighter output
+     */
+    public void encode(WebhookEvent event, int level) {
+        long start = System.nanoTime();
+        byte[] raw = event.getPayload().getBytes(StandardCharsets.UTF_8);
+        Long dictionaryId = activeDictionaryId(event.getEventType());
+        byte[] dictionary = dictionaryId != null ? dictionary(dictionaryId) : null;
+
+        event.setPayloadData(deflate(raw, dictionary, level));
+        event.setPayloadCodec(dictionary != null ? CODEC_DEFLATE_DICT : CODEC_DEFLATE);
+        event.setDictionaryId(dictionary != null ? dictionaryId : null);
+        event.setPayloadSize(raw.length);
+        event.setRawPayload(null);
+
+        rawBytes.addAndGet(raw.length);
+        compressedBytes.addAndGet(event.getPayloadData().length);
+        encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return the decoded payload of an event, decompressing it on first access
+     */
+    public String decode(WebhookEvent event) {
+        if (event.getPayload() != null) {
+            return event.getPayload();
+        }
+        if (event.getPayloadCodec() == null || CODEC_JSON.equals(event.getPayloadCodec())) {
+            event.setPayload(event.getRawPayload());
+            return event.getPayload();
+        }
+
+        long start = System.nanoTime();
+        byte[] dictionary = event.getDictionaryId() != null ? dictionary(event.getDictionaryId()) : null;
+        byte[] raw = inflate(event.getPayloadData(), dictionary, event.getPayloadSize());
+        event.setPayload(new String(raw, StandardCharsets.UTF_8));
+        decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return event.getPayload();
+    }
+
+    /**
+     * Retrain dictionaries for every topic that has stored events
+     */
+    @Scheduled(cron = "${webhooks.compression.train-cron:0 30 3 * * *}")
+    public void trainAllDictionaries() {
+        List<String> topics = jdbcTemplate.queryForList(
+            "SELECT DISTINCT event_type FROM webhook_events", String.class);
+        for (String topic : topics) {
+            try {
+                trainDictionary(topic);
+            } catch (Exception e) {
+                logger.error("Error training payload dictionary for topic {}: {}", topic, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Train and activate a new dictionary for a topic from its most recent payloads
+     *
+     * @return the stored dictionary, or null if there were too few samples
+     */
+    public WebhookPayloadDictionary trainDictionary(String topic) {
+        List<WebhookEvent> events = jdbcTemplate.query(
+            "SELECT " + WebhookEventService.EVENT_COLUMNS + " FROM webhook_events " +
+            "WHERE event_type = ? ORDER BY id DESC LIMIT ?",
+            WebhookEventService.EVENT_ROW_MAPPER,
+            topic, trainingSamples);
+
+        List<String> samples = new ArrayList<>();
+        for (WebhookEvent event : events) {
+            String payload = decode(event);
+            if (payload != null) {
+                samples.add(payload);
+            }
+        }
+
+        if (samples.size() < minTrainingSamples) {
+            logger.info("Skipping dictionary training for topic {}: only {} samples", topic, samples.size());
+            return null;
+        }
+
+        byte[] dictionary = buildDictionary(samples);
+        WebhookPayloadDictionary saved = dictionaryRepository.save(
+            new WebhookPayloadDictionary(topic, dictionary, samples.size()));
+        dictionariesById.put(saved.getId(), dictionary);
+        activeDictionaryByTopic.put(topic, saved.getId());
+
+        logger.info("Trained {} byte payload dictionary {} for topic {} from {} samples",
+            dictionary.length, saved.getId(), topic, samples.size());
+        return saved;
+    }
+
+    public double getCompressionRatio() {
+        long stored = compressedBytes.get();
+        return stored > 0 ? (double) rawBytes.get() / stored : 0.0;
+    }
+
+    public WebhookCompressionStats getStats() {
+        WebhookCompressionStats stats = new WebhookCompressionStats();
+        stats.setRawBytes(rawBytes.get());
+        stats.setCompressedBytes(compressedBytes.get());
+        stats.setCompressionRatio(getCompressionRatio());
+        stats.setEncodeCount(encodeTimer.count());
+        stats.setAvgEncodeMicros(encodeTimer.mean(TimeUnit.MICROSECONDS));
+        stats.setDecodeCount(decodeTimer.count());
+        stats.setAvgDecodeMicros(decodeTimer.mean(TimeUnit.MICROSECONDS));
+        Map<String, Long> activeDictionaries = new HashMap<>();
+        for (Map.Entry<String, Long> entry : activeDictionaryByTopic.entrySet()) {
+            if (entry.getValue() != NO_DICTIONARY) {
+                activeDictionaries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        stats.setActiveDictionaries(activeDictionaries);
+        return stats;
+    }
+
+    private Long activeDictionaryId(String topic) {
+        long id = activeDictionaryByTopic.computeIfAbsent(topic, t ->
+            dictionaryRepository.findFirstByTopicOrderByCreatedAtDesc(t)
+                .map(dictionary -> {
+                    dictionariesById.put(dictionary.getId(), dictionary.getDictionary());
+                    return dictionary.getId();
+                })
+                .orElse(NO_DICTIONARY));
+        return id != NO_DICTIONARY ? id : null;
+    }
+
+    private byte[] dictionary(Long dictionaryId) {
+        return dictionariesById.computeIfAbsent(dictionaryId, id ->
+            dictionaryRepository.findById(id)
+                .map(WebhookPayloadDictionary::getDictionary)
+                .orElseThrow(() -> new IllegalStateException("Payload dictionary not found: " + id)));
+    }
+
+    private static byte[] deflate(byte[] raw, byte[] dictionary, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, byte[] dictionary, int size) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[size];
+            int offset = 0;
+            while (offset < size) {
+                int count = inflater.inflate(raw, offset, size - offset);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (dictionary == null) {
+                            throw new IllegalStateException("Webhook payload requires a dictionary that was not supplied");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        break;
+                    }
+                }
+                offset += count;
+            }
+            if (offset != size) {
+                throw new IllegalStateException("Truncated webhook payload: expected " + size + " bytes, got " + offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt webhook payload: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Build a dictionary from key and key/value fragments that recur across samples,
+     * followed by one representative payload for the overall document shape.
+     * Deflate encodes nearer matches more cheaply, so the most valuable content goes last.
+     */
+    static byte[] buildDictionary(List<String> samples) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (String sample : samples) {
+            Set<String> seen = new HashSet<>();
+            collect(KEY_PATTERN.matcher(sample), seen);
+            collect(KEY_VALUE_PATTERN.matcher(sample), seen);
+            for (String fragment : seen) {
+                documentFrequency.merge(fragment, 1, Integer::sum);
+            }
+        }
+
+        List<String> bySize = new ArrayList<>(samples);
+        bySize.sort(Comparator.comparingInt(String::length));
+        byte[] representative = bySize.get(bySize.size() / 2).getBytes(StandardCharsets.UTF_8);
+        int representativeLength = Math.min(representative.length, MAX_DICTIONARY_SIZE / 2);
+
+        int minFrequency = Math.max(2, samples.size() / 10);
+        List<Map.Entry<String, Integer>> fragments = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : documentFrequency.entrySet()) {
+            if (entry.getValue() >= minFrequency) {
+                fragments.add(entry);
+            }
+        }
+        fragments.sort(Comparator.comparingLong(
+            (Map.Entry<String, Integer> entry) -> (long) entry.getValue() * entry.getKey().length()).reversed());
+
+        List<byte[]> selected = new ArrayList<>();
+        int budget = MAX_DICTIONARY_SIZE - representativeLength;
+        for (Map.Entry<String, Integer> fragment : fragments) {
+            byte[] bytes = fragment.getKey().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > budget) {
+                continue;
+            }
+            selected.add(bytes);
+            budget -= bytes.length;
+        }
+        Collections.reverse(selected);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(MAX_DICTIONARY_SIZE);
+        for (byte[] bytes : selected) {
+            out.write(bytes, 0, bytes.length);
+        }
+        out.write(representative, representative.length - representativeLength, representativeLength);
+        return out.toByteArray();
+    }
+
+    private static void collect(Matcher matcher, Set<String> into) {
+        while (matcher.find()) {
+            into.add(matcher.group());
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.xeno.shopify.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xeno.shopify.dto.WebhookReplayRequest;
+import com.xeno.shopify.dto.WebhookReplayStatus;
+import com.xeno.shopify.model.WebhookEvent;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays stored webhook_events through the normal handler pool.
+ *
+ * Events are read with a keyset scan on (tenant_id, created_at, id) so every chunk
+ * is an index range read no matter how far the replay has progressed. The keyset
+ * predicate is spelled out as ORs with a leading bound rather than a row constructor
+ * comparison, which MySQL does not always turn into a range. The archive
+ * table is scanned first, so a tenant's events are still replayed oldest first.
+ * Dispatch is throttled twice: a rate limit on events per second, and a cap on
+ * events in flight so a replay can never fill the pool queue ahead of live deliveries.
+ * Finished jobs are kept for webhooks.replay.finished-job-ttl-minutes, and at most
+ * max-finished-jobs of them, so their statuses can be read back.
+ */
+@Service
+public class WebhookReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookReplayService.class);
+
+    private static final int MAX_BATCH_SIZE = 50000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WebhookEventService webhookEventService;
+
+    @Autowired
+    @Qualifier("webhookExecutor")
+    private ThreadPoolTaskExecutor webhookExecutor;
+
+    @Autowired
+    @Qualifier("webhookReplayExecutor")
+    private ThreadPoolTaskExecutor replayExecutor;
+
+    @Value("${webhooks.replay.batch-size:5000}")
+    private int defaultBatchSize;
+
+    @Value("${webhooks.replay.max-events-per-second:500}")
+    private int defaultMaxEventsPerSecond;
+
+    @Value("${webhooks.replay.max-in-flight:200}")
+    private int maxInFlight;
+
+    @Value("${webhooks.replay.finished-job-ttl-minutes:1440}")
+    private long finishedJobTtlMinutes;
+
+    @Value("${webhooks.replay.max-finished-jobs:100}")
+    private int maxFinishedJobs;
+
+    // Archived events are older than anything left in the live table
+    private static final List<String> SOURCE_TABLES = List.of("webhook_events_archive", "webhook_events");
+
+    private final Map<String, ReplayJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Start a replay job in the background and return its initial status
+     */
+    public WebhookReplayStatus startReplay(WebhookReplayRequest request) {
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        evictFinishedJobs();
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), request);
+        jobs.put(job.jobId, job);
+        replayExecutor.execute(() -> runReplay(job));
+
+        logger.info("Started webhook replay {} (tenant: {}, topics: {}, dryRun: {})",
+            job.jobId, request.getTenantId(), request.getTopics(), request.isDryRun());
+        return job.toStatus();
+    }
+
+    public Optional<WebhookReplayStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReplayJob::toStatus);
+    }
+
+    public List<WebhookReplayStatus> getAllStatuses() {
+        evictFinishedJobs();
+        List<WebhookReplayStatus> statuses = new ArrayList<>();
+        for (ReplayJob job : jobs.values()) {
+            statuses.add(job.toStatus());
+        }
+        statuses.sort(Comparator.comparing(WebhookReplayStatus::getStartedAt).reversed());
+        return statuses;
+    }
+
+    public boolean cancelReplay(String jobId) {
+        ReplayJob job = jobs.get(jobId);
+        if (job == null || !"RUNNING".equals(job.state)) {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    // Running jobs are never evicted
+    private void evictFinishedJobs() {
+        LocalDateTime expired = LocalDateTime.now().minusMinutes(finishedJobTtlMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expired));
+
+        List<ReplayJob> finished = new ArrayList<>();
+        for (ReplayJob job : jobs.values()) {
+            if (job.finishedAt != null) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() > maxFinishedJobs) {
+            finished.sort(Comparator.comparing((ReplayJob job) -> job.finishedAt));
+            for (ReplayJob job : finished.subList(0, finished.size() - maxFinishedJobs)) {
+                jobs.remove(job.jobId);
+            }
+        }
+    }
+
+    private void runReplay(ReplayJob job) {
+        WebhookReplayRequest request = job.request;
+        int batchSize = Math.min(request.getBatchSize() != null ? request.getBatchSize() : defaultBatchSize, MAX_BATCH_SIZE);
+        int rate = request.getMaxEventsPerSecond() != null ? request.getMaxEventsPerSecond() : defaultMaxEventsPerSecond;
+        long intervalNanos = rate > 0 ? 1_000_000_000L / rate : 0L;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        try {
+            job.totalEvents = countEvents(request);
+
+            long nextSlot = System.nanoTime();
+
+            for (String table : SOURCE_TABLES) {
+                boolean archived = !"webhook_events".equals(table);
+                String lastTenantId = null;
+                LocalDateTime lastCreatedAt = null;
+                Long lastId = null;
+
+                while (!job.cancelled) {
+                    List<WebhookEvent> chunk = fetchChunk(table, request, lastTenantId, lastCreatedAt, lastId, batchSize);
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+
+                    for (WebhookEvent event : chunk) {
+                        if (job.cancelled) {
+                            break;
+                        }
+                        event.setArchived(archived);
+
+                        // Pace dispatch to the configured rate
+                        if (intervalNanos > 0) {
+                            long now = System.nanoTime();
+                            if (nextSlot > now) {
+                                LockSupport.parkNanos(nextSlot - now);
+                            }
+                            nextSlot = Math.max(nextSlot, now) + intervalNanos;
+                        }
+
+                        if (request.isDryRun()) {
+                            if (webhookEventService.isValidPayload(event)) {
+                                job.succeeded.incrementAndGet();
+                            } else {
+                                job.failed.incrementAndGet();
+                            }
+                        } else {
+                            inFlight.acquire();
+                            webhookExecutor.execute(() -> {
+                                try {
+                                    if (webhookEventService.dispatch(event)) {
+                                        job.succeeded.incrementAndGet();
+                                    } else {
+                                        job.failed.incrementAndGet();
+                                    }
+                                } finally {
+                                    inFlight.release();
+                                }
+                            });
+                        }
+                        job.scanned.incrementAndGet();
+                        job.lastEventId = event.getId();
+                    }
+
+                    WebhookEvent last = chunk.get(chunk.size() - 1);
+                    lastTenantId = last.getTenantId();
+                    lastCreatedAt = last.getCreatedAt();
+                    lastId = last.getId();
+
+                    if (chunk.size() < batchSize) {
+                        break;
+                    }
+                }
+            }
+
+            // Wait for the handlers still running on the pool
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+
+            job.state = job.cancelled ? "CANCELLED" : "COMPLETED";
+            logger.info("Webhook replay {} {}: {} scanned, {} succeeded, {} failed",
+                job.jobId, job.state.toLowerCase(), job.scanned.get(), job.succeeded.get(), job.failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.state = "CANCELLED";
+        } catch (Exception e) {
+            logger.error("Webhook replay {} failed: {}", job.jobId, e.getMessage(), e);
+            job.errorMessage = e.getMessage();
+            job.state = "FAILED";
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private long countEvents(WebhookReplayRequest request) {
+        long total = 0;
+        for (String table : SOURCE_TABLES) {
+            List<Object> params = new ArrayList<>();
+            String sql = "SELECT COUNT(*) FROM " + table + " WHERE 1 = 1" + buildFilters(request, params);
+            Long count = jdbcTemplate.queryForObject(sql, Long.class, params.toArray());
+            total += count != null ? count : 0L;
+        }
+        return total;
+    }
+
+    private List<WebhookEvent> fetchChunk(String table, WebhookReplayRequest request, String lastTenantId,
+                                          LocalDateTime lastCreatedAt, Long lastId, int batchSize) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + WebhookEventService.EVENT_COLUMNS + " FROM " + table + " WHERE 1 = 1");
+        sql.append(buildFilters(request, params));
+
+        if (lastId != null) {
+            Timestamp createdAt = Timestamp.valueOf(lastCreatedAt);
+            if (request.getTenantId() != null) {
+                // The tenant is fixed by the filters, so the range starts on created_at
+                sql.append(" AND created_at >= ? AND (created_at > ? OR (created_at = ? AND id > ?))");
+                params.addAll(List.of(createdAt, createdAt, createdAt, lastId));
+            } else {
+                sql.append(" AND tenant_id >= ?"
+                    + " AND (tenant_id > ? OR (tenant_id = ? AND (created_at > ? OR (created_at = ? AND id > ?))))");
+                params.addAll(List.of(lastTenantId, lastTenantId, lastTenantId, createdAt, createdAt, lastId));
+            }
+        }
+
+        sql.append(" ORDER BY tenant_id, created_at, id LIMIT ?");
+        params.add(batchSize);
+
+        return jdbcTemplate.query(sql.toString(), WebhookEventService.EVENT_ROW_MAPPER, params.toArray());
+    }
+
+    private String buildFilters(WebhookReplayRequest request, List<Object> params) {
+        StringBuilder filters = new StringBuilder();
+        if (request.getTenantId() != null) {
+            filters.append(" AND tenant_id = ?");
+            params.add(request.getTenantId());
+        }
+        if (request.getTopics() != null && !request.getTopics().isEmpty()) {
+            filters.append(" AND event_type IN (")
+                .append(String.join(", ", Collections.nCopies(request.getTopics().size(), "?")))
+                .append(")");
+            params.addAll(request.getTopics());
+        }
+        if (request.getFrom() != null) {
+            filters.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(request.getFrom()));
+        }
+        if (request.getTo() != null) {
+            filters.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(request.getTo()));
+        }
+        return filters.toString();
+    }
+
+    /**
+     * Mutable progress of one replay, updated by the scan thread and the handler pool
+     */
+    private static class ReplayJob {
+        private final String jobId;
+        private final WebhookReplayRequest request;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile long totalEvents;
+        private volatile Long lastEventId;
+        private volatile String state = "RUNNING";
+        private volatile String errorMessage;
+        private volatile LocalDateTime finishedAt;
+        private volatile boolean cancelled;
+
+        ReplayJob(String jobId, WebhookReplayRequest request) {
+            this.jobId = jobId;
+            this.request = request;
+        }
+
+        WebhookReplayStatus toStatus() {
+            WebhookReplayStatus status = new WebhookReplayStatus();
+            status.setJobId(jobId);
+            status.setState(state);
+            status.setDryRun(request.isDryRun());
+            status.setTenantId(request.getTenantId());
+            status.setTopics(request.getTopics());
+            status.setFrom(request.getFrom());
+            status.setTo(request.getTo());
+            status.setTotalEvents(totalEvents);
+            status.setScanned(scanned.get());
+            status.setSucceeded(succeeded.get());
+            status.setFailed(failed.get());
+            status.setLastEventId(lastEventId);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setErrorMessage(errorMessage);
+
+            long completed = succeeded.get() + failed.get();
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            double elapsedSeconds = Math.max(Duration.between(startedAt, end).toMillis() / 1000.0, 0.001);
+            double throughput = completed / elapsedSeconds;
+            status.setEventsPerSecond(throughput);
+
+            if (finishedAt != null) {
+                status.setEtaSeconds(0L);
+            } else if (throughput > 0) {
+                status.setEtaSeconds((long) Math.ceil(Math.max(totalEvents - completed, 0) / throughput));
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+-- Tables the application owns outside of JPA, created on startup (spring.sql.init)
+-- Keep in step with database/schema.sql
+
+-- Daily rollups per tenant, maintained in the order write transaction
+-- source is SHOPIFY (orders table) or ASSIGNMENT (assignment_orders table)
+CREATE TABLE IF NOT EXISTS daily_tenant_metrics (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    tax DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    discounts DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    unique_customers INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, source, metric_date)
+);
+
+CREATE TABLE IF NOT EXISTS daily_tenant_status_metrics (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (tenant_id, source, metric_date, status)
+);
+
+-- One row per customer who ordered that day, so unique_customers stays exact under deletes
+CREATE TABLE IF NOT EXISTS daily_tenant_customers (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    customer_key VARCHAR(255) NOT NULL,
+    orders_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, source, metric_date, customer_key)
+);
+
+-- Tenants whose rollups were rebuilt from the order tables at least once; tenants with
+-- orders but no row here are backfilled at startup
+CREATE TABLE IF NOT EXISTS daily_rollup_builds (
+    tenant_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    built_at TIMESTAMP NOT NULL
+);
+
+-- HyperLogLog of each day's customers (4096 one-byte registers), merged across days
+-- to estimate distinct customers over a range
+CREATE TABLE IF NOT EXISTS daily_tenant_customer_sketches (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    sketch BLOB NOT NULL,
+    PRIMARY KEY (tenant_id, source, metric_date)
+);
+
+-- Fulfilment lead-time histograms: orders per tenant, stage (SHIP = order to ship,
+-- DELIVER = ship to delivery), completion day and log-linear duration bucket
+CREATE TABLE IF NOT EXISTS daily_fulfilment_latency (
+    tenant_id VARCHAR(255) NOT NULL,
+    stage VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    bucket SMALLINT NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, stage, metric_date, bucket)
+);
+
+-- Every order change, kept for a retention window so an analytics snapshot can be
+-- brought up to date by replaying the changes made after it was taken
+CREATE TABLE IF NOT EXISTS order_change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    order_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    ordered_at DATETIME NULL,
+    amount DECIMAL(15, 2) NULL,
+    status VARCHAR(50) NULL,
+    customer_key VARCHAR(255) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_order_change_log_tenant (tenant_id, source, id),
+    INDEX idx_order_change_log_created (created_at)
+);
+
+-- Webhook events archive - compacted, write-once copy of events past the retention window
+CREATE TABLE IF NOT EXISTS webhook_events_archive (
+    id BIGINT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    shopify_id VARCHAR(255),
+    payload JSON,
+    payload_data MEDIUMBLOB,
+    payload_codec VARCHAR(20),
+    dictionary_id BIGINT,
+    payload_size INT,
+    processed BOOLEAN DEFAULT FALSE,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_tenant_created_id (tenant_id, created_at, id)
+) ROW_FORMAT=COMPRESSED;
+
+-- Sales counter deltas of assignment products, appended by each order in its own
+-- transaction and folded into assignment_products in batches by the stats flush
+CREATE TABLE IF NOT EXISTS product_stat_deltas (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    quantity INT NOT NULL,
+    revenue DECIMAL(15, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- RFM scores per assignment customer from the latest segmentation run: recency in days
+-- since the last order (NULL for none), orders, spend, the 1-5 scores and the segment
+CREATE TABLE IF NOT EXISTS customer_rfm_scores (
+    tenant_id VARCHAR(255) NOT NULL,
+    customer_id BIGINT NOT NULL,
+    recency_days INT NULL,
+    frequency INT NOT NULL,
+    monetary DECIMAL(15, 2) NOT NULL,
+    recency_score TINYINT NOT NULL,
+    frequency_score TINYINT NOT NULL,
+    monetary_score TINYINT NOT NULL,
+    segment VARCHAR(30) NOT NULL,
+    PRIMARY KEY (tenant_id, customer_id),
+    INDEX idx_customer_rfm_scores_segment (tenant_id, segment)
+);
+
+-- Latest segmentation run per tenant: quintile upper bounds as comma-separated lists
+-- and the customers in each segment
+CREATE TABLE IF NOT EXISTS customer_rfm_runs (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    customers_count BIGINT NOT NULL,
+    recency_bounds VARCHAR(255) NOT NULL,
+    frequency_bounds VARCHAR(255) NOT NULL,
+    monetary_bounds VARCHAR(255) NOT NULL,
+    duration_ms BIGINT NOT NULL,
+    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS customer_rfm_segments (
+    tenant_id VARCHAR(255) NOT NULL,
+    segment VARCHAR(30) NOT NULL,
+    customers_count BIGINT NOT NULL,
+    PRIMARY KEY (tenant_id, segment)
+);
+
+-- Per-tenant summaries of Shopify customers and products, kept current from change
+-- events inside the writing transaction and checked nightly against the base tables.
+-- They replace the customer_analytics, product_analytics and top_customers views, which
+-- re-aggregated every tenant's rows on each read; order_analytics is covered by the
+-- SHOPIFY rows of daily_tenant_metrics and daily_tenant_status_metrics.
+DROP VIEW IF EXISTS customer_analytics;
+DROP VIEW IF EXISTS order_analytics;
+DROP VIEW IF EXISTS product_analytics;
+DROP VIEW IF EXISTS top_customers;
+
+CREATE TABLE IF NOT EXISTS tenant_customer_summary (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    total_customers BIGINT NOT NULL DEFAULT 0,
+    verified_customers BIGINT NOT NULL DEFAULT 0,
+    marketing_subscribers BIGINT NOT NULL DEFAULT 0,
+    total_customer_spend DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    max_customer_spend DECIMAL(10, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS tenant_product_summary (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    total_products BIGINT NOT NULL DEFAULT 0,
+    active_products BIGINT NOT NULL DEFAULT 0,
+    draft_products BIGINT NOT NULL DEFAULT 0,
+    priced_products BIGINT NOT NULL DEFAULT 0,
+    total_price DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    total_inventory BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Each tenant's biggest spenders in rank order, refilled from the customers index when
+-- a change can move the list
+CREATE TABLE IF NOT EXISTS tenant_top_customers (
+    tenant_id VARCHAR(255) NOT NULL,
+    spending_rank INT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    shopify_id VARCHAR(255) NOT NULL,
+    customer_name VARCHAR(511),
+    email VARCHAR(255),
+    total_spent DECIMAL(10, 2) NOT NULL,
+    orders_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, spending_rank)
+);
@@ -0,0 +1,87 @@
+package com.xeno.assignment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPageTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 5, 12, 0, 30);
+
+    @Test
+    void lastPageHasNoCursor() {
+        KeysetPage<Row> page = KeysetPage.of(rows(3), 3, Row::getCreatedAt, Row::getId);
+
+        assertThat(page.getItems()).hasSize(3);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void extraRowIsDroppedAndTheCursorPointsAtTheLastKeptRow() {
+        List<Row> rows = rows(4);
+
+        KeysetPage<Row> page = KeysetPage.of(rows, 3, Row::getCreatedAt, Row::getId);
+
+        assertThat(page.getItems()).containsExactlyElementsOf(rows.subList(0, 3));
+        KeysetPage.Cursor cursor = KeysetPage.Cursor.decode(page.getNextCursor());
+        assertThat(cursor.getSortKey()).isEqualTo(rows.get(2).getCreatedAt());
+        assertThat(cursor.getId()).isEqualTo(rows.get(2).getId());
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        KeysetPage<Row> page = KeysetPage.of(rows(4), 1, Row::getCreatedAt, Row::getId);
+
+        assertThat(page.getNextCursor()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorStartsAfterEveryRow() {
+        KeysetPage.Cursor first = KeysetPage.Cursor.decode(null);
+
+        assertThat(first.getSortKey()).isAfter(LocalDateTime.of(9999, 1, 1, 0, 0));
+        assertThat(first.getId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(KeysetPage.Cursor.decode("")).isSameAs(first);
+    }
+
+    @Test
+    void rejectsTokensThatAreNotCursors() {
+        assertThatThrownBy(() -> KeysetPage.Cursor.decode("not a cursor!"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Invalid cursor: ");
+        assertThatThrownBy(() -> KeysetPage.Cursor.decode("MjAyNC0wMy0wNQ"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Newest first, ids descending
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Row(100 - i, NOON.minusMinutes(i)));
+        }
+        return rows;
+    }
+
+    private static final class Row {
+        private final long id;
+        private final LocalDateTime createdAt;
+
+        Row(long id, LocalDateTime createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SortedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CohortGridTest {
+
+    private static final int JANUARY = 2024 * 12;
+    private static final int FEBRUARY = JANUARY + 1;
+    private static final int MARCH = JANUARY + 2;
+
+    @Test
+    void countsCustomersPerCohortAndMonthOffset() {
+        CohortGrid grid = new CohortGrid();
+        grid.apply("alice", JANUARY, 1);
+        grid.apply("alice", MARCH, 1);
+        grid.apply("bob", JANUARY, 1);
+        grid.apply("carol", FEBRUARY, 2);
+
+        SortedMap<Integer, long[]> cells = grid.cells();
+
+        assertThat(cells.keySet()).containsExactly(JANUARY, FEBRUARY);
+        assertThat(cells.get(JANUARY)).containsExactly(2, 0, 1);
+        assertThat(cells.get(FEBRUARY)).containsExactly(1);
+        assertThat(grid.customerCount()).isEqualTo(3);
+    }
+
+    @Test
+    void repeatOrdersInAMonthDoNotCountTwice() {
+        CohortGrid grid = new CohortGrid();
+        grid.apply("alice", JANUARY, 1);
+        grid.apply("alice", JANUARY, 1);
+        grid.apply("alice", JANUARY, -1);
+
+        assertThat(grid.cells().get(JANUARY)).containsExactly(1);
+    }
+
+    @Test
+    void removingTheFirstMonthMovesTheCustomerToALaterCohort() {
+        CohortGrid grid = new CohortGrid();
+        grid.apply("alice", JANUARY, 1);
+        grid.apply("alice", MARCH, 1);
+
+        grid.apply("alice", JANUARY, -1);
+
+        SortedMap<Integer, long[]> cells = grid.cells();
+        assertThat(cells.keySet()).containsExactly(MARCH);
+        assertThat(cells.get(MARCH)).containsExactly(1);
+
+        grid.apply("alice", MARCH, -1);
+        assertThat(grid.cells()).isEmpty();
+        assertThat(grid.customerCount()).isZero();
+    }
+
+    @Test
+    void cellsAreCopies() {
+        CohortGrid grid = new CohortGrid();
+        grid.apply("alice", JANUARY, 1);
+
+        grid.cells().get(JANUARY)[0] = 42;
+
+        assertThat(grid.cells().get(JANUARY)).containsExactly(1);
+    }
+}
@@ -0,0 +1,219 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarOrderStoreTest {
+
+    private static final long[] DAYS = { 0, 86_400, 172_800, 259_200 };
+
+    @Test
+    void upsertInsertsInIdOrderAndReplacesInPlace() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(3, 1, 60, 300, "paid", "alice");
+        store.upsert(1, 1, 60, 100, "paid", "bob");
+        store.upsert(2, 1, 86_460, 200, "pending", null);
+        store.upsert(1, 2, 86_460, 150, "pending", "bob");
+
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(store.countByStatus()).containsEntry("paid", 1L).containsEntry("pending", 2L);
+        assertThat(sums(store, "pending")).isEqualTo(new long[][] { { 0, 2, 0 }, { 0, 350, 0 } });
+        assertThat(sums(store, "paid")).isEqualTo(new long[][] { { 1, 0, 0 }, { 300, 0, 0 } });
+    }
+
+    @Test
+    void removeTombstonesAndUpsertRevives() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 1, 60, 100, "paid", "alice");
+
+        assertThat(store.remove(1, 2)).isTrue();
+        assertThat(store.remove(1, 3)).isFalse();
+        assertThat(store.contains(1)).isFalse();
+        assertThat(store.size()).isZero();
+        assertThat(store.countByStatus()).isEmpty();
+        assertThat(sums(store, "paid")[0]).containsOnly(0);
+
+        store.upsert(1, 4, 60, 100, "paid", "alice");
+        assertThat(store.contains(1)).isTrue();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void changesOlderThanTheStoredRowAreIgnored() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 5, 60, 100, "paid", "alice");
+
+        store.upsert(1, 4, 60, 999, "refunded", "alice");
+        assertThat(store.remove(1, 3)).isFalse();
+
+        assertThat(store.contains(1)).isTrue();
+        assertThat(store.countByStatus()).containsOnlyKeys("paid");
+        assertThat(sums(store, "paid")[1][0]).isEqualTo(100);
+    }
+
+    @Test
+    void loadKeepsChangesMadeWhileItRuns() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        // Written and deleted live before the load reads those rows
+        store.upsert(1, 1, 60, 900, "refunded", "alice");
+        assertThat(store.remove(2, 1)).isFalse();
+
+        store.loadRow(1, 60, 100, "paid", "alice");
+        store.loadRow(2, 60, 200, "paid", "bob");
+        store.loadRow(3, 60, 300, "paid", "carol");
+        store.markLoaded();
+
+        assertThat(store.isLoaded()).isTrue();
+        assertThat(store.contains(2)).isFalse();
+        assertThat(store.countByStatus()).containsOnlyKeys("refunded", "paid")
+            .containsEntry("refunded", 1L).containsEntry("paid", 1L);
+    }
+
+    @Test
+    void sumByBucketSkipsOtherStatusesAndOrdersOutsideTheRange() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 1, -1, 100, "paid", null);
+        store.upsert(2, 1, 0, 200, "paid", null);
+        store.upsert(3, 1, 86_400, 300, "paid", null);
+        store.upsert(4, 1, 86_399, 400, "pending", null);
+        store.upsert(5, 1, 259_200, 500, "paid", null);
+
+        assertThat(sums(store, "paid")).isEqualTo(new long[][] { { 1, 1, 0 }, { 200, 300, 0 } });
+        assertThat(sums(store, "cancelled")[0]).containsOnly(0);
+    }
+
+    @Test
+    void nullStatusSumsEveryLiveOrder() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 1, 60, 100, "paid", null);
+        store.upsert(2, 1, 120, 200, "pending", null);
+        store.upsert(3, 1, 86_460, 300, "refunded", null);
+        store.remove(2, 2);
+
+        assertThat(sums(store, null)).isEqualTo(new long[][] { { 1, 1, 0 }, { 100, 300, 0 } });
+    }
+
+    @Test
+    void keepsRowsSortedAcrossGrowth() {
+        ColumnarOrderStore store = new ColumnarOrderStore(4);
+        // Descending ids insert every row at the front
+        for (long id = 5_000; id > 0; id--) {
+            store.upsert(id, 1, (id % 3) * 86_400, id, "paid", "customer-" + (id % 7));
+        }
+
+        assertThat(store.size()).isEqualTo(5_000);
+        for (long id = 1; id <= 5_000; id++) {
+            assertThat(store.contains(id)).isTrue();
+        }
+        assertThat(store.countByStatus()).containsEntry("paid", 5_000L);
+        assertThat(store.memoryBytes()).isGreaterThanOrEqualTo(5_000L * ColumnarOrderStore.BYTES_PER_ORDER);
+        store.release();
+    }
+
+    @Test
+    void releasedStoreIgnoresWrites() {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 1, 60, 100, "paid", "alice");
+
+        store.release();
+        store.release();
+        store.upsert(2, 1, 60, 200, "paid", "bob");
+
+        assertThat(store.contains(1)).isFalse();
+        assertThat(store.contains(2)).isFalse();
+        assertThat(store.remove(1, 2)).isFalse();
+        assertThat(store.size()).isZero();
+        assertThat(store.memoryBytes()).isZero();
+        assertThatThrownBy(store::countByStatus).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void roundTripsLiveRowsAndDropsTombstones() throws IOException {
+        ColumnarOrderStore store = new ColumnarOrderStore(4);
+        for (long id = 1; id <= 100; id++) {
+            store.upsert(id, 1, (id % 3) * 86_400 + 60, id * 100, id % 4 == 0 ? "refunded" : "paid",
+                id % 5 == 0 ? null : "customer-" + (id % 7));
+        }
+        store.remove(10, 2);
+        store.remove(20, 2);
+        store.markLoaded();
+
+        ColumnarOrderStore restored = ColumnarOrderStore.readFrom(ByteBuffer.wrap(serialize(store)));
+        try {
+            assertThat(restored.size()).isEqualTo(98);
+            assertThat(restored.contains(10)).isFalse();
+            assertThat(restored.contains(11)).isTrue();
+            assertThat(restored.countByStatus()).isEqualTo(store.countByStatus());
+            for (String status : new String[] { null, "paid", "refunded" }) {
+                assertThat(sums(restored, status)).isEqualTo(sums(store, status));
+            }
+            assertThat(restored.isLoaded()).isFalse();
+        } finally {
+            store.release();
+            restored.release();
+        }
+    }
+
+    @Test
+    void restoredRowsKeepTheirVersionsAndDictionaries() throws IOException {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+        store.upsert(1, 5, 60, 1_000, "paid", "alice");
+        store.upsert(2, 5, 60, 2_000, "pending", "bob");
+
+        ColumnarOrderStore restored = ColumnarOrderStore.readFrom(ByteBuffer.wrap(serialize(store)));
+        try {
+            // Changes older than the snapshot's rows are ignored, newer ones applied
+            restored.upsert(1, 4, 60, 9_999, "paid", "alice");
+            restored.upsert(2, 6, 60, 2_000, "paid", "bob");
+            restored.upsert(3, 1, 60, 500, "cancelled", "carol");
+
+            Map<String, Long> counts = restored.countByStatus();
+            assertThat(counts).containsEntry("paid", 2L).containsEntry("cancelled", 1L);
+            assertThat(counts.getOrDefault("pending", 0L)).isZero();
+            assertThat(sums(restored, "paid")[1][0]).isEqualTo(3_000);
+            assertThat(restored.remove(1, 4)).isFalse();
+            assertThat(restored.remove(1, 5)).isTrue();
+        } finally {
+            store.release();
+            restored.release();
+        }
+    }
+
+    @Test
+    void emptyStoreRoundTrips() throws IOException {
+        ColumnarOrderStore store = new ColumnarOrderStore();
+
+        ColumnarOrderStore restored = ColumnarOrderStore.readFrom(ByteBuffer.wrap(serialize(store)));
+        try {
+            assertThat(restored.size()).isZero();
+            assertThat(restored.countByStatus()).isEmpty();
+        } finally {
+            store.release();
+            restored.release();
+        }
+    }
+
+    private static byte[] serialize(ColumnarOrderStore store) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            store.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Order counts and cents per day, as { counts, cents }
+    private static long[][] sums(ColumnarOrderStore store, String status) {
+        long[] counts = new long[DAYS.length - 1];
+        long[] cents = new long[DAYS.length - 1];
+        store.sumByBucket(status, DAYS, counts, cents);
+        return new long[][] { counts, cents };
+    }
+}
@@ -0,0 +1,70 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesLargeCardinalityWithinFivePercent() {
+        HyperLogLog sketch = sketchOf(0, 100_000);
+
+        assertThat((double) sketch.estimate()).isCloseTo(100_000, within(5_000.0));
+    }
+
+    @Test
+    void smallCountsAreCloseToExact() {
+        HyperLogLog sketch = sketchOf(0, 100);
+
+        assertThat(sketch.estimate()).isBetween(98L, 102L);
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @Test
+    void repeatedKeysDoNotChangeTheSketch() {
+        HyperLogLog once = sketchOf(0, 1_000);
+        HyperLogLog repeated = sketchOf(0, 1_000);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(repeated.add("customer-" + i)).isFalse();
+        }
+
+        assertThat(repeated).isEqualTo(once);
+    }
+
+    @Test
+    void mergeEqualsSketchOfTheUnion() {
+        HyperLogLog first = sketchOf(0, 50_000);
+        HyperLogLog second = sketchOf(25_000, 75_000);
+
+        first.merge(second);
+
+        assertThat(first).isEqualTo(sketchOf(0, 75_000));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog sketch = sketchOf(0, 10_000);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored).isEqualTo(sketch);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void rejectsBytesOfTheWrongLength() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[16]))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add("customer-" + i);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,61 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallDurationsGetABucketEach() {
+        for (int seconds = 0; seconds < LatencyHistogram.SUB_BUCKETS; seconds++) {
+            assertThat(LatencyHistogram.bucketOf(seconds)).isEqualTo(seconds);
+            assertThat(LatencyHistogram.upperBound(seconds)).isEqualTo(seconds);
+        }
+    }
+
+    @Test
+    void bucketsAreOrderedAndNarrowerThanAThirtySecondOfTheirValues() {
+        int previous = 0;
+        for (long seconds = 1; seconds < 10_000_000L; seconds += 1 + seconds / 50) {
+            int bucket = LatencyHistogram.bucketOf(seconds);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertThat(bucket).isGreaterThanOrEqualTo(previous);
+            assertThat(upper).isGreaterThanOrEqualTo(seconds);
+            assertThat(upper - seconds).isLessThanOrEqualTo(seconds / LatencyHistogram.SUB_BUCKETS);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    void clampsOutOfRangeDurations() {
+        assertThat(LatencyHistogram.bucketOf(-5)).isZero();
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    void percentilesReportTheUpperBoundOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentile(50)).isZero();
+
+        for (long seconds = 1; seconds <= 100; seconds++) {
+            histogram.record(seconds);
+        }
+
+        assertThat(histogram.getTotal()).isEqualTo(100);
+        assertThat(histogram.percentile(50)).isEqualTo(50);
+        assertThat(histogram.percentile(99)).isEqualTo(99);
+        assertThat(histogram.percentile(100)).isEqualTo(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(100)));
+    }
+
+    @Test
+    void mergesByAddingBuckets() {
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(LatencyHistogram.bucketOf(10), 3);
+        merged.add(LatencyHistogram.bucketOf(3_600), 1);
+
+        assertThat(merged.getTotal()).isEqualTo(4);
+        assertThat(merged.percentile(75)).isEqualTo(10);
+        assertThat(merged.percentile(100)).isGreaterThanOrEqualTo(3_600);
+    }
+}
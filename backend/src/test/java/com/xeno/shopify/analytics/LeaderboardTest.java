@@ -0,0 +1,85 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardTest {
+
+    @Test
+    void ranksByScoreThenById() {
+        Leaderboard board = new Leaderboard();
+        board.put(3, 500);
+        board.put(1, 900);
+        board.put(2, 500);
+
+        assertThat(board.top(10)).extracting(entry -> entry[0]).containsExactly(1L, 2L, 3L);
+        assertThat(board.rank(1)).isEqualTo(1);
+        assertThat(board.rank(2)).isEqualTo(2);
+        assertThat(board.rank(3)).isEqualTo(3);
+        assertThat(board.rank(99)).isZero();
+    }
+
+    @Test
+    void putMovesAMemberAndRemoveDropsIt() {
+        Leaderboard board = new Leaderboard();
+        board.put(1, 100);
+        board.put(2, 200);
+
+        board.put(1, 300);
+        assertThat(board.rank(1)).isEqualTo(1);
+        assertThat(board.score(1)).isEqualTo(300L);
+        assertThat(board.size()).isEqualTo(2);
+
+        board.remove(1);
+        assertThat(board.rank(1)).isZero();
+        assertThat(board.rank(2)).isEqualTo(1);
+        assertThat(board.size()).isEqualTo(1);
+    }
+
+    @Test
+    void putIfAbsentKeepsTheExistingScore() {
+        Leaderboard board = new Leaderboard();
+        board.put(1, 100);
+
+        assertThat(board.putIfAbsent(1, 5)).isFalse();
+        assertThat(board.putIfAbsent(2, 5)).isTrue();
+        assertThat(board.score(1)).isEqualTo(100L);
+    }
+
+    @Test
+    void matchesASortedListUnderRandomUpdates() {
+        Leaderboard board = new Leaderboard();
+        Map<Long, Long> scores = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long id = random.nextInt(500);
+            if (random.nextInt(5) == 0) {
+                board.remove(id);
+                scores.remove(id);
+            } else {
+                long score = random.nextInt(1_000);
+                board.put(id, score);
+                scores.put(id, score);
+            }
+        }
+
+        List<Map.Entry<Long, Long>> expected = new ArrayList<>(scores.entrySet());
+        expected.sort(Comparator.comparing((Map.Entry<Long, Long> e) -> e.getValue()).reversed()
+            .thenComparing(Map.Entry::getKey));
+
+        List<long[]> top = board.top(scores.size() + 10);
+        assertThat(top).hasSize(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(top.get(i)).containsExactly(expected.get(i).getKey(), expected.get(i).getValue());
+            assertThat(board.rank(expected.get(i).getKey())).isEqualTo(i + 1);
+        }
+    }
+}
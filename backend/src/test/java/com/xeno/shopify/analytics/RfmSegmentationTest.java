@@ -0,0 +1,94 @@
+package com.xeno.shopify.analytics;
+
+import com.xeno.shopify.analytics.RfmSegmentation.Result;
+import com.xeno.shopify.analytics.RfmSegmentation.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RfmSegmentationTest {
+
+    @Test
+    void scoresQuintilesWithFewestDaysBest() {
+        // Customer i ordered i days ago, i + 1 times, for (i + 1) * 1000 cents
+        int size = 10;
+        long[] recency = new long[size];
+        long[] frequency = new long[size];
+        long[] monetary = new long[size];
+        for (int i = 0; i < size; i++) {
+            recency[i] = i;
+            frequency[i] = i + 1;
+            monetary[i] = (i + 1) * 1000L;
+        }
+
+        Result result = RfmSegmentation.score(recency, frequency, monetary, size, ForkJoinPool.commonPool());
+
+        assertThat(result.getRecencyBounds()).containsExactly(1, 3, 5, 7);
+        assertThat(result.getFrequencyBounds()).containsExactly(2, 4, 6, 8);
+        assertThat(result.getRecencyScore(0)).isEqualTo(5);
+        assertThat(result.getRecencyScore(9)).isEqualTo(1);
+        assertThat(result.getFrequencyScore(9)).isEqualTo(5);
+        // Most recent, but the fewest orders and lowest spend
+        assertThat(result.getSegment(0)).isEqualTo(Segment.NEW_CUSTOMERS);
+        // Longest ago, but the most orders and highest spend
+        assertThat(result.getSegment(9)).isEqualTo(Segment.CANNOT_LOSE_THEM);
+    }
+
+    @Test
+    void valuesOnABoundaryScoreLow() {
+        int size = 10;
+        long[] recency = new long[size];
+        long[] frequency = new long[size];
+        long[] monetary = new long[size];
+        Arrays.fill(recency, 30);
+        Arrays.fill(frequency, 1);
+        Arrays.fill(monetary, 2500);
+
+        Result result = RfmSegmentation.score(recency, frequency, monetary, size, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < size; i++) {
+            assertThat(result.getFrequencyScore(i)).isEqualTo(1);
+            assertThat(result.getMonetaryScore(i)).isEqualTo(1);
+            assertThat(result.getRecencyScore(i)).isEqualTo(5);
+        }
+        assertThat(result.getSegmentCount(Segment.NEW_CUSTOMERS)).isEqualTo(size);
+    }
+
+    @Test
+    void parallelScoringCountsEveryCustomerOnce() {
+        int size = 100_000;
+        long[] recency = new long[size];
+        long[] frequency = new long[size];
+        long[] monetary = new long[size];
+        Random random = new Random(3);
+        for (int i = 0; i < size; i++) {
+            recency[i] = random.nextInt(10) == 0 ? Long.MAX_VALUE : random.nextInt(365);
+            frequency[i] = 1 + random.nextInt(20);
+            monetary[i] = random.nextInt(1_000_000);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Result result;
+        try {
+            result = RfmSegmentation.score(recency, frequency, monetary, size, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        long[] expected = new long[Segment.values().length];
+        for (int i = 0; i < size; i++) {
+            expected[result.getSegment(i).ordinal()]++;
+            assertThat(result.getRecencyScore(i)).isBetween(1, 5);
+        }
+        long total = 0;
+        for (Segment segment : Segment.values()) {
+            assertThat(result.getSegmentCount(segment)).as("count of %s", segment).isEqualTo(expected[segment.ordinal()]);
+            total += result.getSegmentCount(segment);
+        }
+        assertThat(total).isEqualTo(size);
+    }
+}
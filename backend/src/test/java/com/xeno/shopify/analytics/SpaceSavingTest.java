@@ -0,0 +1,79 @@
+package com.xeno.shopify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileEveryKeyFits() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.offer("a", 5);
+        summary.offer("b", 3);
+        summary.offer("a", 2);
+        summary.offer("c", 1);
+
+        List<Map.Entry<String, long[]>> top = summary.top(10);
+
+        assertThat(top).extracting(Map.Entry::getKey).containsExactly("a", "b", "c");
+        assertThat(top.get(0).getValue()).containsExactly(7, 0);
+        assertThat(summary.minCount()).isZero();
+        assertThat(summary.size()).isEqualTo(3);
+    }
+
+    @Test
+    void ignoresNonPositiveWeights() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.offer("a", 0);
+        summary.offer("b", -4);
+
+        assertThat(summary.size()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void boundsEveryMonitoredKeyAndKeepsTheHeavyHitters() {
+        int capacity = 20;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<String, Long> truth = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 50_000; i++) {
+            // A few heavy products among a long tail of light ones
+            String key = random.nextInt(4) == 0 ? "heavy-" + random.nextInt(3) : "light-" + random.nextInt(2_000);
+            long weight = 1 + random.nextInt(5);
+            summary.offer(key, weight);
+            truth.merge(key, weight, Long::sum);
+            total += weight;
+        }
+
+        Map<String, long[]> counters = new HashMap<>();
+        summary.addTo(counters);
+        counters.forEach((key, counter) -> {
+            long actual = truth.get(key);
+            assertThat(counter[0]).as("count of %s", key).isGreaterThanOrEqualTo(actual);
+            assertThat(counter[0] - counter[1]).as("guaranteed count of %s", key).isLessThanOrEqualTo(actual);
+        });
+
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            if (entry.getValue() > total / capacity) {
+                assertThat(summary.contains(entry.getKey())).as("monitors %s", entry.getKey()).isTrue();
+            } else if (!summary.contains(entry.getKey())) {
+                assertThat(entry.getValue()).isLessThanOrEqualTo(summary.minCount());
+            }
+        }
+        assertThat(summary.top(3)).extracting(Map.Entry::getKey)
+            .containsExactlyInAnyOrder("heavy-0", "heavy-1", "heavy-2");
+    }
+}
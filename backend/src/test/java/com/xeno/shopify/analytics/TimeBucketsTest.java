@@ -0,0 +1,88 @@
+package com.xeno.shopify.analytics;
+
+import com.xeno.shopify.analytics.TimeBuckets.Granularity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeBucketsTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    @Test
+    void dayBucketsCoverTheRangeInclusive() {
+        TimeBuckets buckets = TimeBuckets.between(LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 10), Granularity.DAY, UTC);
+
+        assertThat(buckets.size()).isEqualTo(7);
+        assertThat(buckets.label(0)).isEqualTo("2024-03-04");
+        assertThat(buckets.label(6)).isEqualTo("2024-03-10");
+        long[] days = buckets.epochDayBoundaries();
+        assertThat(days).hasSize(8);
+        for (int b = 0; b < days.length; b++) {
+            assertThat(days[b]).isEqualTo(LocalDate.of(2024, 3, 4).plusDays(b).toEpochDay());
+        }
+        assertThat(buckets.alignsWithUtcDays()).isTrue();
+    }
+
+    @Test
+    void firstWeekIsClippedToTheRangeButKeepsItsIsoLabel() {
+        // 2024-03-06 is a Wednesday in ISO week 10
+        TimeBuckets buckets = TimeBuckets.between(LocalDate.of(2024, 3, 6), LocalDate.of(2024, 3, 17), Granularity.WEEK, UTC);
+
+        assertThat(buckets.size()).isEqualTo(2);
+        assertThat(buckets.label(0)).isEqualTo("2024-W10");
+        assertThat(buckets.label(1)).isEqualTo("2024-W11");
+        assertThat(buckets.start(0).toLocalDate()).isEqualTo(LocalDate.of(2024, 3, 4));
+        assertThat(buckets.epochSecondBoundaries()[0])
+            .isEqualTo(LocalDate.of(2024, 3, 6).atStartOfDay(UTC).toEpochSecond());
+    }
+
+    @Test
+    void monthAndQuarterLabels() {
+        TimeBuckets months = TimeBuckets.between(LocalDate.of(2023, 11, 15), LocalDate.of(2024, 2, 1), Granularity.MONTH, UTC);
+        TimeBuckets quarters = TimeBuckets.between(LocalDate.of(2023, 11, 15), LocalDate.of(2024, 2, 1), Granularity.QUARTER, UTC);
+
+        assertThat(months.size()).isEqualTo(4);
+        assertThat(months.label(0)).isEqualTo("2023-11");
+        assertThat(months.label(3)).isEqualTo("2024-02");
+        assertThat(quarters.size()).isEqualTo(2);
+        assertThat(quarters.label(0)).isEqualTo("2023-Q4");
+        assertThat(quarters.label(1)).isEqualTo("2024-Q1");
+    }
+
+    @Test
+    void dayBoundariesFollowTheZoneAcrossDaylightSavingTime() {
+        // Clocks in Berlin go forward on 2024-03-31, a 23 hour day
+        TimeBuckets buckets = TimeBuckets.between(LocalDate.of(2024, 3, 30), LocalDate.of(2024, 4, 1), Granularity.DAY, BERLIN);
+        long[] boundaries = buckets.epochSecondBoundaries();
+
+        assertThat(boundaries[1] - boundaries[0]).isEqualTo(24 * 3600);
+        assertThat(boundaries[2] - boundaries[1]).isEqualTo(23 * 3600);
+        assertThat(buckets.alignsWithUtcDays()).isFalse();
+    }
+
+    @Test
+    void bucketOfFindsTheBucketOrMinusOne() {
+        long[] boundaries = { 100, 200, 300 };
+
+        assertThat(TimeBuckets.bucketOf(boundaries, 99)).isEqualTo(-1);
+        assertThat(TimeBuckets.bucketOf(boundaries, 100)).isEqualTo(0);
+        assertThat(TimeBuckets.bucketOf(boundaries, 199)).isEqualTo(0);
+        assertThat(TimeBuckets.bucketOf(boundaries, 200)).isEqualTo(1);
+        assertThat(TimeBuckets.bucketOf(boundaries, 300)).isEqualTo(-1);
+    }
+
+    @Test
+    void rejectsInvertedAndOversizedRanges() {
+        assertThatThrownBy(() -> TimeBuckets.between(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 3, 1), Granularity.DAY, UTC))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TimeBuckets.between(LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1), Granularity.HOUR, UTC))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
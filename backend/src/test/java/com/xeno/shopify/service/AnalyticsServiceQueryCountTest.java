@@ -0,0 +1,178 @@
+package com.xeno.shopify.service;
+
+import com.xeno.shopify.dto.DashboardMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the number of SQL statements one dashboard request costs: three on a cache
+ * miss, run side by side on the fan-out pool, and none while the tenant's data
+ * version is unchanged. Statements are counted by wrapping the DataSource, so a
+ * figure that goes back to a round trip of its own, or a cache key that stops
+ * matching, fails here.
+ */
+class AnalyticsServiceQueryCountTest {
+
+    private static final String TENANT = "tenant-a";
+    private static final String OTHER_TENANT = "tenant-b";
+
+    private static EmbeddedDatabase database;
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private DataVersionService dataVersionService;
+
+    private AnalyticsService analyticsService;
+
+    @BeforeAll
+    static void createDatabase() {
+        database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.H2)
+            .addScript("sql/dashboard-schema.sql")
+            .build();
+    }
+
+    @AfterAll
+    static void shutDownDatabase() {
+        database.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Written straight to the database, so the counter only sees the service
+        JdbcTemplate setup = new JdbcTemplate(database);
+        setup.update("DELETE FROM assignment_customers");
+        setup.update("DELETE FROM assignment_products");
+        setup.update("DELETE FROM daily_tenant_metrics");
+        for (int i = 0; i < 4; i++) {
+            setup.update("INSERT INTO assignment_customers (tenant_id) VALUES (?)", TENANT);
+        }
+        setup.update("INSERT INTO assignment_customers (tenant_id) VALUES (?)", OTHER_TENANT);
+        setup.update("INSERT INTO assignment_products (tenant_id, is_active) VALUES (?, TRUE)", TENANT);
+        setup.update("INSERT INTO assignment_products (tenant_id, is_active) VALUES (?, TRUE)", TENANT);
+        setup.update("INSERT INTO assignment_products (tenant_id, is_active) VALUES (?, FALSE)", TENANT);
+
+        LocalDate today = LocalDate.now();
+        String metrics = "INSERT INTO daily_tenant_metrics (tenant_id, source, metric_date, orders_count, revenue) VALUES (?, ?, ?, ?, ?)";
+        setup.update(metrics, TENANT, "ASSIGNMENT", Date.valueOf(today), 2, 50.00);
+        // The first day of the last seven, and the day before it
+        setup.update(metrics, TENANT, "ASSIGNMENT", Date.valueOf(today.minusDays(6)), 1, 10.00);
+        setup.update(metrics, TENANT, "ASSIGNMENT", Date.valueOf(today.minusDays(7)), 2, 10.00);
+        setup.update(metrics, TENANT, "ASSIGNMENT", Date.valueOf(today.minusDays(90)), 3, 30.00);
+        setup.update(metrics, TENANT, "SHOPIFY", Date.valueOf(today), 100, 1000.00);
+        setup.update(metrics, OTHER_TENANT, "ASSIGNMENT", Date.valueOf(today), 1, 1000.00);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(3);
+        executor.initialize();
+        QueryFanOut queryFanOut = new QueryFanOut();
+        ReflectionTestUtils.setField(queryFanOut, "executor", executor);
+        ReflectionTestUtils.setField(queryFanOut, "timeoutMs", 10_000L);
+
+        dataVersionService = new DataVersionService();
+        AnalyticsCache analyticsCache = new AnalyticsCache(new SimpleMeterRegistry(), 200_000, 15);
+        ReflectionTestUtils.setField(analyticsCache, "dataVersionService", dataVersionService);
+        analyticsService = new AnalyticsService();
+        ReflectionTestUtils.setField(analyticsService, "analyticsCache", analyticsCache);
+        ReflectionTestUtils.setField(analyticsService, "queryFanOut", queryFanOut);
+        ReflectionTestUtils.setField(analyticsService, "jdbcTemplate",
+            new JdbcTemplate(countingStatements(database, statements)));
+    }
+
+    @AfterEach
+    void shutDownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    void cacheMissRunsThreeQueries() {
+        DashboardMetrics metrics = analyticsService.getDashboardMetrics(TENANT);
+
+        assertThat(statements.get()).isEqualTo(3);
+        assertThat(metrics.getTotalCustomers()).isEqualTo(4L);
+        assertThat(metrics.getTotalProducts()).isEqualTo(2L);
+        assertThat(metrics.getTotalOrders()).isEqualTo(8L);
+        assertThat(metrics.getTotalRevenue()).isEqualTo(100.0);
+        assertThat(metrics.getAverageOrderValue()).isEqualTo(12.5);
+        assertThat(metrics.getRecentOrders()).isEqualTo(3L);
+    }
+
+    @Test
+    void repeatedRequestsRunNoQueries() {
+        analyticsService.getDashboardMetrics(TENANT);
+        statements.set(0);
+
+        for (int i = 0; i < 5; i++) {
+            analyticsService.getDashboardMetrics(TENANT);
+        }
+
+        assertThat(statements.get()).isZero();
+    }
+
+    @Test
+    void dataVersionBumpReloadsOnlyThatTenant() {
+        analyticsService.getDashboardMetrics(TENANT);
+        analyticsService.getDashboardMetrics(OTHER_TENANT);
+        statements.set(0);
+
+        dataVersionService.bump(TENANT);
+        analyticsService.getDashboardMetrics(TENANT);
+        analyticsService.getDashboardMetrics(OTHER_TENANT);
+
+        assertThat(statements.get()).isEqualTo(3);
+    }
+
+    // Counts every statement prepared or created on the connections handed out
+    private static DataSource countingStatements(DataSource target, AtomicInteger statements) {
+        return proxy(DataSource.class, target, (method, result) -> {
+            if (method.getName().equals("getConnection")) {
+                return proxy(Connection.class, (Connection) result, (connectionMethod, statement) -> {
+                    String name = connectionMethod.getName();
+                    if (name.startsWith("prepare") || name.equals("createStatement")) {
+                        statements.incrementAndGet();
+                    }
+                    return statement;
+                });
+            }
+            return result;
+        });
+    }
+
+    private interface AfterCall {
+        Object apply(Method method, Object result);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            try {
+                return afterCall.apply(method, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+}
@@ -0,0 +1,23 @@
+-- The columns of the tables the dashboard reads, as in the entities and schema.sql
+CREATE TABLE assignment_customers (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE assignment_products (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE daily_tenant_metrics (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    tax DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    discounts DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    unique_customers INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, source, metric_date)
+);
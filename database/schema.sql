@@ -15,6 +15,7 @@ CREATE TABLE IF NOT EXISTS tenants (
     shopify_access_token TEXT,
     webhook_secret VARCHAR(255),
     is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    time_zone VARCHAR(64) DEFAULT 'UTC',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_tenant_id (tenant_id),
@@ -60,6 +61,7 @@ CREATE TABLE IF NOT EXISTS customers (
     INDEX idx_tenant_shopify (tenant_id, shopify_id),
     INDEX idx_email (email),
     INDEX idx_total_spent (total_spent),
+    INDEX idx_tenant_total_spent (tenant_id, total_spent),
     INDEX idx_created_at (created_at),
     FOREIGN KEY (tenant_id) REFERENCES tenants(tenant_id) ON DELETE CASCADE,
     UNIQUE KEY unique_tenant_customer (tenant_id, shopify_id)
@@ -180,13 +182,28 @@ CREATE TABLE IF NOT EXISTS order_items (
     UNIQUE KEY unique_tenant_order_item (tenant_id, shopify_id)
 );
 
+-- Webhook payload dictionaries - per-topic preset dictionaries for payload compression
+CREATE TABLE IF NOT EXISTS webhook_payload_dictionaries (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    topic VARCHAR(100) NOT NULL,
+    dictionary MEDIUMBLOB NOT NULL,
+    sample_count INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_topic_created (topic, created_at)
+);
+
 -- Webhook events table - stores webhook event history
+-- payload holds legacy uncompressed rows; new rows store deflated bytes in payload_data
 CREATE TABLE IF NOT EXISTS webhook_events (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     tenant_id VARCHAR(255) NOT NULL,
     event_type VARCHAR(100) NOT NULL,
     shopify_id VARCHAR(255),
     payload JSON,
+    payload_data MEDIUMBLOB,
+    payload_codec VARCHAR(20),
+    dictionary_id BIGINT,
+    payload_size INT,
     processed BOOLEAN DEFAULT FALSE,
     error_message TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -195,9 +212,28 @@ CREATE TABLE IF NOT EXISTS webhook_events (
     INDEX idx_event_type (event_type),
     INDEX idx_processed (processed),
     INDEX idx_created_at (created_at),
+    INDEX idx_tenant_created_id (tenant_id, created_at, id),
     FOREIGN KEY (tenant_id) REFERENCES tenants(tenant_id) ON DELETE CASCADE
 );
 
+-- Webhook events archive - compacted, write-once copy of events past the retention window
+CREATE TABLE IF NOT EXISTS webhook_events_archive (
+    id BIGINT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    shopify_id VARCHAR(255),
+    payload JSON,
+    payload_data MEDIUMBLOB,
+    payload_codec VARCHAR(20),
+    dictionary_id BIGINT,
+    payload_size INT,
+    processed BOOLEAN DEFAULT FALSE,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_tenant_created_id (tenant_id, created_at, id)
+) ROW_FORMAT=COMPRESSED;
+
 -- Sync jobs table - tracks data synchronization jobs
 CREATE TABLE IF NOT EXISTS sync_jobs (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -218,59 +254,172 @@ CREATE TABLE IF NOT EXISTS sync_jobs (
     FOREIGN KEY (tenant_id) REFERENCES tenants(tenant_id) ON DELETE CASCADE
 );
 
--- Create views for analytics
+-- Daily rollups per tenant, maintained in the order write transaction
+-- source is SHOPIFY (orders table) or ASSIGNMENT (assignment_orders table)
+CREATE TABLE IF NOT EXISTS daily_tenant_metrics (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    tax DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    discounts DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    unique_customers INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, source, metric_date)
+);
+
+CREATE TABLE IF NOT EXISTS daily_tenant_status_metrics (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (tenant_id, source, metric_date, status)
+);
+
+-- One row per customer who ordered that day, so unique_customers stays exact under deletes
+CREATE TABLE IF NOT EXISTS daily_tenant_customers (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    customer_key VARCHAR(255) NOT NULL,
+    orders_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, source, metric_date, customer_key)
+);
+
+-- Tenants whose rollups were rebuilt from the order tables at least once; tenants with
+-- orders but no row here are backfilled at startup
+CREATE TABLE IF NOT EXISTS daily_rollup_builds (
+    tenant_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    built_at TIMESTAMP NOT NULL
+);
+
+-- HyperLogLog of each day's customers (4096 one-byte registers), merged across days
+-- to estimate distinct customers over a range
+CREATE TABLE IF NOT EXISTS daily_tenant_customer_sketches (
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    sketch BLOB NOT NULL,
+    PRIMARY KEY (tenant_id, source, metric_date)
+);
+
+-- Fulfilment lead-time histograms: orders per tenant, stage (SHIP = order to ship,
+-- DELIVER = ship to delivery), completion day and log-linear duration bucket
+CREATE TABLE IF NOT EXISTS daily_fulfilment_latency (
+    tenant_id VARCHAR(255) NOT NULL,
+    stage VARCHAR(20) NOT NULL,
+    metric_date DATE NOT NULL,
+    bucket SMALLINT NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, stage, metric_date, bucket)
+);
 
--- Customer analytics view
-CREATE OR REPLACE VIEW customer_analytics AS
-SELECT 
-    tenant_id,
-    COUNT(*) as total_customers,
-    COUNT(CASE WHEN verified_email = TRUE THEN 1 END) as verified_customers,
-    COUNT(CASE WHEN accepts_marketing = TRUE THEN 1 END) as marketing_subscribers,
-    AVG(total_spent) as avg_customer_spend,
-    SUM(total_spent) as total_customer_spend,
-    MAX(total_spent) as max_customer_spend
-FROM customers 
-GROUP BY tenant_id;
+-- Every order change, kept for a retention window so an analytics snapshot can be
+-- brought up to date by replaying the changes made after it was taken
+CREATE TABLE IF NOT EXISTS order_change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    order_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    ordered_at DATETIME NULL,
+    amount DECIMAL(15, 2) NULL,
+    status VARCHAR(50) NULL,
+    customer_key VARCHAR(255) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_order_change_log_tenant (tenant_id, source, id),
+    INDEX idx_order_change_log_created (created_at)
+);
 
--- Order analytics view
-CREATE OR REPLACE VIEW order_analytics AS
-SELECT 
-    o.tenant_id,
-    COUNT(*) as total_orders,
-    COUNT(CASE WHEN financial_status = 'paid' THEN 1 END) as paid_orders,
-    COUNT(CASE WHEN financial_status = 'pending' THEN 1 END) as pending_orders,
-    COUNT(CASE WHEN financial_status = 'cancelled' THEN 1 END) as cancelled_orders,
-    SUM(total_price) as total_revenue,
-    AVG(total_price) as avg_order_value,
-    MAX(total_price) as max_order_value,
-    DATE(processed_at) as order_date
-FROM orders o
-WHERE processed_at IS NOT NULL
-GROUP BY tenant_id, DATE(processed_at);
+-- Sales counter deltas of assignment products, appended by each order in its own
+-- transaction and folded into assignment_products in batches by the stats flush
+CREATE TABLE IF NOT EXISTS product_stat_deltas (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    quantity INT NOT NULL,
+    revenue DECIMAL(15, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- RFM scores per assignment customer from the latest segmentation run: recency in days
+-- since the last order (NULL for none), orders, spend, the 1-5 scores and the segment
+CREATE TABLE IF NOT EXISTS customer_rfm_scores (
+    tenant_id VARCHAR(255) NOT NULL,
+    customer_id BIGINT NOT NULL,
+    recency_days INT NULL,
+    frequency INT NOT NULL,
+    monetary DECIMAL(15, 2) NOT NULL,
+    recency_score TINYINT NOT NULL,
+    frequency_score TINYINT NOT NULL,
+    monetary_score TINYINT NOT NULL,
+    segment VARCHAR(30) NOT NULL,
+    PRIMARY KEY (tenant_id, customer_id),
+    INDEX idx_customer_rfm_scores_segment (tenant_id, segment)
+);
 
--- Product analytics view
-CREATE OR REPLACE VIEW product_analytics AS
-SELECT 
-    tenant_id,
-    COUNT(*) as total_products,
-    COUNT(CASE WHEN status = 'active' THEN 1 END) as active_products,
-    COUNT(CASE WHEN status = 'draft' THEN 1 END) as draft_products,
-    AVG(price) as avg_product_price,
-    SUM(inventory_quantity) as total_inventory
-FROM products 
-GROUP BY tenant_id;
+-- Latest segmentation run per tenant: quintile upper bounds as comma-separated lists
+-- and the customers in each segment
+CREATE TABLE IF NOT EXISTS customer_rfm_runs (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    customers_count BIGINT NOT NULL,
+    recency_bounds VARCHAR(255) NOT NULL,
+    frequency_bounds VARCHAR(255) NOT NULL,
+    monetary_bounds VARCHAR(255) NOT NULL,
+    duration_ms BIGINT NOT NULL,
+    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
 
--- Top customers view
-CREATE OR REPLACE VIEW top_customers AS
-SELECT 
-    tenant_id,
-    shopify_id,
-    CONCAT(first_name, ' ', last_name) as customer_name,
-    email,
-    total_spent,
-    orders_count,
-    ROW_NUMBER() OVER (PARTITION BY tenant_id ORDER BY total_spent DESC) as spending_rank
-FROM customers
-WHERE total_spent > 0
-ORDER BY tenant_id, total_spent DESC;
+CREATE TABLE IF NOT EXISTS customer_rfm_segments (
+    tenant_id VARCHAR(255) NOT NULL,
+    segment VARCHAR(30) NOT NULL,
+    customers_count BIGINT NOT NULL,
+    PRIMARY KEY (tenant_id, segment)
+);
+
+-- Per-tenant summaries of Shopify customers and products, kept current from change
+-- events inside the writing transaction and checked nightly against the base tables.
+-- They replace the customer_analytics, product_analytics and top_customers views, which
+-- re-aggregated every tenant's rows on each read; order_analytics is covered by the
+-- SHOPIFY rows of daily_tenant_metrics and daily_tenant_status_metrics.
+DROP VIEW IF EXISTS customer_analytics;
+DROP VIEW IF EXISTS order_analytics;
+DROP VIEW IF EXISTS product_analytics;
+DROP VIEW IF EXISTS top_customers;
+
+CREATE TABLE IF NOT EXISTS tenant_customer_summary (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    total_customers BIGINT NOT NULL DEFAULT 0,
+    verified_customers BIGINT NOT NULL DEFAULT 0,
+    marketing_subscribers BIGINT NOT NULL DEFAULT 0,
+    total_customer_spend DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    max_customer_spend DECIMAL(10, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS tenant_product_summary (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    total_products BIGINT NOT NULL DEFAULT 0,
+    active_products BIGINT NOT NULL DEFAULT 0,
+    draft_products BIGINT NOT NULL DEFAULT 0,
+    priced_products BIGINT NOT NULL DEFAULT 0,
+    total_price DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    total_inventory BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Each tenant's biggest spenders in rank order, refilled from the customers index when
+-- a change can move the list
+CREATE TABLE IF NOT EXISTS tenant_top_customers (
+    tenant_id VARCHAR(255) NOT NULL,
+    spending_rank INT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    shopify_id VARCHAR(255) NOT NULL,
+    customer_name VARCHAR(511),
+    email VARCHAR(255),
+    total_spent DECIMAL(10, 2) NOT NULL,
+    orders_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, spending_rank)
+);
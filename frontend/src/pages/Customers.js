@@ -48,31 +48,35 @@ const Customers = () => {
   const [dialogOpen, setDialogOpen] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
   const [filteredCustomers, setFilteredCustomers] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     loadCustomers();
   }, []);
 
+  // Add mock orders to each customer for display
+  const withOrders = (data) => data.map(customer => ({
+    ...customer,
+    createdAt: customer.createdAt ? new Date(customer.createdAt) : new Date(),
+    lastOrderDate: customer.lastOrderDate ? new Date(customer.lastOrderDate) : new Date(),
+    orders: [
+      { orderId: `ORD-${String(customer.id).padStart(3, '0')}`, date: new Date(), total: customer.totalSpent * 0.3, status: 'DELIVERED' },
+      { orderId: `ORD-${String(customer.id + 100).padStart(3, '0')}`, date: new Date(Date.now() - 86400000), total: customer.totalSpent * 0.4, status: 'DELIVERED' },
+      { orderId: `ORD-${String(customer.id + 200).padStart(3, '0')}`, date: new Date(Date.now() - 172800000), total: customer.totalSpent * 0.3, status: 'PROCESSING' },
+    ]
+  }));
+
   const loadCustomers = async () => {
     try {
       setLoading(true);
       const customerService = await import('../services/customerService');
-      const data = await customerService.default.getAllCustomers();
-      
-      // Add mock orders to each customer for display
-      const customersWithOrders = data.map(customer => ({
-        ...customer,
-        createdAt: customer.createdAt ? new Date(customer.createdAt) : new Date(),
-        lastOrderDate: customer.lastOrderDate ? new Date(customer.lastOrderDate) : new Date(),
-        orders: [
-          { orderId: `ORD-${String(customer.id).padStart(3, '0')}`, date: new Date(), total: customer.totalSpent * 0.3, status: 'DELIVERED' },
-          { orderId: `ORD-${String(customer.id + 100).padStart(3, '0')}`, date: new Date(Date.now() - 86400000), total: customer.totalSpent * 0.4, status: 'DELIVERED' },
-          { orderId: `ORD-${String(customer.id + 200).padStart(3, '0')}`, date: new Date(Date.now() - 172800000), total: customer.totalSpent * 0.3, status: 'PROCESSING' },
-        ]
-      }));
+      const page = await customerService.default.getAllCustomers();
       
+      const customersWithOrders = withOrders(page.items);
       setCustomers(customersWithOrders);
       setFilteredCustomers(customersWithOrders);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       console.error('Error loading customers:', error);
       // Fallback to mock data if API fails
@@ -107,6 +111,22 @@ const Customers = () => {
     }
   };
 
+  // Appends the page after the last one loaded
+  const loadMoreCustomers = async () => {
+    try {
+      setLoadingMore(true);
+      const customerService = await import('../services/customerService');
+      const page = await customerService.default.getAllCustomers(nextCursor);
+
+      setCustomers(previous => [...previous, ...withOrders(page.items)]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Error loading more customers:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     let filtered = customers;
 
@@ -272,6 +292,13 @@ const Customers = () => {
             </TableBody>
           </Table>
         </TableContainer>
+        {nextCursor && (
+          <Box sx={{ display: 'flex', justifyContent: 'center', p: 2 }}>
+            <Button variant="outlined" onClick={loadMoreCustomers} disabled={loadingMore}>
+              {loadingMore ? 'Loading...' : 'Load more'}
+            </Button>
+          </Box>
+        )}
       </Card>
 
       {/* Customer Details Dialog */}
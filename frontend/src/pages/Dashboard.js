@@ -267,6 +267,47 @@ const Dashboard = () => {
     loadDashboardData();
   }, [currentTenant]);
 
+  // Figures stay current from the stream instead of refetching every panel
+  useEffect(() => {
+    const applyDelta = (delta) => {
+      const orders = delta.assignment;
+      if (orders) {
+        setMetrics(previous => ({
+          ...previous,
+          totalOrders: (previous.totalOrders || 0) + orders.orders,
+          totalRevenue: (previous.totalRevenue || 0) + orders.revenue
+        }));
+        setOrdersByStatus(previous => {
+          const next = { ...previous };
+          Object.entries(orders.statuses || {}).forEach(([status, change]) => {
+            next[status] = (next[status] || 0) + change;
+            if (next[status] <= 0) {
+              delete next[status];
+            }
+          });
+          return next;
+        });
+        if (orders.newOrders > 0) {
+          analyticsService.getRecentOrders(8).then(setRecentOrders);
+        }
+      }
+      const changed = delta.changed || [];
+      if (changed.includes('customers')) {
+        analyticsService.getTopCustomers(5).then(setTopCustomers);
+      }
+      if (changed.includes('products')) {
+        analyticsService.getTopProducts(5).then(setTopProducts);
+      }
+    };
+
+    const unsubscribe = analyticsService.subscribeToDashboard(
+      applyDelta,
+      (err) => console.error('Dashboard stream error:', err),
+      () => loadDashboardData()
+    );
+    return unsubscribe;
+  }, [currentTenant]);
+
   const handleDateFilterApply = () => {
     loadDashboardData();
   };
@@ -61,6 +61,8 @@ const Orders = () => {
   const [searchTerm, setSearchTerm] = useState('');
   const [statusFilter, setStatusFilter] = useState('ALL');
   const [filteredOrders, setFilteredOrders] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     loadOrders();
@@ -70,10 +72,11 @@ const Orders = () => {
     try {
       setLoading(true);
       const orderService = await import('../services/orderService');
-      const data = await orderService.default.getAllOrders();
+      const page = await orderService.default.getAllOrders();
       
-      setOrders(data);
-      setFilteredOrders(data);
+      setOrders(page.items);
+      setFilteredOrders(page.items);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       console.error('Error loading orders:', error);
       // Fallback to mock data if API fails
@@ -113,6 +116,22 @@ const Orders = () => {
     }
   };
 
+  // Appends the page after the last one loaded
+  const loadMoreOrders = async () => {
+    try {
+      setLoadingMore(true);
+      const orderService = await import('../services/orderService');
+      const page = await orderService.default.getAllOrders(nextCursor);
+
+      setOrders(previous => [...previous, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Error loading more orders:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     let filtered = orders;
 
@@ -314,6 +333,13 @@ const Orders = () => {
             </TableBody>
           </Table>
         </TableContainer>
+        {nextCursor && (
+          <Box sx={{ display: 'flex', justifyContent: 'center', p: 2 }}>
+            <Button variant="outlined" onClick={loadMoreOrders} disabled={loadingMore}>
+              {loadingMore ? 'Loading...' : 'Load more'}
+            </Button>
+          </Box>
+        )}
       </Card>
 
       {/* Order Details Dialog */}
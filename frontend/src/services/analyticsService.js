@@ -311,6 +311,73 @@ class AnalyticsService {
     console.log('Generated recent orders:', mockOrders);
     return mockOrders;
   }
+
+  // Live dashboard deltas over server-sent events. EventSource cannot send the
+  // Authorization header, so each (re)connect first fetches a short-lived stream token.
+  // onResync is called when deltas may have been missed (a reconnect or a gap in the
+  // event ids), so the caller can refetch. Returns a function that closes the stream.
+  subscribeToDashboard(onDelta, onError, onResync) {
+    let source = null;
+    let retry = null;
+    let closed = false;
+    let connected = false;
+    let lastId = null;
+
+    const reconnect = () => {
+      if (!closed) {
+        retry = setTimeout(connect, 5000);
+      }
+    };
+
+    const connect = async () => {
+      try {
+        const response = await axios.post(`${API_BASE_URL}/stream/token`, null, {
+          headers: { Authorization: `Bearer ${localStorage.getItem('authToken') || ''}` }
+        });
+        if (closed) {
+          return;
+        }
+        source = new EventSource(`${API_BASE_URL}/stream?token=${encodeURIComponent(response.data.token)}`);
+        source.addEventListener('ready', (event) => {
+          if (connected && onResync) {
+            onResync();
+          }
+          connected = true;
+          lastId = Number(event.lastEventId);
+        });
+        source.addEventListener('delta', (event) => {
+          const id = Number(event.lastEventId);
+          const missed = lastId !== null && id !== lastId + 1;
+          lastId = id;
+          if (missed && onResync) {
+            onResync();
+          } else {
+            onDelta(JSON.parse(event.data));
+          }
+        });
+        source.onerror = () => {
+          // The browser would retry with the same, possibly expired, token
+          source.close();
+          reconnect();
+        };
+      } catch (error) {
+        console.error('Error opening dashboard stream:', error);
+        if (onError) {
+          onError(error);
+        }
+        reconnect();
+      }
+    };
+
+    connect();
+    return () => {
+      closed = true;
+      clearTimeout(retry);
+      if (source) {
+        source.close();
+      }
+    };
+  }
 }
 
 export default new AnalyticsService();
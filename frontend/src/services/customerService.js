@@ -24,19 +24,23 @@ class CustomerService {
     );
   }
 
-  async getAllCustomers(page = null, size = null, search = null) {
+  // One page of customers; pass the returned nextCursor back to fetch the next page
+  async getAllCustomers(cursor = null, size = null, search = null) {
     try {
       const params = {};
-      if (page !== null) params.page = page;
+      if (cursor) params.cursor = cursor;
       if (size !== null) params.size = size;
       if (search) params.search = search;
 
       const response = await this.axiosInstance.get('/customers', { params });
-      return response.data;
+      return {
+        items: response.data,
+        nextCursor: response.headers['x-next-cursor'] || null
+      };
     } catch (error) {
       console.error('Error fetching customers:', error);
       // Return mock data as fallback
-      return this.getMockCustomers();
+      return { items: this.getMockCustomers(), nextCursor: null };
     }
   }
 
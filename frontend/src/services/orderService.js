@@ -24,10 +24,11 @@ class OrderService {
     );
   }
 
-  async getAllOrders(page = null, size = null, status = null, customerId = null, startDate = null, endDate = null) {
+  // One page of orders; pass the returned nextCursor back to fetch the next page
+  async getAllOrders(cursor = null, size = null, status = null, customerId = null, startDate = null, endDate = null) {
     try {
       const params = {};
-      if (page !== null) params.page = page;
+      if (cursor) params.cursor = cursor;
       if (size !== null) params.size = size;
       if (status) params.status = status;
       if (customerId) params.customerId = customerId;
@@ -35,17 +36,20 @@ class OrderService {
       if (endDate) params.endDate = endDate.toISOString();
 
       const response = await this.axiosInstance.get('/orders', { params });
-      return response.data.map(order => ({
-        ...order,
-        orderDate: new Date(order.orderDate),
-        shippedDate: order.shippedDate ? new Date(order.shippedDate) : null,
-        deliveredDate: order.deliveredDate ? new Date(order.deliveredDate) : null,
-        customer: order.customer || { fullName: order.customerName || 'Unknown', email: order.customerEmail || '' }
-      }));
+      return {
+        items: response.data.map(order => ({
+          ...order,
+          orderDate: new Date(order.orderDate),
+          shippedDate: order.shippedDate ? new Date(order.shippedDate) : null,
+          deliveredDate: order.deliveredDate ? new Date(order.deliveredDate) : null,
+          customer: order.customer || { fullName: order.customerName || 'Unknown', email: order.customerEmail || '' }
+        })),
+        nextCursor: response.headers['x-next-cursor'] || null
+      };
     } catch (error) {
       console.error('Error fetching orders:', error);
       // Return mock data as fallback
-      return this.getMockOrders();
+      return { items: this.getMockOrders(), nextCursor: null };
     }
   }
 